@@ -20,11 +20,15 @@ package com.googlecode.fitchy;
 
 import java.io.InputStream;
 import java.net.URL;
+import java.util.concurrent.atomic.AtomicReference;
 
 import com.googlecode.fitchy.Configuration;
 import com.googlecode.fitchy.FeatureContext;
 
 /**
+ * Holds the {@link FeatureContext} that is used by the AspectJ advice. The context is
+ * published through an {@link AtomicReference}, so it can be replaced at runtime while
+ * advised methods are running and reading it doesn't take a lock.
  *
  * User: Andreas Kaubisch <andreas.kaubisch@gmail.com>
  * Date: 8/6/12
@@ -32,37 +36,36 @@ import com.googlecode.fitchy.FeatureContext;
  */
 public class AspectJFeatureContext {
 
-    private static FeatureContext context;
-
-    private static final String SEMAPHORE = "semaphore";
+    private static final AtomicReference<FeatureContext> CONTEXT = new AtomicReference<FeatureContext>();
 
     public static FeatureContext initializeFor(Configuration config, URL features) {
-        synchronized(SEMAPHORE) {
-            context = FeatureContext.Builder
-						.fromUrl(features)
-						.withConfig(config)
-						.build();
-        }
-        return context;
+        return replace(FeatureContext.Builder
+                            .fromUrl(features)
+                            .withConfig(config)
+                            .build());
     }
 
     public static FeatureContext initializeFor(Configuration config, InputStream is) {
-        synchronized (SEMAPHORE) {
-            context = FeatureContext.Builder
-            			.fromStream(is)
-            			.withConfig(config)
-            			.build();
-        }
+        return replace(FeatureContext.Builder
+                            .fromStream(is)
+                            .withConfig(config)
+                            .build());
+    }
+
+    /**
+     * Publishes a new {@link FeatureContext}. All advice executions that start afterwards
+     * use this context, executions that already read the previous context finish with it.
+     *
+     * @param context the new {@link FeatureContext}
+     * @return the published context
+     */
+    public static FeatureContext replace(FeatureContext context) {
+        CONTEXT.set(context);
         return context;
     }
 
     public static FeatureContext getInstance() {
-        FeatureContext context = null;
-        synchronized (SEMAPHORE) {
-            context = AspectJFeatureContext.context;
-        }
-
-        return context;
+        return CONTEXT.get();
     }
 
 }
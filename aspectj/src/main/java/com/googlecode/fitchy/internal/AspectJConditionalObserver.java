@@ -0,0 +1,59 @@
+/**
+ *  Licensed to the Apache Software Foundation (ASF) under one
+ *	or more contributor license agreements.  See the NOTICE file
+ *  distributed with this work for additional information
+ *	regarding copyright ownership.  The ASF licenses this file
+ *  to you under the Apache License, Version 2.0 (the
+ *  "License"); you may not use this file except in compliance
+ *  with the License.  You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing,
+ *  software distributed under the License is distributed on an
+ *  "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ *  KIND, either express or implied.  See the License for the
+ *  specific language governing permissions and limitations
+ *  under the License.
+ */
+package com.googlecode.fitchy.internal;
+
+import org.aspectj.lang.JoinPoint;
+import org.aspectj.lang.annotation.Around;
+import org.aspectj.lang.annotation.Aspect;
+import org.aspectj.lang.annotation.Pointcut;
+
+import com.googlecode.fitchy.AspectJFeatureContext;
+import com.googlecode.fitchy.annotation.FeatureSwitch;
+
+/**
+ * Alternative to {@link AspectJObserver} that tests the feature in a static <code>if()</code>
+ * pointcut against the current context of {@link AspectJFeatureContext}. Only executions of
+ * methods with a disabled feature enter the around advice, which suppresses them. Methods
+ * with an enabled feature only pay for the test and never build a closure or an argument array.
+ *
+ * The test receives the static part of the join point, so the checks are cached per advised
+ * method like in {@link AspectJObserver}. The advice references the pointcut with a wildcard
+ * for this implicit parameter, the AspectJ weaver doesn't accept a reference that leaves it out.
+ *
+ * Register only one of both aspects, otherwise every annotated method is checked twice. For
+ * load-time weaving select <code>META-INF/fitchy-aop-conditional.xml</code> with the system
+ * property <code>org.aspectj.weaver.loadtime.configuration</code> instead of
+ * <code>META-INF/fitchy-aop.xml</code>. Neither file has a default name of the weaver, so
+ * including this module doesn't weave any aspect into an application by itself.
+ */
+@Aspect
+public class AspectJConditionalObserver {
+
+    private static final AspectJFeatureChecks CHECKS = new AspectJFeatureChecks();
+
+    @Pointcut("execution(* *(..)) && @annotation(featureSwitch) && if()")
+    public static boolean disabledFeatureMethod(FeatureSwitch featureSwitch, JoinPoint.StaticPart staticPart) {
+        return !CHECKS.isAvailable(staticPart, featureSwitch);
+    }
+
+    @Around("disabledFeatureMethod(featureSwitch, *)")
+    public Object suppressDisabledFeatureMethod(FeatureSwitch featureSwitch) {
+        return null;
+    }
+}
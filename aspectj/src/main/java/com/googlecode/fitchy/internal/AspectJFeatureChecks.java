@@ -0,0 +1,118 @@
+/**
+ *  Licensed to the Apache Software Foundation (ASF) under one
+ *	or more contributor license agreements.  See the NOTICE file
+ *  distributed with this work for additional information
+ *	regarding copyright ownership.  The ASF licenses this file
+ *  to you under the Apache License, Version 2.0 (the
+ *  "License"); you may not use this file except in compliance
+ *  with the License.  You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing,
+ *  software distributed under the License is distributed on an
+ *  "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ *  KIND, either express or implied.  See the License for the
+ *  specific language governing permissions and limitations
+ *  under the License.
+ */
+package com.googlecode.fitchy.internal;
+
+import java.lang.reflect.Method;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+import org.aspectj.lang.JoinPoint;
+import org.aspectj.lang.reflect.MethodSignature;
+
+import com.googlecode.fitchy.AspectJFeatureContext;
+import com.googlecode.fitchy.FeatureCallSite;
+import com.googlecode.fitchy.FeatureContext;
+import com.googlecode.fitchy.annotation.FeatureSwitch;
+import com.googlecode.fitchy.resolver.FeatureResolver;
+import com.googlecode.fitchy.resolver.FeatureResolverFactory;
+
+/**
+ * Checks the features of advised methods against the context of {@link AspectJFeatureContext}.
+ * The {@link FeatureResolver} and the {@link FeatureCallSite} of every {@link FeatureCheck} are
+ * kept together with the context they were created for and only replaced when another context
+ * is published. The {@link FeatureCheck} of the bound annotation is cached per advised
+ * {@link Method}, so a check costs two lookups in a cache and one read of a
+ * {@link FeatureCallSite}.
+ *
+ * The cache isn't keyed on the {@link JoinPoint.StaticPart} itself. Spring AOP creates a new
+ * join point for every call and returns it as its own static part, so such a key would add an
+ * entry per call.
+ */
+final class AspectJFeatureChecks {
+
+    private final ConcurrentMap<Method, FeatureCheck> checks = new ConcurrentHashMap<Method, FeatureCheck>();
+
+    private volatile ResolverBinding binding;
+
+    /**
+     * Pairs a published {@link FeatureContext} with the {@link FeatureResolver} and the
+     * {@link FeatureCallSite} instances created for it.
+     */
+    private static final class ResolverBinding {
+        private final FeatureContext context;
+        private final FeatureResolver resolver;
+        private final ConcurrentMap<FeatureCheck, FeatureCallSite> callSites = new ConcurrentHashMap<FeatureCheck, FeatureCallSite>();
+
+        private ResolverBinding(FeatureContext context) {
+            this.context = context;
+            this.resolver = new FeatureResolverFactory(context).createResolver();
+        }
+
+        private boolean isAvailable(FeatureCheck check) {
+            FeatureCallSite callSite = callSites.get(check);
+            if(callSite == null) {
+                callSite = check.getCallSite(resolver);
+                FeatureCallSite existing = callSites.putIfAbsent(check, callSite);
+                if(existing != null) {
+                    callSite = existing;
+                }
+            }
+            return callSite.isAvailable();
+        }
+    }
+
+    /**
+     * @param staticPart the static part of the advised join point
+     * @param featureSwitch the annotation bound to the advice
+     * @return true if the feature of the annotation is available in the current context
+     */
+    boolean isAvailable(JoinPoint.StaticPart staticPart, FeatureSwitch featureSwitch) {
+        return getBinding().isAvailable(getCheck(staticPart, featureSwitch));
+    }
+
+    /**
+     * @return the amount of cached checks
+     */
+    int size() {
+        return checks.size();
+    }
+
+    private FeatureCheck getCheck(JoinPoint.StaticPart staticPart, FeatureSwitch featureSwitch) {
+        Method method = ((MethodSignature) staticPart.getSignature()).getMethod();
+        FeatureCheck check = checks.get(method);
+        if(check == null) {
+            check = FeatureCheck.of(featureSwitch);
+            FeatureCheck existing = checks.putIfAbsent(method, check);
+            if(existing != null) {
+                check = existing;
+            }
+        }
+        return check;
+    }
+
+    private ResolverBinding getBinding() {
+        FeatureContext context = AspectJFeatureContext.getInstance();
+        ResolverBinding current = binding;
+        if(current == null || current.context != context) {
+            current = new ResolverBinding(context);
+            binding = current;
+        }
+        return current;
+    }
+}
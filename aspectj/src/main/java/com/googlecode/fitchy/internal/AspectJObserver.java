@@ -4,18 +4,17 @@ import org.aspectj.lang.ProceedingJoinPoint;
 import org.aspectj.lang.annotation.Around;
 import org.aspectj.lang.annotation.Aspect;
 import org.aspectj.lang.annotation.Pointcut;
-import org.aspectj.lang.reflect.MethodSignature;
 
 import com.googlecode.fitchy.AspectJFeatureContext;
-import com.googlecode.fitchy.FeatureContext;
 import com.googlecode.fitchy.annotation.FeatureSwitch;
-import com.googlecode.fitchy.exception.InvokeException;
-import com.googlecode.fitchy.internal.AnnotatedMethodInvoker;
-import com.googlecode.fitchy.resolver.FeatureResolverFactory;
-
-import java.lang.reflect.Method;
 
 /**
+ * Advice that suppresses methods with a {@link FeatureSwitch} annotation when the feature
+ * isn't available in the context of {@link AspectJFeatureContext}. The aspect doesn't
+ * allocate helper objects per call, see {@link AspectJFeatureChecks}.
+ *
+ * Every annotated method runs through this around advice, also when its feature is enabled.
+ * {@link AspectJConditionalObserver} is an alternative that advises only disabled methods.
  *
  * User: Andreas Kaubisch <andreas.kaubisch@gmail.com>
  * Date: 8/6/12
@@ -24,27 +23,24 @@ import java.lang.reflect.Method;
 @Aspect
 public class AspectJObserver {
 
+    private final AspectJFeatureChecks checks;
+
+    public AspectJObserver() {
+        this(new AspectJFeatureChecks());
+    }
+
+    AspectJObserver(AspectJFeatureChecks checks) {
+        this.checks = checks;
+    }
+
     @Pointcut("execution(* *(..))")
     public void anyPublicMethod() {}
 
     @Around("anyPublicMethod() && @annotation(featureSwitch)")
-    public Object aroundPublicMethodWithAnnotation(final ProceedingJoinPoint pjp, FeatureSwitch featureSwitch)  throws Throwable {
-        FeatureContext context = AspectJFeatureContext.getInstance();
-        FeatureResolverFactory resolverFactory = new FeatureResolverFactory(context);
-        AnnotatedMethodInvoker.MethodInvoke invoke = new AnnotatedMethodInvoker.MethodInvoke() {
-        	public Object invoke(Method method, Object[] args) throws InvokeException  {
-                try {
-					return pjp.proceed();
-				} catch (Throwable e) {
-					throw new InvokeException(e);
-				}
-            }
-            
-            public Class<?> getTargetClass() {
-                return pjp.getTarget().getClass();
-            }
-        };
-        AnnotatedMethodInvoker invoker = new AnnotatedMethodInvoker(invoke, resolverFactory);
-        return invoker.invoke(((MethodSignature)pjp.getSignature()).getMethod(), pjp.getArgs());
+    public Object aroundPublicMethodWithAnnotation(ProceedingJoinPoint pjp, FeatureSwitch featureSwitch)  throws Throwable {
+        if(checks.isAvailable(pjp.getStaticPart(), featureSwitch)) {
+            return pjp.proceed();
+        }
+        return null;
     }
 }
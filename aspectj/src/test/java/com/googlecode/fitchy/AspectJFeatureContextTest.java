@@ -0,0 +1,74 @@
+/**
+ *  Licensed to the Apache Software Foundation (ASF) under one
+ *	or more contributor license agreements.  See the NOTICE file
+ *  distributed with this work for additional information
+ *	regarding copyright ownership.  The ASF licenses this file
+ *  to you under the Apache License, Version 2.0 (the
+ *  "License"); you may not use this file except in compliance
+ *  with the License.  You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing,
+ *  software distributed under the License is distributed on an
+ *  "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ *  KIND, either express or implied.  See the License for the
+ *  specific language governing permissions and limitations
+ *  under the License.
+ */
+package com.googlecode.fitchy;
+
+import static org.hamcrest.CoreMatchers.*;
+import static org.junit.Assert.*;
+
+import java.io.ByteArrayInputStream;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.Test;
+
+public class AspectJFeatureContextTest {
+
+    @Test
+    public void replace_WithContext_PublishesContext() {
+        FeatureContext context = new FeatureContext(Configuration.getDefault());
+        assertThat(AspectJFeatureContext.replace(context), is(sameInstance(context)));
+        assertThat(AspectJFeatureContext.getInstance(), is(sameInstance(context)));
+    }
+
+    @Test
+    public void initializeFor_WithStream_PublishesLoadedContext() {
+        FeatureContext context = AspectJFeatureContext.initializeFor(Configuration.getDefault(),
+                new ByteArrayInputStream("first=on\n".getBytes()));
+        assertThat(AspectJFeatureContext.getInstance(), is(sameInstance(context)));
+        assertThat(context.hasFeature("first"), is(true));
+    }
+
+    @Test
+    public void getInstance_WhileContextIsReplaced_ReturnsPublishedContext() throws Exception {
+        final FeatureContext first = new FeatureContext(Configuration.getDefault());
+        final FeatureContext second = new FeatureContext(Configuration.getDefault());
+        AspectJFeatureContext.replace(first);
+        final CountDownLatch done = new CountDownLatch(1);
+        final AtomicInteger foreign = new AtomicInteger();
+        Thread reader = new Thread() {
+            @Override
+            public void run() {
+                while(done.getCount() > 0) {
+                    FeatureContext context = AspectJFeatureContext.getInstance();
+                    if(context != first && context != second) {
+                        foreign.incrementAndGet();
+                    }
+                }
+            }
+        };
+        reader.start();
+        for(int i = 0; i < 10000; i++) {
+            AspectJFeatureContext.replace(i % 2 == 0 ? second : first);
+        }
+        done.countDown();
+        reader.join();
+        assertThat(foreign.get(), is(0));
+        assertThat(AspectJFeatureContext.getInstance(), is(sameInstance(first)));
+    }
+}
@@ -0,0 +1,42 @@
+/**
+ *  Licensed to the Apache Software Foundation (ASF) under one
+ *	or more contributor license agreements.  See the NOTICE file
+ *  distributed with this work for additional information
+ *	regarding copyright ownership.  The ASF licenses this file
+ *  to you under the Apache License, Version 2.0 (the
+ *  "License"); you may not use this file except in compliance
+ *  with the License.  You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing,
+ *  software distributed under the License is distributed on an
+ *  "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ *  KIND, either express or implied.  See the License for the
+ *  specific language governing permissions and limitations
+ *  under the License.
+ */
+package com.googlecode.fitchy.internal;
+
+import java.util.concurrent.Callable;
+
+import com.googlecode.fitchy.annotation.FeatureSwitch;
+
+public class AdvisedFeatureService implements Callable<StackTraceElement[]> {
+
+    public static final String FEATURE = "advised.feature";
+
+    @FeatureSwitch(FEATURE)
+    public StackTraceElement[] call() {
+        return new Throwable().getStackTrace();
+    }
+
+    static boolean isCalledFrom(StackTraceElement[] trace, Class<?> type) {
+        for(StackTraceElement element : trace) {
+            if(element.getClassName().equals(type.getName())) {
+                return true;
+            }
+        }
+        return false;
+    }
+}
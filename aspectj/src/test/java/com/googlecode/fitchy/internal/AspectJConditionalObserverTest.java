@@ -0,0 +1,75 @@
+/**
+ *  Licensed to the Apache Software Foundation (ASF) under one
+ *	or more contributor license agreements.  See the NOTICE file
+ *  distributed with this work for additional information
+ *	regarding copyright ownership.  The ASF licenses this file
+ *  to you under the Apache License, Version 2.0 (the
+ *  "License"); you may not use this file except in compliance
+ *  with the License.  You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing,
+ *  software distributed under the License is distributed on an
+ *  "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ *  KIND, either express or implied.  See the License for the
+ *  specific language governing permissions and limitations
+ *  under the License.
+ */
+package com.googlecode.fitchy.internal;
+
+import static org.hamcrest.CoreMatchers.*;
+import static org.junit.Assert.*;
+
+import java.util.concurrent.Callable;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import com.googlecode.fitchy.AspectJFeatureContext;
+import com.googlecode.fitchy.Configuration;
+import com.googlecode.fitchy.FeatureContext;
+
+public class AspectJConditionalObserverTest {
+
+    private FeatureContext context;
+    private Callable<StackTraceElement[]> service;
+
+    @SuppressWarnings("unchecked")
+    @Before
+    public void setUp() throws Exception {
+        context = AspectJFeatureContext.replace(new FeatureContext(Configuration.getDefault()));
+        WeavingClassLoader loader = new WeavingClassLoader(AdvisedFeatureService.class, "META-INF/fitchy-aop-conditional.xml");
+        service = (Callable<StackTraceElement[]>) loader.loadClass(AdvisedFeatureService.class.getName()).newInstance();
+    }
+
+    @Test
+    public void call_WithDisabledFeature_IsSuppressed() throws Exception {
+        assertThat(service.call(), is(nullValue()));
+    }
+
+    @Test
+    public void call_WithEnabledFeature_SkipsAdvice() throws Exception {
+        context.addFeature(AdvisedFeatureService.FEATURE);
+        StackTraceElement[] trace = service.call();
+        assertThat(trace, is(notNullValue()));
+        assertThat(AdvisedFeatureService.isCalledFrom(trace, AspectJConditionalObserver.class), is(false));
+    }
+
+    @Test
+    public void call_AfterFeatureWasRemoved_IsSuppressed() throws Exception {
+        context.addFeature(AdvisedFeatureService.FEATURE);
+        service.call();
+        context.clear();
+        assertThat(service.call(), is(nullValue()));
+    }
+
+    @Test
+    public void call_AfterContextWasReplaced_ChecksNewContext() throws Exception {
+        service.call();
+        FeatureContext replaced = new FeatureContext(Configuration.getDefault());
+        replaced.addFeature(AdvisedFeatureService.FEATURE);
+        AspectJFeatureContext.replace(replaced);
+        assertThat(service.call(), is(notNullValue()));
+    }
+}
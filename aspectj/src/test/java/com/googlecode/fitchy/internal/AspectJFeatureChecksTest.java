@@ -0,0 +1,101 @@
+/**
+ *  Licensed to the Apache Software Foundation (ASF) under one
+ *	or more contributor license agreements.  See the NOTICE file
+ *  distributed with this work for additional information
+ *	regarding copyright ownership.  The ASF licenses this file
+ *  to you under the Apache License, Version 2.0 (the
+ *  "License"); you may not use this file except in compliance
+ *  with the License.  You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing,
+ *  software distributed under the License is distributed on an
+ *  "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ *  KIND, either express or implied.  See the License for the
+ *  specific language governing permissions and limitations
+ *  under the License.
+ */
+package com.googlecode.fitchy.internal;
+
+import static org.hamcrest.CoreMatchers.*;
+import static org.junit.Assert.*;
+
+import java.lang.reflect.Modifier;
+
+import org.aspectj.lang.JoinPoint;
+import org.aspectj.runtime.reflect.Factory;
+import org.junit.Before;
+import org.junit.Test;
+
+import com.googlecode.fitchy.AspectJFeatureContext;
+import com.googlecode.fitchy.Configuration;
+import com.googlecode.fitchy.FeatureContext;
+import com.googlecode.fitchy.annotation.FeatureSwitch;
+
+public class AspectJFeatureChecksTest {
+
+    private final AspectJFeatureChecks checks = new AspectJFeatureChecks();
+    private final Factory factory = new Factory("AspectJFeatureChecksTest.java", AspectJFeatureChecksTest.class);
+    private FeatureContext context;
+
+    @Before
+    public void setUp() {
+        context = AspectJFeatureContext.replace(new FeatureContext(Configuration.getDefault()));
+        context.addFeature("first");
+    }
+
+    @FeatureSwitch("first")
+    public void first() {
+    }
+
+    @FeatureSwitch("second")
+    public void second() {
+    }
+
+    @Test
+    public void isAvailable_WithFeatureOfAnnotation_FollowsContext() throws Exception {
+        assertThat(checks.isAvailable(staticPart("first"), annotation("first")), is(true));
+        assertThat(checks.isAvailable(staticPart("second"), annotation("second")), is(false));
+    }
+
+    @Test
+    public void isAvailable_WithNewStaticPartOfSameMethod_ReusesCheck() throws Exception {
+        for(int i = 0; i < 10; i++) {
+            assertThat(checks.isAvailable(staticPart("first"), annotation("first")), is(true));
+        }
+        assertThat(checks.size(), is(1));
+    }
+
+    @Test
+    public void isAvailable_WithSameMethod_ReusesFirstCheck() throws Exception {
+        JoinPoint.StaticPart staticPart = staticPart("first");
+        assertThat(checks.isAvailable(staticPart, annotation("first")), is(true));
+        assertThat(checks.isAvailable(staticPart, annotation("second")), is(true));
+    }
+
+    @Test
+    public void isAvailable_AfterFeatureChanged_FollowsContext() throws Exception {
+        JoinPoint.StaticPart staticPart = staticPart("second");
+        assertThat(checks.isAvailable(staticPart, annotation("second")), is(false));
+        context.addFeature("second");
+        assertThat(checks.isAvailable(staticPart, annotation("second")), is(true));
+    }
+
+    @Test
+    public void isAvailable_AfterContextWasReplaced_ChecksNewContext() throws Exception {
+        JoinPoint.StaticPart staticPart = staticPart("first");
+        assertThat(checks.isAvailable(staticPart, annotation("first")), is(true));
+        AspectJFeatureContext.replace(new FeatureContext(Configuration.getDefault()));
+        assertThat(checks.isAvailable(staticPart, annotation("first")), is(false));
+    }
+
+    private JoinPoint.StaticPart staticPart(String method) {
+        return factory.makeSJP(JoinPoint.METHOD_EXECUTION, factory.makeMethodSig(Modifier.PUBLIC, method,
+                AspectJFeatureChecksTest.class, new Class[0], new String[0], new Class[0], void.class), 1);
+    }
+
+    private FeatureSwitch annotation(String method) throws Exception {
+        return AspectJFeatureChecksTest.class.getMethod(method).getAnnotation(FeatureSwitch.class);
+    }
+}
@@ -0,0 +1,68 @@
+/**
+ *  Licensed to the Apache Software Foundation (ASF) under one
+ *	or more contributor license agreements.  See the NOTICE file
+ *  distributed with this work for additional information
+ *	regarding copyright ownership.  The ASF licenses this file
+ *  to you under the Apache License, Version 2.0 (the
+ *  "License"); you may not use this file except in compliance
+ *  with the License.  You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing,
+ *  software distributed under the License is distributed on an
+ *  "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ *  KIND, either express or implied.  See the License for the
+ *  specific language governing permissions and limitations
+ *  under the License.
+ */
+package com.googlecode.fitchy.internal;
+
+import static org.hamcrest.CoreMatchers.*;
+import static org.junit.Assert.*;
+
+import java.util.concurrent.Callable;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.springframework.aop.aspectj.annotation.AspectJProxyFactory;
+
+import com.googlecode.fitchy.AspectJFeatureContext;
+import com.googlecode.fitchy.Configuration;
+import com.googlecode.fitchy.FeatureContext;
+
+public class SpringAopObserverTest {
+
+    private final AspectJFeatureChecks checks = new AspectJFeatureChecks();
+    private FeatureContext context;
+    private Callable<StackTraceElement[]> service;
+
+    @Before
+    public void setUp() {
+        context = AspectJFeatureContext.replace(new FeatureContext(Configuration.getDefault()));
+        AspectJProxyFactory factory = new AspectJProxyFactory(new AdvisedFeatureService());
+        factory.addAspect(new AspectJObserver(checks));
+        service = factory.getProxy();
+    }
+
+    @Test
+    public void call_WithDisabledFeature_IsSuppressed() throws Exception {
+        assertThat(service.call(), is(nullValue()));
+    }
+
+    @Test
+    public void call_WithEnabledFeature_ProceedsInAdvice() throws Exception {
+        context.addFeature(AdvisedFeatureService.FEATURE);
+        assertThat(AdvisedFeatureService.isCalledFrom(service.call(), AspectJObserver.class), is(true));
+    }
+
+    @Test
+    public void call_ManyTimes_CachesOneCheck() throws Exception {
+        for(int i = 0; i < 100; i++) {
+            service.call();
+        }
+        context.addFeature(AdvisedFeatureService.FEATURE);
+        assertThat(service.call(), is(notNullValue()));
+        assertThat(checks.size(), is(1));
+    }
+}
@@ -0,0 +1,94 @@
+/**
+ *  Licensed to the Apache Software Foundation (ASF) under one
+ *	or more contributor license agreements.  See the NOTICE file
+ *  distributed with this work for additional information
+ *	regarding copyright ownership.  The ASF licenses this file
+ *  to you under the Apache License, Version 2.0 (the
+ *  "License"); you may not use this file except in compliance
+ *  with the License.  You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing,
+ *  software distributed under the License is distributed on an
+ *  "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ *  KIND, either express or implied.  See the License for the
+ *  specific language governing permissions and limitations
+ *  under the License.
+ */
+package com.googlecode.fitchy.internal;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.URL;
+import java.util.Collections;
+import java.util.List;
+
+import org.aspectj.weaver.loadtime.Aj;
+import org.aspectj.weaver.loadtime.DefaultWeavingContext;
+import org.aspectj.weaver.loadtime.definition.Definition;
+import org.aspectj.weaver.loadtime.definition.DocumentParser;
+import org.aspectj.weaver.tools.WeavingAdaptor;
+
+/**
+ * Loads one class of the test classpath again and weaves it with the aspects of one aop.xml
+ * resource, like the load-time weaving agent does with the selected configuration. The aspects
+ * and their package-private helpers are loaded and woven again as well, the aspect classes
+ * only get their <code>aspectOf()</code> method from the weaver.
+ */
+class WeavingClassLoader extends ClassLoader {
+
+    private static final String ASPECTS = AspectJFeatureChecks.class.getPackage().getName() + ".AspectJ";
+
+    private final String woven;
+    private final Aj weaver;
+
+    WeavingClassLoader(Class<?> woven, final String configuration) {
+        super(woven.getClassLoader());
+        this.woven = woven.getName();
+        this.weaver = new Aj(new DefaultWeavingContext(this) {
+            @Override
+            public List<Definition> getDefinitions(ClassLoader loader, WeavingAdaptor adaptor) {
+                try {
+                    URL resource = getParent().getResource(configuration);
+                    return Collections.singletonList(DocumentParser.parse(resource));
+                } catch(Exception e) {
+                    throw new IllegalStateException("cannot read " + configuration, e);
+                }
+            }
+        });
+    }
+
+    @Override
+    protected synchronized Class<?> loadClass(String name, boolean resolve) throws ClassNotFoundException {
+        Class<?> type = findLoadedClass(name);
+        if(type == null && (name.equals(woven) || name.startsWith(ASPECTS))) {
+            byte[] bytes = weaver.preProcess(name, read(name), this, null);
+            type = defineClass(name, bytes, 0, bytes.length);
+        }
+        return type != null ? type : super.loadClass(name, resolve);
+    }
+
+    private byte[] read(String name) throws ClassNotFoundException {
+        InputStream in = getParent().getResourceAsStream(name.replace('.', '/') + ".class");
+        if(in == null) {
+            throw new ClassNotFoundException(name);
+        }
+        try {
+            ByteArrayOutputStream out = new ByteArrayOutputStream();
+            byte[] buffer = new byte[4096];
+            for(int read = in.read(buffer); read != -1; read = in.read(buffer)) {
+                out.write(buffer, 0, read);
+            }
+            return out.toByteArray();
+        } catch(IOException e) {
+            throw new ClassNotFoundException(name, e);
+        } finally {
+            try {
+                in.close();
+            } catch(IOException ignored) {
+            }
+        }
+    }
+}
@@ -22,7 +22,11 @@ import java.io.IOException;
 import java.io.InputStream;
 import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.Properties;
 
 import com.googlecode.fitchy.exception.StatusNotFoundException;
@@ -153,7 +157,27 @@ public class Configuration {
 		
 	}
 	
+	/**
+	 * The highest amount of statuses that can be combined to a bitmask of type long.
+	 */
+	public static final int MAX_STATUS_COUNT = Long.SIZE;
+
+	/**
+	 * The statuses of this configuration like {@link #getStatusList()} returns them.
+	 *
+	 * @deprecated use {@link #getStatusList()} and {@link #setStatusList(List)}. This field
+	 * is only kept for source compatibility, the lookups of this configuration don't read it
+	 * and assigning it doesn't change the statuses.
+	 */
+	@Deprecated
 	public List<Enum<? extends FeatureStatus>> statusList;
+
+	private List<Enum<? extends FeatureStatus>> statuses;
+
+	private Map<String, FeatureStatus> statusBySystemName;
+	private Map<String, FeatureStatus> statusByName;
+	private Map<FeatureStatus, Integer> indexByStatus;
+	private boolean indexedByOrdinal;
 	
 	public FeatureStatus enabledStatus;
 	public FeatureStatus disabledStatus;
@@ -163,22 +187,22 @@ public class Configuration {
     private Class<? extends FeatureObserver> observerClass;
 	
 	public Configuration() {
-		this.statusList  = new ArrayList<Enum<? extends FeatureStatus>>();
+		setStatusList(new ArrayList<Enum<? extends FeatureStatus>>());
 	}
 
 	public static Configuration getDefault() {
         return Builder.fromStream(Configuration.class.getResourceAsStream("/com/googlecode/fitchy/default-fitchy-configuration.properties")).build();
 	}
 
+	/**
+	 * Returns the status whose {@link FeatureStatus#getSystemName()} equals value.
+	 *
+	 * @param value system name of a status
+	 * @return the {@link FeatureStatus} with this system name
+	 * @throws StatusNotFoundException if no status has this system name
+	 */
 	public FeatureStatus statusOf(String value) {
-		FeatureStatus statusOfValue = null;
-		for(Enum< ? extends FeatureStatus> status : statusList) {
-            FeatureStatus featureStatus = (FeatureStatus)status;
-			if(featureStatus.getSystemName().equals(value)) {
-				statusOfValue = featureStatus;
-			}
-		}
-
+		FeatureStatus statusOfValue = statusBySystemName.get(value);
         if(statusOfValue == null) {
             throw new StatusNotFoundException("status with name '" + value + "' not found.");
         }
@@ -186,31 +210,86 @@ public class Configuration {
 		return statusOfValue;
 	}
 
+	/**
+	 * Returns the status whose enum constant has the name name.
+	 *
+	 * @param name name of an enum constant
+	 * @return the {@link FeatureStatus} or null if no status has this name
+	 */
     public FeatureStatus statusOfName(String name) {
-        FeatureStatus statusOfName = null;
-        for(Enum<? extends FeatureStatus> status : statusList) {
-            if(status.name().equals(name)) {
-                statusOfName = (FeatureStatus) status;
-            }
-        }
-
-        return statusOfName;
+        return statusByName.get(name);
     }
 
+	/**
+	 * Returns the position of status in the status list. This position is also the
+	 * bit of the status in a mask that is created by {@link #maskOf(FeatureStatus)}.
+	 *
+	 * @param status a {@link FeatureStatus}
+	 * @return the position of status or -1 if status isn't part of this configuration
+	 */
+	public int indexOf(FeatureStatus status) {
+		if(indexedByOrdinal && status instanceof Enum) {
+			int ordinal = ((Enum<?>) status).ordinal();
+			return ordinal < statuses.size() && statuses.get(ordinal) == status ? ordinal : -1;
+		}
+		Integer index = indexByStatus.get(status);
+		return index != null ? index : -1;
+	}
+
+	/**
+	 * Returns a bitmask that has only the bit of status set. Masks of several statuses can
+	 * be combined with a bitwise or and are tested with one bitwise and.
+	 *
+	 * @param status a {@link FeatureStatus}
+	 * @return the bitmask of status or 0 if status isn't part of this configuration
+	 */
+	public long maskOf(FeatureStatus status) {
+		int index = indexOf(status);
+		return index < 0 ? 0L : 1L << index;
+	}
+
+	/**
+	 * @return an unmodifiable list of all statuses of this configuration
+	 */
 	public List<Enum<? extends FeatureStatus>> getStatusList() {
-		return statusList;
+		return statuses;
 	}
 
+	/**
+	 * Sets the list of all statuses and compiles the lookup tables that are used by
+	 * {@link #statusOf(String)}, {@link #statusOfName(String)} and {@link #indexOf(FeatureStatus)}.
+	 * If several statuses have the same name the last one is found, like before these tables existed.
+	 * The list is copied, so changing it later doesn't change this configuration.
+	 *
+	 * @param statusList all statuses of this configuration
+	 * @throws IllegalArgumentException if the list has more than {@link #MAX_STATUS_COUNT} statuses
+	 */
 	public void setStatusList(List<Enum<? extends FeatureStatus>> statusList) {
-		this.statusList = statusList;
-		for(Enum<? extends FeatureStatus> status : statusList) {
+		Preconditions.throwIllegalArgumentExceptionIfFalse(statusList.size() <= MAX_STATUS_COUNT, "a configuration supports at most " + MAX_STATUS_COUNT + " statuses");
+		Map<String, FeatureStatus> bySystemName = new HashMap<String, FeatureStatus>();
+		Map<String, FeatureStatus> byName = new HashMap<String, FeatureStatus>();
+		Map<FeatureStatus, Integer> byStatus = new IdentityHashMap<FeatureStatus, Integer>();
+		boolean byOrdinal = true;
+		for(int i = 0; i < statusList.size(); i++) {
+			Enum<? extends FeatureStatus> status = statusList.get(i);
 			FeatureStatus featureStatus = (FeatureStatus)status; 
+			bySystemName.put(featureStatus.getSystemName(), featureStatus);
+			byName.put(status.name(), featureStatus);
+			byStatus.put(featureStatus, i);
+			byOrdinal &= status.ordinal() == i && status.getDeclaringClass() == statusList.get(0).getDeclaringClass();
 			if(featureStatus.isEnabledStatus()) {
 				setEnabledStatus(featureStatus);
 			} else if(featureStatus.isDisabledStatus()) {
 				setDisabledStatus(featureStatus);
 			}
 		}
+
+		this.statuses = Collections.unmodifiableList(new ArrayList<Enum<? extends FeatureStatus>>(statusList));
+		this.statusList = statuses;
+		this.statusBySystemName = bySystemName;
+		this.statusByName = byName;
+		this.indexByStatus = byStatus;
+		this.indexedByOrdinal = byOrdinal;
 	}
 
 	public FeatureStatus getEnabledStatus() {
@@ -24,7 +24,8 @@ package com.googlecode.fitchy;
  */
 public class Feature {
 	private String name;
-	private FeatureStatus status;
+	private volatile FeatureStatus status;
+	private volatile FeatureContext context;
 	
 	public Feature(String name, FeatureStatus status) {
 		this.name   = name;
@@ -43,7 +44,27 @@ public class Feature {
         return status;
     }
 
+    /**
+     * Sets a new {@link FeatureStatus}. If the feature was added to a {@link FeatureContext}
+     * the context is notified about the change, so its {@link FeatureCallSite} instances
+     * are updated.
+     *
+     * @param status the new {@link FeatureStatus}
+     */
     public void setStatus(FeatureStatus status) {
+        FeatureStatus previous = this.status;
         this.status = status;
+        if(context != null && previous != status) {
+            context.featureChanged(this);
+        }
+    }
+
+    /**
+     * Sets the {@link FeatureContext} the feature was added to.
+     *
+     * @param context the owning {@link FeatureContext}
+     */
+    void setContext(FeatureContext context) {
+        this.context = context;
     }
 }
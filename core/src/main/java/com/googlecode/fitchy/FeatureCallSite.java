@@ -0,0 +1,163 @@
+/**
+ *  Licensed to the Apache Software Foundation (ASF) under one
+ *	or more contributor license agreements.  See the NOTICE file
+ *  distributed with this work for additional information
+ *	regarding copyright ownership.  The ASF licenses this file
+ *  to you under the Apache License, Version 2.0 (the
+ *  "License"); you may not use this file except in compliance
+ *  with the License.  You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing,
+ *  software distributed under the License is distributed on an
+ *  "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ *  KIND, either express or implied.  See the License for the
+ *  specific language governing permissions and limitations
+ *  under the License.
+ */
+package com.googlecode.fitchy;
+
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.lang.invoke.MutableCallSite;
+
+/**
+ * A {@link FeatureCallSite} exposes the state of one feature as a constant that is bound
+ * to a {@link MutableCallSite}. The target of the call site is only replaced when the
+ * owning {@link FeatureContext} records a change of the feature that also changes the
+ * result of this call site. So the JIT can treat the result as a constant between two
+ * changes and remove the branch that isn't taken.
+ *
+ * The best results are reached when the handle of {@link #dynamicInvoker()} is stored
+ * in a static final field, because then the JIT can fold the whole call:
+ * <pre>
+ * {@code
+ *  static final MethodHandle NEW_SEARCH = context.getCallSite("new.search").dynamicInvoker();
+ *
+ *  if((boolean) NEW_SEARCH.invokeExact()) {
+ *      ...
+ *  }
+ * }
+ * </pre>
+ * The invoker is guarded by a {@link java.lang.invoke.SwitchPoint} of the context that is
+ * invalidated when the first {@link FeatureScope} of the context is opened. Until then the
+ * guard costs nothing, afterwards the invoker respects the scope of the current thread just
+ * like {@link #isAvailable()}.
+ *
+ * Callers that keep the call site in an instance field, as the proxies of fitchy do, use
+ * {@link #isAvailable()}. It reads the last result from a volatile field, so it is cheap
+ * but the JIT can't fold it like the invoker of a static final field.
+ */
+public final class FeatureCallSite {
+
+	private final FeatureHandle handle;
+	private final FeatureStatus status;
+	private final long statusMask;
+
+	private static final MethodHandle IS_AVAILABLE;
+
+	static {
+		try {
+			IS_AVAILABLE = MethodHandles.lookup().findVirtual(FeatureCallSite.class, "isAvailable", MethodType.methodType(boolean.class));
+		} catch (ReflectiveOperationException e) {
+			throw new ExceptionInInitializerError(e);
+		}
+	}
+
+	private final MutableCallSite callSite;
+	private final MethodHandle invoker;
+
+	private volatile boolean available;
+
+	/**
+	 * Creates a call site that checks whether a feature has one of the statuses of statusMask
+	 * or, if the mask is 0, whether the feature has status. If the status is null as well
+	 * the call site only checks whether the feature exists in context.
+	 *
+	 * @param context the {@link FeatureContext} that holds the feature
+	 * @param featureName name of the feature
+	 * @param status the desired {@link FeatureStatus} or null
+	 * @param statusMask bitmask of the accepted statuses or 0
+	 */
+	FeatureCallSite(FeatureContext context, String featureName, FeatureStatus status, long statusMask) {
+		this.handle = context.getHandle(featureName);
+		this.status = status;
+		this.statusMask = statusMask;
+		this.available = evaluate();
+		this.callSite = new MutableCallSite(MethodHandles.constant(boolean.class, available));
+		this.invoker = context.getScopeGuard().guardWithTest(callSite.dynamicInvoker(), IS_AVAILABLE.bindTo(this));
+	}
+
+	/**
+	 * Returns the result of this call site. In a {@link FeatureScope} the result is taken from
+	 * its pinned {@link FeatureSnapshot} or overrides instead.
+	 *
+	 * @return true if the feature has the status of this call site
+	 */
+	public boolean isAvailable() {
+		ScopedView view = handle.getContext().getScopedView(handle.getName());
+		return view != null ? evaluate(view) : available;
+	}
+
+	/**
+	 * Returns a {@link MethodHandle} of type <code>()boolean</code> that always
+	 * returns the current result of this call site. Once the context opened a scope the
+	 * handle respects the scope of the current thread.
+	 *
+	 * @return the invoker of the underlying {@link MutableCallSite}
+	 */
+	public MethodHandle dynamicInvoker() {
+		return invoker;
+	}
+
+	/**
+	 * @return name of the feature this call site belongs to
+	 */
+	public String getFeatureName() {
+		return handle.getName();
+	}
+
+	/**
+	 * @return the desired {@link FeatureStatus} or null if the call site checks the existence of the feature
+	 */
+	public FeatureStatus getStatus() {
+		return status;
+	}
+
+	/**
+	 * @return the bitmask of the accepted statuses or 0 if the call site checks a single status
+	 */
+	public long getStatusMask() {
+		return statusMask;
+	}
+
+	/**
+	 * Evaluates the feature again and rebinds the call site when the result changed.
+	 * Compiled code that depends on the old result is deoptimized only in this case.
+	 */
+	synchronized void refresh() {
+		boolean current = evaluate();
+		if(current != available) {
+			available = current;
+			callSite.setTarget(MethodHandles.constant(boolean.class, current));
+			MutableCallSite.syncAll(new MutableCallSite[] { callSite });
+		}
+	}
+
+	private boolean evaluate(ScopedView view) {
+		if(statusMask != 0L) {
+			return view.featureHasAnyStatus(handle.getName(), statusMask);
+		}
+		return status == null ? view.hasFeature(handle.getName()) : view.featureHasStatus(handle.getName(), status);
+	}
+
+	private boolean evaluate() {
+		FeatureContext context = handle.getContext();
+		if(statusMask != 0L) {
+			return context.handleHasAnyStatus(handle, statusMask);
+		}
+		return status == null ? context.handleExists(handle) : context.handleHasStatus(handle, status);
+	}
+}
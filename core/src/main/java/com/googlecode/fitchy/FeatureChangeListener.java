@@ -0,0 +1,39 @@
+/**
+ *  Licensed to the Apache Software Foundation (ASF) under one
+ *	or more contributor license agreements.  See the NOTICE file
+ *  distributed with this work for additional information
+ *	regarding copyright ownership.  The ASF licenses this file
+ *  to you under the Apache License, Version 2.0 (the
+ *  "License"); you may not use this file except in compliance
+ *  with the License.  You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing,
+ *  software distributed under the License is distributed on an
+ *  "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ *  KIND, either express or implied.  See the License for the
+ *  specific language governing permissions and limitations
+ *  under the License.
+ */
+package com.googlecode.fitchy;
+
+/**
+ * A listener that is notified when features of a {@link FeatureContext} were added, removed
+ * or changed their {@link FeatureStatus}. It is registered with
+ * {@link FeatureContext#addChangeListener(FeatureChangeListener)} or for single features with
+ * {@link FeatureContext#addChangeListener(FeatureChangeListener, String...)}.
+ *
+ * Listeners are called on the executor of the context, never on the thread that changed the
+ * context. If several changes happen while a listener is busy it is called only once with
+ * all of them.
+ */
+public interface FeatureChangeListener {
+
+	/**
+	 * Is called after the features of changes were published.
+	 *
+	 * @param changes the {@link FeatureChangeSet} with all changes since the last call
+	 */
+	void featuresChanged(FeatureChangeSet changes);
+}
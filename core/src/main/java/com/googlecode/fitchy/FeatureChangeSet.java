@@ -0,0 +1,138 @@
+/**
+ *  Licensed to the Apache Software Foundation (ASF) under one
+ *	or more contributor license agreements.  See the NOTICE file
+ *  distributed with this work for additional information
+ *	regarding copyright ownership.  The ASF licenses this file
+ *  to you under the Apache License, Version 2.0 (the
+ *  "License"); you may not use this file except in compliance
+ *  with the License.  You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing,
+ *  software distributed under the License is distributed on an
+ *  "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ *  KIND, either express or implied.  See the License for the
+ *  specific language governing permissions and limitations
+ *  under the License.
+ */
+package com.googlecode.fitchy;
+
+import java.util.Collection;
+import java.util.Collections;
+import java.util.LinkedHashSet;
+import java.util.Set;
+
+/**
+ * Describes which features a change of a {@link FeatureContext} added, removed or gave another
+ * {@link FeatureStatus}. Features that are not part of a change set kept their state. The
+ * change set also holds the {@link FeatureSnapshot} before and after the change.
+ */
+public final class FeatureChangeSet {
+
+	private final FeatureSnapshot previous;
+	private final FeatureSnapshot current;
+	private final Set<String> added;
+	private final Set<String> removed;
+	private final Set<String> changed;
+
+	FeatureChangeSet(FeatureSnapshot previous, FeatureSnapshot current, Set<String> added, Set<String> removed, Set<String> changed) {
+		this.previous = previous;
+		this.current = current;
+		this.added = Collections.unmodifiableSet(added);
+		this.removed = Collections.unmodifiableSet(removed);
+		this.changed = Collections.unmodifiableSet(changed);
+	}
+
+	/**
+	 * Compares the features names of two snapshots and creates the change set between them.
+	 * Names that are not in names are ignored.
+	 *
+	 * @param previous the {@link FeatureSnapshot} before the change
+	 * @param current the {@link FeatureSnapshot} after the change
+	 * @param names names of all features that might be changed
+	 * @return the {@link FeatureChangeSet} of names
+	 */
+	static FeatureChangeSet between(FeatureSnapshot previous, FeatureSnapshot current, Collection<String> names) {
+		Set<String> added = new LinkedHashSet<String>();
+		Set<String> removed = new LinkedHashSet<String>();
+		Set<String> changed = new LinkedHashSet<String>();
+		for(String name : names) {
+			boolean existed = previous.hasFeature(name);
+			boolean exists = current.hasFeature(name);
+			if(!existed && exists) {
+				added.add(name);
+			} else if(existed && !exists) {
+				removed.add(name);
+			} else if(existed && previous.getStatus(name) != current.getStatus(name)) {
+				changed.add(name);
+			}
+		}
+		return new FeatureChangeSet(previous, current, added, removed, changed);
+	}
+
+	/**
+	 * @return names of all added, removed and changed features
+	 */
+	public Set<String> getAffected() {
+		Set<String> affected = new LinkedHashSet<String>(added);
+		affected.addAll(removed);
+		affected.addAll(changed);
+		return affected;
+	}
+
+	/**
+	 * @return names of the features that didn't exist before the change
+	 */
+	public Set<String> getAdded() {
+		return added;
+	}
+
+	/**
+	 * @return names of the features that don't exist after the change
+	 */
+	public Set<String> getRemoved() {
+		return removed;
+	}
+
+	/**
+	 * @return names of the features that exist before and after the change with another status
+	 */
+	public Set<String> getChanged() {
+		return changed;
+	}
+
+	/**
+	 * @param key name of a feature
+	 * @return true if the feature was added, removed or changed
+	 */
+	public boolean affects(String key) {
+		return added.contains(key) || removed.contains(key) || changed.contains(key);
+	}
+
+	/**
+	 * @return true if the change didn't affect any feature
+	 */
+	public boolean isEmpty() {
+		return added.isEmpty() && removed.isEmpty() && changed.isEmpty();
+	}
+
+	/**
+	 * @return the {@link FeatureSnapshot} before the change
+	 */
+	public FeatureSnapshot getPrevious() {
+		return previous;
+	}
+
+	/**
+	 * @return the {@link FeatureSnapshot} after the change
+	 */
+	public FeatureSnapshot getCurrent() {
+		return current;
+	}
+
+	@Override
+	public String toString() {
+		return "FeatureChangeSet[added=" + added + ", removed=" + removed + ", changed=" + changed + "]";
+	}
+}
@@ -53,6 +53,7 @@ public abstract class FeatureChecker<T> {
 
 	private FeatureContext context;
 	private String featureName;
+	private FeatureCallSite callSite;
 
 
 	public FeatureChecker(FeatureContext storage, String featureName) {
@@ -60,6 +61,18 @@ public abstract class FeatureChecker<T> {
 		this.featureName = featureName;
 	}
 
+    /**
+     * Creates a checker that reads the feature from a {@link FeatureCallSite} instead of
+     * asking the {@link FeatureContext} on every {@link #run()}. Use this constructor
+     * when a checker is created once and run very often.
+     *
+     * @param callSite a {@link FeatureCallSite} taken from {@link FeatureContext#getCallSite(String)}
+     */
+	public FeatureChecker(FeatureCallSite callSite) {
+		this.callSite = callSite;
+		this.featureName = callSite.getFeatureName();
+	}
+
     /**
      * This function is called when the feature is enabledStatus.
      *
@@ -84,7 +97,7 @@ public abstract class FeatureChecker<T> {
      */
 	public T run() {
 		T result = null;
-		if(context.hasFeature(featureName)) {
+		if(callSite != null ? callSite.isAvailable() : context.hasFeature(featureName)) {
 			result = onFeatureEnabled();
 		} else {
 			result = onFeatureDisabled();
@@ -19,24 +19,53 @@
 package com.googlecode.fitchy;
 
 
+import java.io.Closeable;
 import java.io.File;
 import java.io.FileInputStream;
-import java.io.FileNotFoundException;
 import java.io.IOException;
 import java.io.InputStream;
+import java.lang.invoke.SwitchPoint;
 import java.lang.reflect.Constructor;
 import java.net.URISyntaxException;
 import java.net.URL;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
 import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
 import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.Callable;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import java.util.logging.Level;
+import java.util.logging.Logger;
 
 import com.googlecode.fitchy.exception.FeatureAlreadyExistsException;
+import com.googlecode.fitchy.exception.UnableToLoadFeaturesException;
+import com.googlecode.fitchy.internal.BinaryFeatureReader;
+import com.googlecode.fitchy.internal.BinaryFeatureTable;
+import com.googlecode.fitchy.internal.FeatureIndex;
+import com.googlecode.fitchy.internal.FileWatcher;
 import com.googlecode.fitchy.util.Preconditions;
 
 /**
  * {@link FeatureContext} contains all loaded {@link Feature} items of
  * Fitchy and provide methods to query these items.
  *
+ * The features are held in an immutable {@link FeatureSnapshot}. Every change creates a new
+ * snapshot and publishes it with a single volatile write, so a query never locks and never
+ * sees a half applied change. Changes are serialized by a lock that only writers take.
+ *
  * @author Andreas Kaubisch <andreas.kaubisch@gmail.com>
  */
 public class FeatureContext {
@@ -44,15 +73,44 @@ public class FeatureContext {
 	 * {@link Builder} takes an {@link URL} or an {@link InputStream} to build
 	 * a {@link FeatureContext}. There is an optional function with them you can set
 	 * a custom {@link Configuration}.
+	 *
+	 * More sources can be added as layers with {@link #withUrl(URL)} and {@link #withStream(InputStream)},
+	 * e.g. shipped defaults, environment, host and emergency overrides. A feature of a later layer
+	 * replaces the feature with the same name of all earlier layers. The layers are read in parallel
+	 * and merged before the context is filled, so a lookup doesn't depend on the number of layers.
 	 * 
 	 * @author Andreas Kaubisch <andreas.kaubisch@gmail.com>
 	 */
 	public static final class Builder {
 
+		/**
+		 * Default time in milliseconds a watched file must be unchanged before it is reloaded.
+		 */
+		public static final long DEFAULT_RELOAD_DELAY = 500L;
+
 		private Configuration configuration;
 		
-		private URL url;
-		private InputStream is;
+		/**
+		 * A layer of a {@link Builder}, either an {@link URL} or an {@link InputStream}.
+		 */
+		private static final class Source {
+			private final URL url;
+			private final InputStream is;
+
+			private Source(URL url, InputStream is) {
+				this.url = url;
+				this.is = is;
+			}
+
+			@Override
+			public String toString() {
+				return url != null ? url.toString() : "InputStream";
+			}
+		}
+
+		private final List<Source> sources = new ArrayList<Source>();
+		private long reloadDelay = -1L;
+		private boolean lazy;
 
 		
 		private Builder(Configuration configuration) {
@@ -74,18 +132,42 @@ public class FeatureContext {
 		 */
 		public static Builder fromUrl(URL url) {
 			Preconditions.throwIllegalArgumentExceptionIfNull(url, "URL argument is required to create ContextBuilder");
-			Builder builder = create();
-			builder.url = url;
-			
-			return builder;
+			return create().withUrl(url);
 		}
 		
 		public static Builder fromStream(InputStream is) {
 			Preconditions.throwIllegalArgumentExceptionIfNull(is, "InputStream argument is required to create ContextBuilder");
-			Builder builder = create();
-			builder.is = is;
-			
-			return builder;
+			return create().withStream(is);
+		}
+
+		/**
+		 * Adds a resource with features as a new layer. Its features take precedence over the
+		 * features of all sources that were added before. A file that doesn't exist is skipped.
+		 *
+		 * @param url an {@link URL} to a resource with feature configuration
+		 * @return current {@link Builder} instance
+		 * @throws IllegalArgumentException if given url is null
+		 */
+		public Builder withUrl(URL url) {
+			Preconditions.throwIllegalArgumentExceptionIfNull(url, "URL argument is required to create ContextBuilder");
+			sources.add(new Source(url, null));
+
+			return this;
+		}
+
+		/**
+		 * Adds a stream with features as a new layer. Its features take precedence over the
+		 * features of all sources that were added before.
+		 *
+		 * @param is an {@link InputStream} from a resource with feature configurations
+		 * @return current {@link Builder} instance
+		 * @throws IllegalArgumentException if given InputStream is null
+		 */
+		public Builder withStream(InputStream is) {
+			Preconditions.throwIllegalArgumentExceptionIfNull(is, "InputStream argument is required to create ContextBuilder");
+			sources.add(new Source(null, is));
+
+			return this;
 		}
 
 		
@@ -114,54 +196,95 @@ public class FeatureContext {
 			return this;
 		}
 		
-		public FeatureContext build() {
-			FeatureContext context = null;
-			if(url != null) {
-				context = createFromUrl(url);
-			} else if (is != null) {
-				context = createFromStream(is);
-			} else {
-				context = createEmpty();
-			}
-			
-			return context;
+		/**
+		 * Enables the reload of the features whenever a file of the {@link URL} layers changes. It waits
+		 * {@link #DEFAULT_RELOAD_DELAY} milliseconds after the last change, see {@link #withReload(long)}.
+		 *
+		 * @return current {@link Builder} instance
+		 * @throws IllegalArgumentException if the builder wasn't created with {@link #fromUrl(URL)}
+		 */
+		public Builder withReload() {
+			return withReload(DEFAULT_RELOAD_DELAY);
 		}
 
+		/**
+		 * Enables the reload of the features whenever a file of the {@link URL} layers changes. The
+		 * files are watched with a {@link java.nio.file.WatchService} and all layers are read again with
+		 * the configured {@link FeatureReader} on a separate daemon thread once they weren't changed for
+		 * debounceMillis. The context applies only the difference between its features and the merged
+		 * ones, see {@link FeatureContext#replaceFeatures(java.util.Collection)}. If a file can't be read
+		 * the context keeps its features.
+		 *
+		 * Use {@link FeatureContext#stopReload()} to stop watching the file.
+		 *
+		 * @param debounceMillis the time in milliseconds the file must be unchanged before it is read
+		 * @return current {@link Builder} instance
+		 * @throws IllegalArgumentException if the builder wasn't created with {@link #fromUrl(URL)},
+		 * 		   has a stream layer or debounceMillis is negative
+		 */
+		public Builder withReload(long debounceMillis) {
+			Preconditions.throwIllegalArgumentExceptionIfFalse(hasOnlyUrls(), "reload is only supported for a Builder created with fromUrl");
+			Preconditions.throwIllegalArgumentExceptionIfFalse(debounceMillis >= 0, "debounceMillis must not be negative");
+			this.reloadDelay = debounceMillis;
+
+			return this;
+		}
 
-		
 		/**
-		 * Loads a resource with feature configuration from an {@link URL} and stores all
-		 * of this in a new {@link FeatureContext} and returns it.
-		 *  
-		 * @param url an {@link URL} to a resource with feature configuration
-		 * 
-		 * @return a new {@link FeatureContext} with loaded {@link Feature} items
-		 * @throws IllegalArgumentException if given url is null
+		 * Enables the lazy mode. The source must be written by
+		 * {@link com.googlecode.fitchy.internal.BinaryFeatureWriter}. It is mapped into memory, or
+		 * read into a buffer if it isn't a file, but no {@link Feature} is created when the context
+		 * is built. Queries by name read the status from the mapped source. A {@link Feature} is
+		 * only decoded when a handle or call site is taken for it the first time, so memory and
+		 * startup time depend on the features that are used and not on the size of the source. The checksum of the source isn't verified, see
+		 * {@link BinaryFeatureTable#verify()}.
+		 *
+		 * The lazy mode can't be combined with {@link #withReload(long)} or layers.
+		 *
+		 * @return current {@link Builder} instance
+		 * @throws IllegalArgumentException if the builder has neither an {@link URL} nor an {@link InputStream}
 		 */
-		private FeatureContext createFromUrl(URL urlToFeatures) {
-			Preconditions.throwIllegalArgumentExceptionIfNull(urlToFeatures, "URL argument is required to create context");
-			FeatureContext newContext = createEmpty();
-			addFeaturesFromUrl(urlToFeatures, newContext);
-			
-			return newContext;
+		public Builder withLazyLoading() {
+			Preconditions.throwIllegalArgumentExceptionIfFalse(!sources.isEmpty(), "lazy loading requires a Builder created with fromUrl or fromStream");
+			this.lazy = true;
+
+			return this;
 		}
-		
+
 		/**
-		 * Loads a resource with feature configuration from an {@link InputStream} and stores all
-		 * of this in a new {@link FeatureContext} and returns it.
-		 * 
-		 * @param is an {@link InputStream} from a resource with feature configurations
-		 * @return a new {@link FeatureContext} with loaded {@link Feature} items
-		 * @throws an {@link IllegalArgumentException} if given InputStream is null
+		 * Creates the {@link FeatureContext} with the merged features of all layers.
+		 *
+		 * @return the new {@link FeatureContext}
+		 * @throws IllegalArgumentException if lazy loading is combined with reload or layers, or if
+		 *         reload is enabled and a stream layer was added
+		 * @throws UnableToLoadFeaturesException if the source of a lazy context can't be read
 		 */
-		private FeatureContext createFromStream(InputStream is) {
-			Preconditions.throwIllegalArgumentExceptionIfNull(is, "InputStream argument is required to create context");
-			FeatureContext newContext = createEmpty();
-			fillStoreWithFeatures(newContext, is);
+		public FeatureContext build() {
+			FeatureContext context = createEmpty();
+			if(lazy) {
+				Preconditions.throwIllegalArgumentExceptionIfFalse(reloadDelay < 0, "lazy loading can't be combined with reload");
+				Preconditions.throwIllegalArgumentExceptionIfFalse(sources.size() == 1, "lazy loading can't be combined with layers");
+				context.setCatalog(openCatalog(sources.get(0)));
+			} else if(!sources.isEmpty()) {
+				Preconditions.throwIllegalArgumentExceptionIfFalse(reloadDelay < 0 || hasOnlyUrls(), "reload is only supported for URL layers");
+				context.addFeatures(loadLayers(configuration, sources, false));
+				if(reloadDelay >= 0) {
+					startReload(context, reloadDelay);
+				}
+			}
 			
-			return newContext;
+			return context;
 		}
-		
+
+		private boolean hasOnlyUrls() {
+			for(Source source : sources) {
+				if(source.url == null) {
+					return false;
+				}
+			}
+			return !sources.isEmpty();
+		}
+
 		/**
 		 * Creates an empty new instance of {@link FeatureContext).
 		 * 
@@ -172,63 +295,197 @@ public class FeatureContext {
 		}
 
 		/**
-		 * Add all features from url resource to existing {@link FeatureContext}.
-		 * This overrides existing {@link Feature} added to storage.
-		 * 
-		 * @param url an {@link URL} to a resource that contains features
-		 * @param context a {@link FeatureContext} that holds all features
+		 * Holds the pool that reads the layers of all builds and reloads, which is created on
+		 * first use. Its worker threads are daemon threads and end when they are idle.
 		 */
-		private void addFeaturesFromUrl(URL url, FeatureContext context) {
-			if(url != null) {
-				try {
-					File file = new File(url.toURI());
-					if(file.exists() && file.canRead()) {
-						fillStoreWithFeatures(context, new FileInputStream(file));
+		private static final class LayerPool {
+			private static final ForkJoinPool INSTANCE = new ForkJoinPool(Runtime.getRuntime().availableProcessors());
+		}
+
+		/**
+		 * Reads all layers in parallel on a shared {@link ForkJoinPool} and merges them in their
+		 * order, so a feature of a later layer replaces a feature with the same name of an earlier
+		 * layer.
+		 *
+		 * @param strict if false a file that doesn't exist is skipped and a layer that can't be read
+		 *        completely adds the features read so far. if true both throw an exception.
+		 * @throws UnableToLoadFeaturesException if strict and a layer can't be read
+		 */
+		private static List<Feature> loadLayers(final Configuration config, List<Source> sources, final boolean strict) {
+			List<List<Feature>> layers = new ArrayList<List<Feature>>();
+			if(sources.size() == 1) {
+				layers.add(readLayer(config, sources.get(0), strict));
+			} else {
+				List<ForkJoinTask<List<Feature>>> tasks = new ArrayList<ForkJoinTask<List<Feature>>>();
+				for(final Source source : sources) {
+					tasks.add(LayerPool.INSTANCE.submit(new Callable<List<Feature>>() {
+						public List<Feature> call() {
+							return readLayer(config, source, strict);
+						}
+					}));
+				}
+				for(ForkJoinTask<List<Feature>> task : tasks) {
+					layers.add(task.join());
+				}
+			}
+
+			Map<String, Feature> merged = new LinkedHashMap<String, Feature>();
+			for(List<Feature> layer : layers) {
+				for(Feature feature : layer) {
+					merged.put(feature.getName(), feature);
+				}
+			}
+			return new ArrayList<Feature>(merged.values());
+		}
+
+		private static List<Feature> readLayer(Configuration config, Source source, boolean strict) {
+			List<Feature> features = new ArrayList<Feature>();
+			try {
+				InputStream in = source.is;
+				if(source.url != null) {
+					File file = new File(source.url.toURI());
+					if(!strict && !(file.exists() && file.canRead())) {
+						return features;
 					}
-				} catch (FileNotFoundException e) {
-					e.printStackTrace();
+					in = new FileInputStream(file);
+				}
+				readFeatures(config, in, features);
+			} catch (Exception e) {
+				if(strict) {
+					throw new UnableToLoadFeaturesException("unable to read features from " + source, e);
+				}
+				LOG.log(Level.WARNING, "unable to read features from " + source + ", layer is skipped", e);
+			}
+			return features;
+		}
+
+		/**
+		 * Opens the source of a lazy context. A file is mapped, a stream is read into a buffer.
+		 */
+		private BinaryFeatureTable openCatalog(Source source) {
+			try {
+				if(source.url != null) {
+					return BinaryFeatureTable.map(new File(source.url.toURI()), configuration);
+				}
+				try {
+					return BinaryFeatureTable.of(BinaryFeatureReader.toBuffer(source.is), configuration);
+				} finally {
+					source.is.close();
+				}
+			} catch (Exception e) {
+				throw new UnableToLoadFeaturesException("unable to open features for lazy loading", e);
+			}
+		}
+
+		/**
+		 * Starts a {@link FileWatcher} that replaces the features of context whenever a file
+		 * of the layers changed.
+		 */
+		private void startReload(final FeatureContext context, long debounceMillis) {
+			List<Path> files = new ArrayList<Path>();
+			for(Source source : sources) {
+				try {
+					files.add(new File(source.url.toURI()).toPath());
 				} catch (URISyntaxException e) {
-					e.printStackTrace();
+					throw new IllegalArgumentException("reload requires an URL of a file", e);
+				} catch (IllegalArgumentException e) {
+					throw new IllegalArgumentException("reload requires an URL of a file", e);
 				}
-			}		
+			}
+
+			final List<Source> layers = new ArrayList<Source>(sources);
+			try {
+				FileWatcher watcher = new FileWatcher(files, debounceMillis, new Runnable() {
+					public void run() {
+						reload(context, layers);
+					}
+				});
+				context.setReloader(watcher);
+				watcher.start();
+			} catch (IOException e) {
+				throw new UnableToLoadFeaturesException("unable to watch " + files, e);
+			}
 		}
 
 		/**
-		 * Retrieves current options and the {@link FeatureReader} class that is set to this options.
-		 * Create an instance of this {@link FeatureReader} and loads all Features from File and put them
-		 * into {@link FeatureContext}.
-		 * 
-		 * @param context an instance of {@link FeatureContext}
-		 * @param is {@link InputStream} of a container with features
-		 * @throws FileNotFoundException is thrown if {@link File} is not found
+		 * Reads all layers again and replaces the features of context with them. Nothing is
+		 * replaced if a file can't be read completely.
+		 */
+		private static void reload(FeatureContext context, List<Source> layers) {
+			context.replaceFeatures(loadLayers(context.getConfig(), layers, true));
+		}
+
+		/**
+		 * Reads features with the {@link FeatureReader} of option from is into features until the
+		 * end of is or the first error. The reader is closed afterwards. A name that is read twice
+		 * keeps its position but takes the later feature, just like {@link java.util.Properties}
+		 * keeps the last value of a repeated key.
+		 *
+		 * @throws Exception if the reader can't be created or fails to read
 		 */
-		private void fillStoreWithFeatures(FeatureContext context, InputStream is) {
-			Configuration option = context.getConfig();
+		private static void readFeatures(Configuration option, InputStream is, List<Feature> features) throws Exception {
 			FeatureReader reader = null;
 			try {
 				Constructor<? extends FeatureReader> constructor = option.getReaderClass().getConstructor(InputStream.class, Configuration.class);
 				reader = constructor.newInstance(is, option);
-				
+
+				Map<String, Integer> positions = new HashMap<String, Integer>();
 				Feature feature = null;
 				while((feature = reader.read()) != null) {
-					context.addFeature(feature);
+					Integer position = positions.put(feature.getName(), features.size());
+					if(position != null) {
+						positions.put(feature.getName(), position);
+						features.set(position, feature);
+					} else {
+						features.add(feature);
+					}
 				}
-			} catch (Exception e) {
-				e.printStackTrace();
 			} finally {
 				if(reader != null) {
 					try {
 						reader.close();
 					} catch (IOException e) {
-						e.printStackTrace();
+						LOG.log(Level.WARNING, "unable to close feature reader", e);
 					}
+				} else {
+					is.close();
 				}
 			}
 		}
 	}
 	
-	private Map<String, Feature> featureMap;
+	private static final Logger LOG = Logger.getLogger(FeatureContext.class.getName());
+
+	private volatile FeatureSnapshot snapshot;
+	private final Object writeLock = new Object();
+	private volatile Closeable reloader;
+	private final FeatureListeners listeners = new FeatureListeners();
+	private final ThreadLocal<ScopedView> scopedView = new ThreadLocal<ScopedView>();
+	/**
+	 * Is invalidated when the first {@link FeatureScope} of this context is opened. Until
+	 * then no check has to read {@link #scopedView}.
+	 */
+	private final SwitchPoint scopeGuard = new SwitchPoint();
 	private Configuration config;
+	private final ConcurrentMap<String, List<FeatureCallSite>> callSites;
+	private final FeatureIndex index;
+
+	/**
+	 * Code of an existing feature without status in {@link #index}.
+	 */
+	private static final int NO_STATUS = 1;
+
+	/**
+	 * Code of an existing feature whose status isn't part of the configuration. These
+	 * features are compared with the {@link Feature} object.
+	 */
+	private static final int UNINDEXED_STATUS = 2;
+
+	/**
+	 * Code of the first status of the configuration, the following statuses use their
+	 * {@link Configuration#indexOf(FeatureStatus)}.
+	 */
+	private static final int FIRST_STATUS = 3;
 
     /**
      * Initializes a new {@link FeatureContext} with given {@link Configuration}
@@ -236,7 +493,9 @@ public class FeatureContext {
      * @param config current {@link Configuration} instance
      */
 	public FeatureContext(Configuration config) {
-		featureMap = new HashMap<String, Feature>();
+		snapshot = FeatureSnapshot.empty(config);
+		callSites = new ConcurrentHashMap<String, List<FeatureCallSite>>();
+		index = new FeatureIndex();
 		this.config = config;
 	}
 
@@ -256,12 +515,9 @@ public class FeatureContext {
         if(key == null || "".equals(key.trim())) {
             throw new IllegalArgumentException("key argument must be a value");
         }
-        if(hasFeature(key)) {
-            throw new FeatureAlreadyExistsException("feature with name " + key +" already exists.");
-        }
 
 		Feature feature = new Feature(key, config.enabledStatus);
-        featureMap.put(key, feature);
+		publish(Collections.singletonList(feature));
         return feature;
 	}
 
@@ -279,15 +535,170 @@ public class FeatureContext {
         if(feature == null) {
             throw new IllegalArgumentException("feature argument must be an instance");
         }
-        if(hasFeature(feature.getName())) {
-            throw new FeatureAlreadyExistsException("feature with name " + feature.getName() + " already exists.");
-        }
-
-		featureMap.put(feature.getName(), feature);
+		publish(Collections.singletonList(feature));
 
         return feature;
 	}
 
+    /**
+     * Adds all passed {@link Feature} items to context and publishes them at once. Either all
+     * features are added or, if one of them already exists, none of them.
+     * If the required attribute 'features' is null or contains null the function throws an
+     * {@link IllegalArgumentException}.
+     *
+     * @param features new {@link Feature} items that need to be added to context
+     * @throws FeatureAlreadyExistsException is thrown when a feature already exists in context
+     *         or a name is passed twice
+     */
+	public void addFeatures(Collection<? extends Feature> features) {
+		Preconditions.throwIllegalArgumentExceptionIfNull(features, "features argument must be an instance");
+		for(Feature feature : features) {
+			Preconditions.throwIllegalArgumentExceptionIfNull(feature, "features argument must not contain null");
+		}
+		publish(features);
+	}
+
+	/**
+	 * Publishes a new snapshot that contains the added features, stores their codes in the
+	 * index at once and updates the {@link FeatureCallSite} instances of these features.
+	 */
+	private void publish(Collection<? extends Feature> features) {
+		synchronized(writeLock) {
+			FeatureSnapshot current = snapshot;
+			Map<String, Feature> added = new HashMap<String, Feature>();
+			for(Feature feature : features) {
+				if(current.hasFeature(feature.getName()) || added.put(feature.getName(), feature) != null) {
+					throw new FeatureAlreadyExistsException("feature with name " + feature.getName() + " already exists.");
+				}
+			}
+			for(Feature feature : features) {
+				feature.setContext(this);
+			}
+			FeatureSnapshot next = current.with(features);
+			snapshot = next;
+			int[] ids = new int[added.size()];
+			int[] codes = new int[added.size()];
+			int i = 0;
+			for(String name : added.keySet()) {
+				ids[i] = index.idOf(name);
+				codes[i++] = statusCode(next.getStatus(name));
+			}
+			index.update(ids, codes);
+			refreshCallSites(added.keySet());
+			if(!listeners.isEmpty()) {
+				listeners.publish(FeatureChangeSet.between(current, next, added.keySet()));
+			}
+		}
+	}
+
+    /**
+     * Replaces all features of this context with the passed {@link Feature} items. The passed
+     * features are compared with the current ones and only the difference is applied: features
+     * that aren't passed are removed, new features are added and features with another status
+     * are replaced. A feature that keeps its status also keeps its current {@link Feature} object.
+     *
+     * The difference is published at once, so a query sees either the previous features or all
+     * of the new ones. Only the {@link FeatureCallSite} instances of affected features are
+     * evaluated again.
+     * If the required attribute 'features' is null or contains null the function throws an
+     * {@link IllegalArgumentException}.
+     *
+     * @param features the new {@link Feature} items of this context
+     * @return the {@link FeatureChangeSet} that describes the applied difference
+     * @throws FeatureAlreadyExistsException is thrown when a name is passed twice
+     */
+	public FeatureChangeSet replaceFeatures(Collection<? extends Feature> features) {
+		Preconditions.throwIllegalArgumentExceptionIfNull(features, "features argument must be an instance");
+		Map<String, Feature> replaced = new LinkedHashMap<String, Feature>();
+		for(Feature feature : features) {
+			Preconditions.throwIllegalArgumentExceptionIfNull(feature, "features argument must not contain null");
+			if(replaced.put(feature.getName(), feature) != null) {
+				throw new FeatureAlreadyExistsException("feature with name " + feature.getName() + " already exists.");
+			}
+		}
+
+		synchronized(writeLock) {
+			FeatureSnapshot previous = snapshot;
+			Set<String> added = new LinkedHashSet<String>();
+			Set<String> removed = new LinkedHashSet<String>();
+			Set<String> changed = new LinkedHashSet<String>();
+			List<Feature> updated = new ArrayList<Feature>();
+			for(Feature feature : replaced.values()) {
+				String name = feature.getName();
+				if(!previous.hasFeature(name)) {
+					added.add(name);
+					updated.add(feature);
+				} else if(previous.getStatus(name) != feature.getStatus()) {
+					changed.add(name);
+					updated.add(feature);
+				} else if(previous.isUnloaded(name)) {
+					// unchanged but not loaded from the catalog yet
+					updated.add(feature);
+				}
+			}
+			for(String name : previous.getFeatureNames()) {
+				if(!replaced.containsKey(name)) {
+					removed.add(name);
+				}
+			}
+			if(updated.isEmpty() && removed.isEmpty()) {
+				return new FeatureChangeSet(previous, previous, added, removed, changed);
+			}
+
+			for(Feature feature : updated) {
+				feature.setContext(this);
+			}
+			FeatureSnapshot next = previous.detach().apply(updated, removed);
+			snapshot = next;
+			FeatureChangeSet changeSet = new FeatureChangeSet(previous, next, added, removed, changed);
+			applyToIndex(changeSet);
+			listeners.publish(changeSet);
+			return changeSet;
+		}
+	}
+
+	/**
+	 * Stores the codes of all features of changeSet in the index at once and evaluates their
+	 * {@link FeatureCallSite} instances again. The ids of removed features are released unless a
+	 * {@link FeatureHandle} holds them.
+	 */
+	private void applyToIndex(FeatureChangeSet changeSet) {
+		FeatureSnapshot next = changeSet.getCurrent();
+		int count = changeSet.getAdded().size() + changeSet.getRemoved().size() + changeSet.getChanged().size();
+		int[] ids = new int[count];
+		int[] codes = new int[count];
+		int i = 0;
+		for(String name : changeSet.getRemoved()) {
+			ids[i] = index.idOf(name);
+			codes[i++] = FeatureIndex.EMPTY;
+		}
+		for(String name : changeSet.getAdded()) {
+			ids[i] = index.idOf(name);
+			codes[i++] = statusCode(next.getStatus(name));
+		}
+		for(String name : changeSet.getChanged()) {
+			ids[i] = index.idOf(name);
+			codes[i++] = statusCode(next.getStatus(name));
+		}
+		index.update(ids, codes);
+		index.release(changeSet.getRemoved());
+
+		refreshCallSites(changeSet.getRemoved());
+		refreshCallSites(changeSet.getAdded());
+		refreshCallSites(changeSet.getChanged());
+	}
+
+	private void refreshCallSites(Set<String> names) {
+		for(String name : names) {
+			List<FeatureCallSite> sites = callSites.get(name);
+			if(sites != null) {
+				for(FeatureCallSite site : sites) {
+					site.refresh();
+				}
+			}
+		}
+	}
+
     /**
      * Checks whether a {@link Feature} with a name equals the key argument is found in context.
      * If it exists in context it returns true otherwise it returns false.
@@ -297,7 +708,11 @@ public class FeatureContext {
      * @return returns boolean whether feature with name was found in context
      */
 	public boolean hasFeature(String key) {
-		return key != null && !"".equals(key) && featureMap.get(key) != null;
+		if(key == null || "".equals(key)) {
+			return false;
+		}
+		ScopedView view = getScopedView(key);
+		return view != null ? view.hasFeature(key) : snapshot.hasFeature(key);
 	}
 
     /**
@@ -316,28 +731,456 @@ public class FeatureContext {
             throw new IllegalArgumentException("key argument is required");
         }
 
-        if(hasFeature(key)) {
-			return featureMap.get(key).getStatus() == status;
+		ScopedView view = getScopedView(key);
+		return view != null ? view.featureHasStatus(key, status) : snapshot.featureHasStatus(key, status);
+	}
+
+    /**
+     * Resolves the name of a feature to a {@link FeatureHandle}. The handle can be kept by
+     * the caller and used for {@link FeatureHandle#exists()} and
+     * {@link FeatureHandle#hasStatus(FeatureStatus)}, which don't need to lookup the
+     * name again. A handle can be taken before the feature is added to context.
+     *
+     * @param key name of the feature
+     * @return the {@link FeatureHandle} of the feature
+     * @throws IllegalArgumentException if key is null or empty
+     */
+	public FeatureHandle getHandle(String key) {
+		if(key == null || "".equals(key)) {
+            throw new IllegalArgumentException("key argument is required");
+        }
+		int id = index.retain(key);
+		load(key, id);
+		return new FeatureHandle(this, key, id);
+	}
+
+    /**
+     * Checks like {@link #hasFeature(String)} whether the feature of handle is found in context.
+     *
+     * @param handle a {@link FeatureHandle} of this context
+     * @return returns boolean whether feature was found in context
+     * @throws IllegalArgumentException if handle is null or belongs to another context
+     */
+	boolean handleExists(FeatureHandle handle) {
+		return index.get(idOf(handle)) != FeatureIndex.EMPTY;
+	}
+
+    /**
+     * Checks like {@link #featureHasStatus(String, FeatureStatus)} whether the feature of handle
+     * has the desired {@link FeatureStatus}.
+     *
+     * @param handle a {@link FeatureHandle} of this context
+     * @param status a desired {@link FeatureStatus} that the feature must have
+     * @return returns boolean whether this feature has the status or not
+     * @throws IllegalArgumentException if handle is null or belongs to another context
+     */
+	boolean handleHasStatus(FeatureHandle handle, FeatureStatus status) {
+		int code = index.get(idOf(handle));
+		if(code == UNINDEXED_STATUS) {
+			return snapshot.featureHasStatus(handle.getName(), status);
+		}
+		return code != FeatureIndex.EMPTY && code == statusCode(status);
+	}
+
+    /**
+     * Checks whether the feature has one of the statuses of a bitmask that was created
+     * with {@link Configuration#maskOf(FeatureStatus)}. A status that isn't part of the
+     * configuration has no bit, so a feature with such a status never matches, even if
+     * {@link #featureHasStatus(String, FeatureStatus)} is true for it. Use
+     * {@link #featureHasStatus(String, FeatureStatus)} to test a single status of another enum.
+     *
+     * @param key name of the feature
+     * @param statusMask combined bitmask of all accepted statuses
+     * @return returns boolean whether this feature has one of the statuses or not
+     */
+	public boolean featureHasAnyStatus(String key, long statusMask) {
+		if(key == null || "".equals(key)) {
+            throw new IllegalArgumentException("key argument is required");
+        }
+		ScopedView view = getScopedView(key);
+		return view != null ? view.featureHasAnyStatus(key, statusMask) : snapshot.featureHasAnyStatus(key, statusMask);
+	}
+
+    /**
+     * Checks like {@link #featureHasAnyStatus(String, long)} with a single bitmask test whether the
+     * feature of handle has one of the accepted statuses.
+     *
+     * @param handle a {@link FeatureHandle} of this context
+     * @param statusMask combined bitmask of all accepted statuses
+     * @return returns boolean whether this feature has one of the statuses or not
+     * @throws IllegalArgumentException if handle is null or belongs to another context
+     */
+	boolean handleHasAnyStatus(FeatureHandle handle, long statusMask) {
+		int code = index.get(idOf(handle));
+		return code >= FIRST_STATUS && (statusMask & (1L << (code - FIRST_STATUS))) != 0;
+	}
+
+	private int idOf(FeatureHandle handle) {
+		if(handle == null || handle.getContext() != this) {
+			throw new IllegalArgumentException("handle of this context is required");
 		}
-		
-		return false;
+		return handle.getId();
+	}
+
+	private int statusCode(FeatureStatus status) {
+		if(status == null) {
+			return NO_STATUS;
+		}
+		int statusIndex = config.indexOf(status);
+		return statusIndex < 0 ? UNINDEXED_STATUS : FIRST_STATUS + statusIndex;
 	}
 
     /**
      * Clears the context.
      */
 	public void clear() {
-		featureMap.clear();
+		synchronized(writeLock) {
+			FeatureSnapshot previous = snapshot;
+			FeatureSnapshot next = FeatureSnapshot.empty(config);
+			snapshot = next;
+			index.clear();
+			index.release(previous.getFeatureNames());
+			refreshAllCallSites();
+			if(!listeners.isEmpty()) {
+				listeners.publish(FeatureChangeSet.between(previous, next, previous.getFeatureNames()));
+			}
+		}
+	}
+
+    /**
+     * Registers a {@link FeatureChangeListener} that is notified about all changes of this
+     * context. The listener is called asynchronously on the executor of this context, see
+     * {@link #setListenerExecutor(Executor)}. Changes that happen while the listener is busy
+     * are merged into a single call.
+     *
+     * @param listener the {@link FeatureChangeListener} that needs to be registered
+     * @throws IllegalArgumentException if listener is null
+     */
+	public void addChangeListener(FeatureChangeListener listener) {
+		Preconditions.throwIllegalArgumentExceptionIfNull(listener, "FeatureChangeListener argument is required.");
+		listeners.add(listener, null);
+	}
+
+    /**
+     * Works like {@link #addChangeListener(FeatureChangeListener)} but the listener is only
+     * notified about changes of the passed features. The {@link FeatureChangeSet} it gets
+     * contains only these features.
+     *
+     * @param listener the {@link FeatureChangeListener} that needs to be registered
+     * @param featureNames names of the features the listener is interested in
+     * @throws IllegalArgumentException if listener is null or no feature name is passed
+     */
+	public void addChangeListener(FeatureChangeListener listener, String... featureNames) {
+		Preconditions.throwIllegalArgumentExceptionIfNull(listener, "FeatureChangeListener argument is required.");
+		Preconditions.throwIllegalArgumentExceptionIfFalse(featureNames != null && featureNames.length > 0, "feature names are required.");
+		listeners.add(listener, new HashSet<String>(Arrays.asList(featureNames)));
+	}
+
+    /**
+     * Removes all registrations of listener. Changes that are already queued aren't
+     * delivered to the listener anymore.
+     *
+     * @param listener a registered {@link FeatureChangeListener}
+     */
+	public void removeChangeListener(FeatureChangeListener listener) {
+		listeners.remove(listener);
+	}
+
+    /**
+     * Sets the {@link Executor} that calls the {@link FeatureChangeListener} instances of this
+     * context. Without an executor a shared pool of daemon threads is used. The executor
+     * shouldn't run tasks on the calling thread, because it is called while a change is published.
+     *
+     * @param executor the {@link Executor} of the listeners or null for the shared pool
+     */
+	public void setListenerExecutor(Executor executor) {
+		listeners.setExecutor(executor);
+	}
+
+	private void refreshAllCallSites() {
+		for(List<FeatureCallSite> sites : callSites.values()) {
+			for(FeatureCallSite site : sites) {
+				site.refresh();
+			}
+		}
+	}
+
+    /**
+     * Stops the reload of this context that was enabled with {@link Builder#withReload()}.
+     * The context keeps the features it has. Nothing happens if the reload isn't enabled.
+     */
+	public void stopReload() {
+		Closeable current = reloader;
+		reloader = null;
+		if(current != null) {
+			try {
+				current.close();
+			} catch (IOException e) {
+				LOG.log(Level.WARNING, "unable to stop reloading features", e);
+			}
+		}
+	}
+
+	void setReloader(Closeable reloader) {
+		this.reloader = reloader;
+	}
+
+    /**
+     * Pins the current {@link FeatureSnapshot} of this context to the current thread until the
+     * returned {@link FeatureScope} is closed. All checks on this thread read the pinned snapshot
+     * meanwhile, so they give the same answers even if the context is changed or reloaded. If
+     * the thread is already in a scope of this context that pinned a snapshot the new scope
+     * keeps it. Overrides of an outer scope stay active.
+     *
+     * @return the new {@link FeatureScope}
+     */
+	public FeatureScope pin() {
+		ScopedView outer = scopedView.get();
+		return pin(outer != null && outer.getPinned() != null ? outer.getPinned() : snapshot);
+	}
+
+    /**
+     * Works like {@link #pin()} but pins the passed snapshot. Use this function to continue a
+     * unit of work on another thread with the snapshot of {@link FeatureScope#getSnapshot()}.
+     *
+     * @param pinned a {@link FeatureSnapshot} of this context
+     * @return the new {@link FeatureScope}
+     * @throws IllegalArgumentException if pinned is null
+     */
+	public FeatureScope pin(FeatureSnapshot pinned) {
+		Preconditions.throwIllegalArgumentExceptionIfNull(pinned, "FeatureSnapshot argument is required.");
+		ScopedView outer = scopedView.get();
+		return open(outer != null ? outer.pin(pinned) : ScopedView.pinned(config, pinned), outer);
+	}
+
+    /**
+     * Applies overrides to the current thread until the returned {@link FeatureScope} is closed.
+     * All checks of an overridden feature on this thread see the status of the overrides, the
+     * context itself and other threads aren't affected. Features without override are read as
+     * usual. Overrides of an outer scope stay active unless they are overridden again.
+     *
+     * Checks of this context don't read the view of the current thread from its
+     * {@link ThreadLocal} until the first scope of this context is opened, so a context
+     * without scopes doesn't pay for them. Scopes on other threads don't affect the checks of
+     * this thread.
+     *
+     * @param overrides the {@link FeatureOverrides} of the scope
+     * @return the new {@link FeatureScope}
+     * @throws IllegalArgumentException if overrides is null
+     */
+	public FeatureScope override(FeatureOverrides overrides) {
+		Preconditions.throwIllegalArgumentExceptionIfNull(overrides, "FeatureOverrides argument is required.");
+		ScopedView outer = scopedView.get();
+		return open(outer != null ? outer.with(overrides) : ScopedView.overridden(config, overrides), outer);
+	}
+
+	private FeatureScope open(ScopedView view, ScopedView outer) {
+		if(!scopeGuard.hasBeenInvalidated()) {
+			SwitchPoint.invalidateAll(new SwitchPoint[] { scopeGuard });
+		}
+		scopedView.set(view);
+		return new FeatureScope(this, view, outer);
+	}
+
+	/**
+	 * Ends the scope with view and activates the view of its outer scope again. The entry of
+	 * the thread in {@link #scopedView} is removed when the outermost scope is closed, so pooled
+	 * threads don't keep it.
+	 *
+	 * @throws IllegalStateException if view isn't the view of the innermost open scope
+	 */
+	void restore(ScopedView view, ScopedView outer) {
+		if(scopedView.get() != view) {
+			throw new IllegalStateException("scopes must be closed in the reverse order they were opened");
+		}
+		if(outer == null) {
+			scopedView.remove();
+		} else {
+			scopedView.set(outer);
+		}
+	}
+
+    /**
+     * @return the {@link SwitchPoint} that is invalidated when the first scope of this context is opened
+     */
+	SwitchPoint getScopeGuard() {
+		return scopeGuard;
+	}
+
+    /**
+     * Returns the view of the open scopes of the current thread if it covers the feature.
+     *
+     * @param key name of the feature
+     * @return the {@link ScopedView} of the current thread or null
+     */
+	ScopedView getScopedView(String key) {
+		if(!scopeGuard.hasBeenInvalidated()) {
+			return null;
+		}
+		ScopedView view = scopedView.get();
+		return view != null && view.covers(key) ? view : null;
+	}
+
+    /**
+     * Returns the current {@link FeatureSnapshot} of this context. The snapshot doesn't change,
+     * so all queries on it see the same state even if the context is changed meanwhile.
+     *
+     * @return the current {@link FeatureSnapshot}
+     */
+	public FeatureSnapshot getSnapshot() {
+		return snapshot;
+	}
+
+    /**
+     * Returns a {@link FeatureCallSite} that checks whether a {@link Feature} with name key
+     * exists in context, like {@link #hasFeature(String)} does. The call site is created once
+     * per feature and is updated whenever this context records a change of the feature.
+     *
+     * @param key name of the feature
+     * @return the {@link FeatureCallSite} of the feature
+     * @throws IllegalArgumentException if key is null or empty
+     */
+	public FeatureCallSite getCallSite(String key) {
+		return getCallSite(key, null, 0L);
+	}
+
+    /**
+     * Returns a {@link FeatureCallSite} that checks whether a {@link Feature} has the
+     * desired {@link FeatureStatus}, like {@link #featureHasStatus(String, FeatureStatus)} does.
+     * If the status is null the call site checks only whether the feature exists.
+     *
+     * @param key name of the feature
+     * @param status the desired {@link FeatureStatus} or null
+     * @return the {@link FeatureCallSite} of the feature and status
+     * @throws IllegalArgumentException if key is null or empty
+     */
+	public FeatureCallSite getCallSite(String key, FeatureStatus status) {
+		return getCallSite(key, status, 0L);
+	}
+
+    /**
+     * Returns a {@link FeatureCallSite} that checks like {@link FeatureHandle#hasAnyStatus(long)}
+     * whether a {@link Feature} has one of the statuses of a bitmask.
+     *
+     * @param key name of the feature
+     * @param statusMask combined bitmask of all accepted statuses, see {@link Configuration#maskOf(FeatureStatus)}
+     * @return the {@link FeatureCallSite} of the feature and statuses
+     * @throws IllegalArgumentException if key is null or empty or the mask is 0
+     */
+	public FeatureCallSite getCallSite(String key, long statusMask) {
+		Preconditions.throwIllegalArgumentExceptionIfFalse(statusMask != 0L, "statusMask must contain a status");
+		return getCallSite(key, null, statusMask);
+	}
+
+	private FeatureCallSite getCallSite(String key, FeatureStatus status, long statusMask) {
+		if(key == null || "".equals(key)) {
+            throw new IllegalArgumentException("key argument is required");
+        }
+
+		List<FeatureCallSite> sites = callSites.get(key);
+		if(sites == null) {
+			callSites.putIfAbsent(key, new CopyOnWriteArrayList<FeatureCallSite>());
+			sites = callSites.get(key);
+		}
+
+		FeatureCallSite site = findCallSite(sites, status, statusMask);
+		if(site == null) {
+			synchronized(sites) {
+				site = findCallSite(sites, status, statusMask);
+				if(site == null) {
+					site = new FeatureCallSite(this, key, status, statusMask);
+					sites.add(site);
+					// a change published after the site was evaluated but before it was added isn't refreshed by the writer
+					site.refresh();
+				}
+			}
+		}
+		return site;
+	}
+
+	private FeatureCallSite findCallSite(List<FeatureCallSite> sites, FeatureStatus status, long statusMask) {
+		for(FeatureCallSite site : sites) {
+			if(site.getStatus() == status && site.getStatusMask() == statusMask) {
+				return site;
+			}
+		}
+		return null;
+	}
+
+    /**
+     * Is called whenever a {@link Feature} of this context changed its status. A new snapshot
+     * with the status is published, the status is stored in the index and all
+     * {@link FeatureCallSite} instances of that feature are evaluated again.
+     *
+     * @param feature the changed {@link Feature}
+     */
+	void featureChanged(Feature feature) {
+		synchronized(writeLock) {
+			FeatureSnapshot current = snapshot;
+			if(current.getFeature(feature.getName()) != feature) {
+				return;
+			}
+			FeatureSnapshot next = current.with(Collections.singletonList(feature));
+			snapshot = next;
+			updateFeature(feature);
+			if(!listeners.isEmpty()) {
+				listeners.publish(FeatureChangeSet.between(current, next, Collections.singleton(feature.getName())));
+			}
+		}
+	}
+
+    /**
+     * Prepares the feature of key for checks by its handle. A feature of the catalog of a lazy
+     * context is decoded, see {@link FeatureSnapshot#decode(String, FeatureContext)}, and its
+     * status is stored in the index if it has no code yet. Only this step takes the write lock,
+     * once per feature. No snapshot is published and the listeners aren't notified.
+     *
+     * @param key name of the feature
+     * @param id the retained id of key in the index
+     */
+	private void load(String key, int id) {
+		FeatureSnapshot current = snapshot;
+		if(current.isUnloaded(key)) {
+			current.decode(key, this);
+		}
+		if(index.get(id) != FeatureIndex.EMPTY || !current.hasFeature(key)) {
+			return;
+		}
+		synchronized(writeLock) {
+			current = snapshot;
+			if(index.get(id) == FeatureIndex.EMPTY && current.hasFeature(key)) {
+				index.set(id, statusCode(current.getStatus(key)));
+			}
+		}
+	}
+
+    /**
+     * Lets this context load its features from catalog when they are looked up the first time.
+     * The features of the context are replaced.
+     *
+     * @param catalog the {@link BinaryFeatureTable} with the features of this context
+     */
+	void setCatalog(BinaryFeatureTable catalog) {
+		synchronized(writeLock) {
+			snapshot = FeatureSnapshot.lazy(config, catalog);
+			index.clear();
+			refreshAllCallSites();
+		}
+	}
+
+	private void updateFeature(Feature feature) {
+		index.set(index.idOf(feature.getName()), statusCode(snapshot.getStatus(feature.getName())));
+		refreshCallSites(Collections.singleton(feature.getName()));
 	}
 
     /**
      * Returns the size of this context. That size says how many {@link Feature} objects
-     * were added to this context.
+     * were added to this context. A lazy context counts the features that weren't loaded yet.
      *
      * @return amount of added {@link Feature} objects
      */
     public int size() {
-        return featureMap.size();
+        return snapshot.size();
     }
 
     /**
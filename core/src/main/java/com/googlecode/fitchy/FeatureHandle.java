@@ -0,0 +1,83 @@
+/**
+ *  Licensed to the Apache Software Foundation (ASF) under one
+ *	or more contributor license agreements.  See the NOTICE file
+ *  distributed with this work for additional information
+ *	regarding copyright ownership.  The ASF licenses this file
+ *  to you under the Apache License, Version 2.0 (the
+ *  "License"); you may not use this file except in compliance
+ *  with the License.  You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing,
+ *  software distributed under the License is distributed on an
+ *  "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ *  KIND, either express or implied.  See the License for the
+ *  specific language governing permissions and limitations
+ *  under the License.
+ */
+package com.googlecode.fitchy;
+
+/**
+ * A {@link FeatureHandle} is the resolved name of a feature in one {@link FeatureContext}.
+ * It is taken once with {@link FeatureContext#getHandle(String)} and can be reused for
+ * every following check. A check with a handle reads the status of the feature by its
+ * index, without hashing or comparing the name.
+ *
+ * A handle stays valid when the feature is added, changed or removed later. In a
+ * {@link FeatureScope} a handle reads the pinned {@link FeatureSnapshot} or the overrides of
+ * the scope by name instead.
+ */
+public final class FeatureHandle {
+
+	private final FeatureContext context;
+	private final String name;
+	private final int id;
+
+	FeatureHandle(FeatureContext context, String name, int id) {
+		this.context = context;
+		this.name = name;
+		this.id = id;
+	}
+
+	/**
+	 * @return true if the feature exists in context
+	 */
+	public boolean exists() {
+		ScopedView view = context.getScopedView(name);
+		return view != null ? view.hasFeature(name) : context.handleExists(this);
+	}
+
+	/**
+	 * @param status the desired {@link FeatureStatus}
+	 * @return true if the feature exists in context and has the desired status
+	 */
+	public boolean hasStatus(FeatureStatus status) {
+		ScopedView view = context.getScopedView(name);
+		return view != null ? view.featureHasStatus(name, status) : context.handleHasStatus(this, status);
+	}
+
+	/**
+	 * @param statusMask combined bitmask of all accepted statuses, see {@link Configuration#maskOf(FeatureStatus)}
+	 * @return true if the feature exists in context and has one of the accepted statuses
+	 */
+	public boolean hasAnyStatus(long statusMask) {
+		ScopedView view = context.getScopedView(name);
+		return view != null ? view.featureHasAnyStatus(name, statusMask) : context.handleHasAnyStatus(this, statusMask);
+	}
+
+	/**
+	 * @return name of the feature
+	 */
+	public String getName() {
+		return name;
+	}
+
+	FeatureContext getContext() {
+		return context;
+	}
+
+	int getId() {
+		return id;
+	}
+}
@@ -0,0 +1,181 @@
+/**
+ *  Licensed to the Apache Software Foundation (ASF) under one
+ *	or more contributor license agreements.  See the NOTICE file
+ *  distributed with this work for additional information
+ *	regarding copyright ownership.  The ASF licenses this file
+ *  to you under the Apache License, Version 2.0 (the
+ *  "License"); you may not use this file except in compliance
+ *  with the License.  You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing,
+ *  software distributed under the License is distributed on an
+ *  "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ *  KIND, either express or implied.  See the License for the
+ *  specific language governing permissions and limitations
+ *  under the License.
+ */
+package com.googlecode.fitchy;
+
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * The {@link FeatureChangeListener} registry of a {@link FeatureContext}. A published
+ * {@link FeatureChangeSet} is only queued at every interested registration, the listener is
+ * called later on the executor. While a listener is queued or running all further changes are
+ * merged into one change set, so a slow listener gets fewer calls and never delays the
+ * context.
+ *
+ * Without a configured executor the listeners run on a shared pool of daemon threads.
+ */
+final class FeatureListeners {
+
+	private static final Logger LOG = Logger.getLogger(FeatureListeners.class.getName());
+
+	/**
+	 * Holds the shared default executor, which is created on first use.
+	 */
+	private static final class DefaultExecutor {
+		private static final ExecutorService INSTANCE = Executors.newCachedThreadPool(new ThreadFactory() {
+			private final AtomicInteger count = new AtomicInteger();
+
+			public Thread newThread(Runnable task) {
+				Thread thread = new Thread(task, "fitchy-listener-" + count.incrementAndGet());
+				thread.setDaemon(true);
+				return thread;
+			}
+		});
+	}
+
+	private final List<Registration> registrations = new CopyOnWriteArrayList<Registration>();
+
+	private volatile Executor executor;
+
+	void add(FeatureChangeListener listener, Set<String> featureNames) {
+		registrations.add(new Registration(listener, featureNames));
+	}
+
+	void remove(FeatureChangeListener listener) {
+		for(Registration registration : registrations) {
+			if(registration.listener == listener) {
+				registrations.remove(registration);
+			}
+		}
+	}
+
+	boolean isEmpty() {
+		return registrations.isEmpty();
+	}
+
+	void setExecutor(Executor executor) {
+		this.executor = executor;
+	}
+
+	/**
+	 * Queues changes at every registration that is interested in one of its features.
+	 */
+	void publish(FeatureChangeSet changes) {
+		if(changes.isEmpty()) {
+			return;
+		}
+		Set<String> affected = changes.getAffected();
+		for(Registration registration : registrations) {
+			registration.offer(changes, affected);
+		}
+	}
+
+	private Executor getExecutor() {
+		Executor current = executor;
+		return current != null ? current : DefaultExecutor.INSTANCE;
+	}
+
+	/**
+	 * A registered listener together with its pending changes. The pending changes are kept
+	 * as the snapshot before the first and after the last change and the names of all
+	 * affected features. The change set is computed from them when the listener is called.
+	 */
+	private final class Registration implements Runnable {
+
+		private final FeatureChangeListener listener;
+		private final Set<String> featureNames;
+
+		private FeatureSnapshot previous;
+		private FeatureSnapshot current;
+		private Set<String> pendingNames;
+		private boolean scheduled;
+
+		private Registration(FeatureChangeListener listener, Set<String> featureNames) {
+			this.listener = listener;
+			this.featureNames = featureNames;
+		}
+
+		void offer(FeatureChangeSet changes, Set<String> affected) {
+			Set<String> names = affected;
+			if(featureNames != null) {
+				names = new LinkedHashSet<String>(affected);
+				names.retainAll(featureNames);
+				if(names.isEmpty()) {
+					return;
+				}
+			}
+
+			synchronized(this) {
+				if(pendingNames == null) {
+					previous = changes.getPrevious();
+					pendingNames = new LinkedHashSet<String>();
+				}
+				pendingNames.addAll(names);
+				current = changes.getCurrent();
+				if(scheduled) {
+					return;
+				}
+				scheduled = true;
+			}
+
+			try {
+				getExecutor().execute(this);
+			} catch (RejectedExecutionException e) {
+				synchronized(this) {
+					scheduled = false;
+				}
+				LOG.log(Level.WARNING, "executor rejected feature change listener, changes stay queued", e);
+			}
+		}
+
+		public void run() {
+			while(true) {
+				FeatureChangeSet changes;
+				synchronized(this) {
+					if(pendingNames == null) {
+						scheduled = false;
+						return;
+					}
+					changes = FeatureChangeSet.between(previous, current, pendingNames);
+					previous = null;
+					current = null;
+					pendingNames = null;
+				}
+
+				if(!changes.isEmpty() && registrations.contains(this)) {
+					try {
+						listener.featuresChanged(changes);
+					} catch (RuntimeException e) {
+						LOG.log(Level.WARNING, "feature change listener failed", e);
+					}
+				}
+			}
+		}
+	}
+}
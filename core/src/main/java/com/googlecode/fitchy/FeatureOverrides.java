@@ -0,0 +1,96 @@
+/**
+ *  Licensed to the Apache Software Foundation (ASF) under one
+ *	or more contributor license agreements.  See the NOTICE file
+ *  distributed with this work for additional information
+ *	regarding copyright ownership.  The ASF licenses this file
+ *  to you under the Apache License, Version 2.0 (the
+ *  "License"); you may not use this file except in compliance
+ *  with the License.  You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing,
+ *  software distributed under the License is distributed on an
+ *  "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ *  KIND, either express or implied.  See the License for the
+ *  specific language governing permissions and limitations
+ *  under the License.
+ */
+package com.googlecode.fitchy;
+
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+
+import com.googlecode.fitchy.util.Preconditions;
+
+/**
+ * Collects the features that are forced to a status or removed for one unit of work, e.g.
+ * a request of an internal user. The overrides are applied to the current thread with
+ * {@link FeatureContext#override(FeatureOverrides)} and don't change the context itself:
+ * <pre>
+ * {@code
+ *  FeatureScope scope = context.override(new FeatureOverrides()
+ *          .set("new.checkout", config.enabledStatus)
+ *          .remove("old.checkout"));
+ *  try {
+ *      ...
+ *  } finally {
+ *      scope.close();
+ *  }
+ * }
+ * </pre>
+ * An instance can be reused for several scopes, a scope copies the overrides when it is opened.
+ */
+public final class FeatureOverrides {
+
+	private final Map<String, FeatureStatus> statuses = new HashMap<String, FeatureStatus>();
+	private final Set<String> removed = new HashSet<String>();
+
+	/**
+	 * Forces the feature to exist with status.
+	 *
+	 * @param key name of the feature
+	 * @param status the {@link FeatureStatus} the feature has in the scope
+	 * @return this instance
+	 * @throws IllegalArgumentException if key or status is null
+	 */
+	public FeatureOverrides set(String key, FeatureStatus status) {
+		Preconditions.throwIllegalArgumentExceptionIfNull(key, "name of feature is required.");
+		Preconditions.throwIllegalArgumentExceptionIfNull(status, "FeatureStatus argument is required.");
+		removed.remove(key);
+		statuses.put(key, status);
+		return this;
+	}
+
+	/**
+	 * Hides the feature, so it doesn't exist in the scope.
+	 *
+	 * @param key name of the feature
+	 * @return this instance
+	 * @throws IllegalArgumentException if key is null
+	 */
+	public FeatureOverrides remove(String key) {
+		Preconditions.throwIllegalArgumentExceptionIfNull(key, "name of feature is required.");
+		statuses.remove(key);
+		removed.add(key);
+		return this;
+	}
+
+	/**
+	 * @return true if no feature is overridden
+	 */
+	public boolean isEmpty() {
+		return statuses.isEmpty() && removed.isEmpty();
+	}
+
+	Map<String, FeatureStatus> getStatuses() {
+		return Collections.unmodifiableMap(statuses);
+	}
+
+	Set<String> getRemoved() {
+		return Collections.unmodifiableSet(removed);
+	}
+}
@@ -0,0 +1,84 @@
+/**
+ *  Licensed to the Apache Software Foundation (ASF) under one
+ *	or more contributor license agreements.  See the NOTICE file
+ *  distributed with this work for additional information
+ *	regarding copyright ownership.  The ASF licenses this file
+ *  to you under the Apache License, Version 2.0 (the
+ *  "License"); you may not use this file except in compliance
+ *  with the License.  You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing,
+ *  software distributed under the License is distributed on an
+ *  "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ *  KIND, either express or implied.  See the License for the
+ *  specific language governing permissions and limitations
+ *  under the License.
+ */
+package com.googlecode.fitchy;
+
+import java.io.Closeable;
+
+/**
+ * A unit of work in which every check of a {@link FeatureContext} on the current thread reads
+ * the same pinned {@link FeatureSnapshot} or sees the {@link FeatureOverrides} of the scope.
+ * A change or reload of the context that happens meanwhile isn't seen until the scope is
+ * closed. This applies to the query methods of the context, to {@link FeatureHandle},
+ * {@link FeatureCallSite#isAvailable()} and so to {@link FeatureChecker} and all proxies.
+ *
+ * A scope is opened with {@link FeatureContext#pin()} or {@link FeatureContext#override(FeatureOverrides)}
+ * and must be closed on the same thread:
+ * <pre>
+ * {@code
+ *  FeatureScope scope = context.pin();
+ *  try {
+ *      ...
+ *  } finally {
+ *      scope.close();
+ *  }
+ * }
+ * </pre>
+ * Scopes can be nested. A nested scope keeps the snapshot and overrides of the outer one and
+ * must be closed before it.
+ */
+public final class FeatureScope implements Closeable {
+
+	private final FeatureContext context;
+	private final ScopedView view;
+	private final ScopedView outer;
+	private final Thread thread;
+	private boolean closed;
+
+	FeatureScope(FeatureContext context, ScopedView view, ScopedView outer) {
+		this.context = context;
+		this.view = view;
+		this.outer = outer;
+		this.thread = Thread.currentThread();
+	}
+
+	/**
+	 * @return the pinned {@link FeatureSnapshot} of this scope or null if it only overrides features
+	 */
+	public FeatureSnapshot getSnapshot() {
+		return view.getPinned();
+	}
+
+	/**
+	 * Ends this scope. Afterwards the checks on this thread read the snapshot of the outer
+	 * scope or, without an outer scope, the current state of the context again. Closing a
+	 * closed scope does nothing.
+	 *
+	 * @throws IllegalStateException if the scope is closed on another thread or a nested scope
+	 *         is still open
+	 */
+	public void close() {
+		if(Thread.currentThread() != thread) {
+			throw new IllegalStateException("scope must be closed on the thread that opened it");
+		}
+		if(!closed) {
+			context.restore(view, outer);
+			closed = true;
+		}
+	}
+}
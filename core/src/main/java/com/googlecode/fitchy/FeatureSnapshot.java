@@ -0,0 +1,248 @@
+/**
+ *  Licensed to the Apache Software Foundation (ASF) under one
+ *	or more contributor license agreements.  See the NOTICE file
+ *  distributed with this work for additional information
+ *	regarding copyright ownership.  The ASF licenses this file
+ *  to you under the Apache License, Version 2.0 (the
+ *  "License"); you may not use this file except in compliance
+ *  with the License.  You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing,
+ *  software distributed under the License is distributed on an
+ *  "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ *  KIND, either express or implied.  See the License for the
+ *  specific language governing permissions and limitations
+ *  under the License.
+ */
+package com.googlecode.fitchy;
+
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+import com.googlecode.fitchy.internal.BinaryFeatureTable;
+import com.googlecode.fitchy.internal.HashTrieMap;
+
+/**
+ * An immutable state of all {@link Feature} items of a {@link FeatureContext}. The context
+ * never changes a snapshot: every change creates a new snapshot and publishes it at once, so a
+ * reader sees either all or nothing of a change. Reads don't lock and don't wait for a writer.
+ * A new snapshot shares all entries that didn't change with the previous one, see
+ * {@link HashTrieMap}, so adding features one by one doesn't copy all features every time.
+ *
+ * The status of a feature is taken when the snapshot is created. A later
+ * {@link Feature#setStatus(FeatureStatus)} publishes a new snapshot and doesn't change this one.
+ *
+ * The snapshot of a lazy context is backed by a {@link BinaryFeatureTable}. Features that
+ * weren't loaded yet are read from that table, which never changes either. Their
+ * {@link Feature} objects are decoded on demand and kept next to the table, see
+ * {@link #decode(String, FeatureContext)}.
+ */
+public final class FeatureSnapshot {
+
+	/**
+	 * The state of one feature in a snapshot.
+	 */
+	private static final class Entry {
+		private final Feature feature;
+		private final FeatureStatus status;
+
+		private Entry(Feature feature) {
+			this.feature = feature;
+			this.status = feature.getStatus();
+		}
+	}
+
+	private final Configuration config;
+	private final HashTrieMap<String, Entry> entries;
+	private final BinaryFeatureTable catalog;
+	private final ConcurrentMap<String, Feature> decoded;
+	private final int loadedCount;
+
+	private FeatureSnapshot(Configuration config, HashTrieMap<String, Entry> entries, BinaryFeatureTable catalog,
+			ConcurrentMap<String, Feature> decoded, int loadedCount) {
+		this.config = config;
+		this.entries = entries;
+		this.catalog = catalog;
+		this.decoded = decoded;
+		this.loadedCount = loadedCount;
+	}
+
+	static FeatureSnapshot empty(Configuration config) {
+		return new FeatureSnapshot(config, HashTrieMap.<String, Entry>empty(), null, null, 0);
+	}
+
+	/**
+	 * @param catalog the features that are loaded when they are looked up
+	 * @return a snapshot without loaded features that is backed by catalog
+	 */
+	static FeatureSnapshot lazy(Configuration config, BinaryFeatureTable catalog) {
+		return new FeatureSnapshot(config, HashTrieMap.<String, Entry>empty(), catalog, new ConcurrentHashMap<String, Feature>(), 0);
+	}
+
+	/**
+	 * @return a copy of this snapshot that only contains the loaded features
+	 */
+	FeatureSnapshot detach() {
+		return catalog == null ? this : new FeatureSnapshot(config, entries, null, null, 0);
+	}
+
+	/**
+	 * @param key name of the feature
+	 * @return true if the feature exists in the catalog of this snapshot but wasn't loaded yet
+	 */
+	boolean isUnloaded(String key) {
+		return catalog != null && !entries.containsKey(key) && catalog.indexOf(key) >= 0;
+	}
+
+	/**
+	 * Returns the {@link Feature} of a feature of the catalog. It is decoded once and kept in a
+	 * map next to the catalog, which all snapshots with this catalog share. The feature isn't
+	 * added to this snapshot, it is only published when its status is changed.
+	 *
+	 * @param key name of a feature that {@link #isUnloaded(String)}
+	 * @param context the {@link FeatureContext} of the feature
+	 * @return the {@link Feature} with the status of the catalog
+	 */
+	Feature decode(String key, FeatureContext context) {
+		Feature feature = decoded.get(key);
+		if(feature == null) {
+			feature = new Feature(key, catalog.getStatus(catalog.indexOf(key)));
+			feature.setContext(context);
+			Feature existing = decoded.putIfAbsent(key, feature);
+			if(existing != null) {
+				feature = existing;
+			}
+		}
+		return feature;
+	}
+
+	/**
+	 * Creates a copy of this snapshot that contains the current status of all features.
+	 * Features with the same name are replaced.
+	 *
+	 * @param features added or changed {@link Feature} items
+	 * @return the new snapshot
+	 */
+	FeatureSnapshot with(Collection<? extends Feature> features) {
+		return apply(features, Collections.<String>emptySet());
+	}
+
+	/**
+	 * Creates a copy of this snapshot that contains the current status of the passed features
+	 * and doesn't contain the removed features. The entries of all other features are shared
+	 * with this snapshot.
+	 *
+	 * @param features added or changed {@link Feature} items
+	 * @param removed names of the removed features
+	 * @return the new snapshot
+	 */
+	FeatureSnapshot apply(Collection<? extends Feature> features, Collection<String> removed) {
+		HashTrieMap<String, Entry> next = entries;
+		int loaded = loadedCount;
+		for(String key : removed) {
+			next = next.minus(key);
+		}
+		for(Feature feature : features) {
+			String key = feature.getName();
+			if(catalog != null && !next.containsKey(key) && catalog.indexOf(key) >= 0) {
+				loaded++;
+			}
+			next = next.plus(key, new Entry(feature));
+		}
+		return new FeatureSnapshot(config, next, catalog, decoded, loaded);
+	}
+
+	/**
+	 * @param key name of the feature
+	 * @return the loaded or decoded {@link Feature} of this snapshot or null
+	 */
+	Feature getFeature(String key) {
+		Entry entry = entries.get(key);
+		if(entry == null && decoded != null) {
+			return decoded.get(key);
+		}
+		return entry != null ? entry.feature : null;
+	}
+
+	/**
+	 * @param key name of the feature
+	 * @return true if the feature exists in this snapshot
+	 */
+	public boolean hasFeature(String key) {
+		if(key == null) {
+			return false;
+		}
+		return entries.get(key) != null || (catalog != null && catalog.indexOf(key) >= 0);
+	}
+
+	/**
+	 * @param key name of the feature
+	 * @param status the desired {@link FeatureStatus}
+	 * @return true if the feature exists in this snapshot and has the desired status
+	 */
+	public boolean featureHasStatus(String key, FeatureStatus status) {
+		Entry entry = entries.get(key);
+		if(entry == null && catalog != null) {
+			int index = catalog.indexOf(key);
+			return index >= 0 && catalog.getStatus(index) == status;
+		}
+		return entry != null && entry.status == status;
+	}
+
+	/**
+	 * @param key name of the feature
+	 * @param statusMask combined bitmask of all accepted statuses, see {@link Configuration#maskOf(FeatureStatus)}
+	 * @return true if the feature exists in this snapshot and has one of the accepted statuses
+	 */
+	public boolean featureHasAnyStatus(String key, long statusMask) {
+		Entry entry = entries.get(key);
+		if(entry == null && catalog != null) {
+			int index = catalog.indexOf(key);
+			return index >= 0 && (statusMask & config.maskOf(catalog.getStatus(index))) != 0;
+		}
+		return entry != null && (statusMask & config.maskOf(entry.status)) != 0;
+	}
+
+	/**
+	 * @param key name of the feature
+	 * @return the {@link FeatureStatus} of the feature or null if it doesn't exist or has no status
+	 */
+	public FeatureStatus getStatus(String key) {
+		Entry entry = entries.get(key);
+		if(entry == null && catalog != null) {
+			int index = catalog.indexOf(key);
+			return index >= 0 ? catalog.getStatus(index) : null;
+		}
+		return entry != null ? entry.status : null;
+	}
+
+	/**
+	 * Returns the names of all features. For a snapshot of a lazy context this decodes all
+	 * names of its catalog.
+	 *
+	 * @return the names of all features of this snapshot
+	 */
+	public Set<String> getFeatureNames() {
+		if(catalog == null) {
+			return entries.keySet();
+		}
+		Set<String> names = new HashSet<String>(entries.keySet());
+		for(int i = 0; i < catalog.size(); i++) {
+			names.add(catalog.getName(i));
+		}
+		return Collections.unmodifiableSet(names);
+	}
+
+	/**
+	 * @return amount of features in this snapshot, including the features of a catalog that weren't loaded yet
+	 */
+	public int size() {
+		return catalog == null ? entries.size() : entries.size() + catalog.size() - loadedCount;
+	}
+}
@@ -0,0 +1,44 @@
+/**
+ *  Licensed to the Apache Software Foundation (ASF) under one
+ *	or more contributor license agreements.  See the NOTICE file
+ *  distributed with this work for additional information
+ *	regarding copyright ownership.  The ASF licenses this file
+ *  to you under the Apache License, Version 2.0 (the
+ *  "License"); you may not use this file except in compliance
+ *  with the License.  You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing,
+ *  software distributed under the License is distributed on an
+ *  "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ *  KIND, either express or implied.  See the License for the
+ *  specific language governing permissions and limitations
+ *  under the License.
+ */
+package com.googlecode.fitchy;
+
+import com.googlecode.fitchy.resolver.FeatureResolver;
+
+/**
+ * A factory for one proxy class that was generated at compile time, e.g. by the
+ * annotation processor of the fitchy-processor module. Such a proxy implements all
+ * interfaces of its target class and checks the features of its methods without
+ * runtime class generation or annotation scanning.
+ */
+public interface GeneratedProxyFactory {
+
+    /**
+     * @return the {@link Class} whose instances can be proxied by this factory
+     */
+    Class<?> getTargetClass();
+
+    /**
+     * Creates a new proxy that surrounds origin.
+     *
+     * @param origin an instance of {@link #getTargetClass()}
+     * @param resolver the {@link FeatureResolver} the proxy uses to check its features
+     * @return a new proxy
+     */
+    Object create(Object origin, FeatureResolver resolver);
+}
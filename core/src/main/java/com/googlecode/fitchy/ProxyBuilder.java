@@ -19,6 +19,8 @@
 package com.googlecode.fitchy;
 
 import com.googlecode.fitchy.exception.CannotCreateProxyException;
+import com.googlecode.fitchy.internal.FeatureSwitchMethods;
+import com.googlecode.fitchy.internal.GeneratedProxyObserver;
 import com.googlecode.fitchy.util.Preconditions;
 
 public class ProxyBuilder {
@@ -27,6 +29,10 @@ public class ProxyBuilder {
 	
 	private FeatureObserver observer;
 	
+	private boolean customObserver;
+	
+	private final GeneratedProxyObserver generatedObserver = new GeneratedProxyObserver();
+	
 	private ProxyBuilder(FeatureContext context, FeatureObserver observer) {
 		this.context = context;
 		this.observer = observer;
@@ -59,12 +65,25 @@ public class ProxyBuilder {
 	/**
      * Create an {@link FeatureObserver} and start to observe the passed object for
      * method calls with {@link com.googlecode.fitchy.annotation.FeatureSwitch} annotated.
+     * If the fitchy-processor module generated a proxy for the class of origin at compile time
+     * this proxy is used, see {@link GeneratedProxyObserver}. It takes precedence over the
+     * observer class of the {@link Configuration}, because every configuration has one and
+     * it can't tell an explicit choice from the default. Only an observer passed to
+     * {@link #withObserver(FeatureObserver)} is used instead of a generated proxy.
+     * Otherwise, if neither the class of origin nor one of its interfaces has an annotated
+     * method there is nothing to observe and origin is returned unchanged. The class is
+     * scanned only once, see {@link FeatureSwitchMethods}.
      *
-     * @param toObserve object that needs to be observed
-     * @param context current {@link FeatureContext}
-     * @return returns observed object
+     * @param origin object that needs to be observed
+     * @return returns observed object or origin if it has no annotated methods
      */
 	public <T> T build(T origin) {
+		if(!customObserver && origin != null && generatedObserver.hasProxy(origin.getClass())) {
+			return generatedObserver.observe(origin, context);
+		}
+		if(origin != null && FeatureSwitchMethods.of(origin.getClass()).isEmpty()) {
+			return origin;
+		}
 		return observer.observe(origin, context);
 	}
 
@@ -73,8 +92,10 @@ public class ProxyBuilder {
 	 * This function throws an {@link IllegalArgumentException} if the observer argument
 	 * is null.
 	 * This function is used when you want to proxy the target object with your own
-	 * {@link FeatureObserver}. Otherwise this builder uses the observer class that is
-	 * defined in context {@link Configuration}.
+	 * {@link FeatureObserver}. Otherwise this builder uses a proxy generated by the
+	 * fitchy-processor module or the observer class that is defined in context
+	 * {@link Configuration}, in this order. The passed observer is used even if a
+	 * generated proxy exists.
 	 * 
 	 * @param observer new {@link FeatureObserver}
 	 * @return current {@link ProxyBuilder} instance
@@ -84,6 +105,7 @@ public class ProxyBuilder {
 	public ProxyBuilder withObserver(FeatureObserver observer) {
 		Preconditions.throwIllegalArgumentExceptionIfNull(observer, "FeatureObserver argument is required.");
 		this.observer = observer;
+		this.customObserver = true;
 		return this;
 	}
 }
@@ -0,0 +1,110 @@
+/**
+ *  Licensed to the Apache Software Foundation (ASF) under one
+ *	or more contributor license agreements.  See the NOTICE file
+ *  distributed with this work for additional information
+ *	regarding copyright ownership.  The ASF licenses this file
+ *  to you under the Apache License, Version 2.0 (the
+ *  "License"); you may not use this file except in compliance
+ *  with the License.  You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing,
+ *  software distributed under the License is distributed on an
+ *  "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ *  KIND, either express or implied.  See the License for the
+ *  specific language governing permissions and limitations
+ *  under the License.
+ */
+package com.googlecode.fitchy;
+
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * The view of a {@link FeatureContext} that the open {@link FeatureScope}s of a thread define:
+ * a pinned {@link FeatureSnapshot} and the overridden features. A view is immutable, nested
+ * scopes create a new view from the view of the outer scope.
+ *
+ * Checks only ask the view for the features it covers. All other features are read from
+ * the shared state of the context as usual.
+ */
+final class ScopedView {
+
+	private final Configuration config;
+	private final FeatureSnapshot pinned;
+	private final Map<String, FeatureStatus> statuses;
+	private final Set<String> removed;
+
+	private ScopedView(Configuration config, FeatureSnapshot pinned, Map<String, FeatureStatus> statuses, Set<String> removed) {
+		this.config = config;
+		this.pinned = pinned;
+		this.statuses = statuses;
+		this.removed = removed;
+	}
+
+	static ScopedView pinned(Configuration config, FeatureSnapshot pinned) {
+		return new ScopedView(config, pinned, Collections.<String, FeatureStatus>emptyMap(), Collections.<String>emptySet());
+	}
+
+	static ScopedView overridden(Configuration config, FeatureOverrides overrides) {
+		return new ScopedView(config, null, Collections.<String, FeatureStatus>emptyMap(), Collections.<String>emptySet()).with(overrides);
+	}
+
+	/**
+	 * @return a copy of this view that reads the features it doesn't override from pinned
+	 */
+	ScopedView pin(FeatureSnapshot snapshot) {
+		return new ScopedView(config, snapshot, statuses, removed);
+	}
+
+	/**
+	 * @return a copy of this view where overrides replace the overrides of this view
+	 */
+	ScopedView with(FeatureOverrides overrides) {
+		Map<String, FeatureStatus> nextStatuses = new HashMap<String, FeatureStatus>(statuses);
+		Set<String> nextRemoved = new HashSet<String>(removed);
+		nextStatuses.keySet().removeAll(overrides.getRemoved());
+		nextStatuses.putAll(overrides.getStatuses());
+		nextRemoved.removeAll(overrides.getStatuses().keySet());
+		nextRemoved.addAll(overrides.getRemoved());
+		return new ScopedView(config, pinned, nextStatuses, nextRemoved);
+	}
+
+	FeatureSnapshot getPinned() {
+		return pinned;
+	}
+
+	/**
+	 * @return true if the result of a check of the feature is taken from this view
+	 */
+	boolean covers(String key) {
+		return pinned != null || statuses.containsKey(key) || removed.contains(key);
+	}
+
+	boolean hasFeature(String key) {
+		if(statuses.containsKey(key)) {
+			return true;
+		}
+		return !removed.contains(key) && pinned.hasFeature(key);
+	}
+
+	boolean featureHasStatus(String key, FeatureStatus status) {
+		FeatureStatus overridden = statuses.get(key);
+		if(overridden != null) {
+			return overridden == status;
+		}
+		return !removed.contains(key) && pinned.featureHasStatus(key, status);
+	}
+
+	boolean featureHasAnyStatus(String key, long statusMask) {
+		FeatureStatus overridden = statuses.get(key);
+		if(overridden != null) {
+			return (statusMask & config.maskOf(overridden)) != 0;
+		}
+		return !removed.contains(key) && pinned.featureHasAnyStatus(key, statusMask);
+	}
+}
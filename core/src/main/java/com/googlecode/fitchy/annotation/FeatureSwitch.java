@@ -42,4 +42,13 @@ public @interface FeatureSwitch {
      * @return the {@link com.googlecode.fitchy.FeatureStatus#getSystemName()} value or an empty String by default
      */
     String status() default "";
+
+    /**
+     * Represents the system names of all statuses that are accepted for the feature. The method
+     * is available when the feature has one of these statuses or the status of {@link #status()}.
+     * When both values are empty the enabled status is required.
+     *
+     * @return the {@link com.googlecode.fitchy.FeatureStatus#getSystemName()} values or an empty array by default
+     */
+    String[] statuses() default {};
 }
@@ -19,13 +19,10 @@
 package com.googlecode.fitchy.internal;
 
 
-import java.lang.reflect.InvocationTargetException;
 import java.lang.reflect.Method;
 
 import com.googlecode.fitchy.annotation.FeatureSwitch;
-import com.googlecode.fitchy.exception.AnnotationNotFoundException;
 import com.googlecode.fitchy.exception.InvokeException;
-import com.googlecode.fitchy.resolver.AnnotationRetriever;
 import com.googlecode.fitchy.resolver.FeatureResolver;
 import com.googlecode.fitchy.resolver.FeatureResolverFactory;
 
@@ -43,7 +40,10 @@ import com.googlecode.fitchy.resolver.FeatureResolverFactory;
 public class AnnotatedMethodInvoker {
 
     private FeatureResolverFactory resolverFactory;
+    private volatile ProxyCallSites callSites;
     private MethodInvoke invoke;
+    private Object origin;
+    private Class<?> originClass;
 
     /**
      * With an implementation of this Interface the AnnotatedMethodInvoker
@@ -76,32 +76,25 @@ public class AnnotatedMethodInvoker {
      * instance. The original object is required for calling method
      * later.
      *
+     * The method of the original object is called with the {@link TargetMethodInvoker}
+     * of the {@link MethodDecision}.
+     *
      * @param origin original object
      * @param resolverFactory a {@link FeatureResolverFactory} that can create a new instance of {@link FeatureResolver}
      */
-    public AnnotatedMethodInvoker(final Object origin, FeatureResolverFactory resolverFactory) {
+    public AnnotatedMethodInvoker(Object origin, FeatureResolverFactory resolverFactory) {
         this.resolverFactory = resolverFactory;
-        invoke = new MethodInvoke() {
-            public Object invoke(Method method, Object[] args) throws InvokeException {
-            	boolean accessible = method.isAccessible();
-            	try{
-            		method.setAccessible(true);
-            		return method.invoke(origin, args);
-            	} catch (IllegalAccessException e) {
-            		throw new InvokeException(e);
-            	} catch (InvocationTargetException e) {
-            		throw new InvokeException(e);
-            	} finally {
-            		method.setAccessible(accessible);
-            	}
-            }
-
-            public Class<?> getTargetClass() {
-                return origin.getClass();
-            }
-        };
+        this.origin = origin;
+        this.originClass = origin.getClass();
     }
 
+    /**
+     * Initialize class with a custom {@link MethodInvoke} that calls the original method
+     * and a {@link FeatureResolverFactory} instance.
+     *
+     * @param invoke a {@link MethodInvoke} implementation that calls the original method
+     * @param resolverFactory a {@link FeatureResolverFactory} that can create a new instance of {@link FeatureResolver}
+     */
     public AnnotatedMethodInvoker(MethodInvoke invoke, FeatureResolverFactory resolverFactory) {
         this.resolverFactory = resolverFactory;
         this.invoke = invoke;
@@ -111,6 +104,8 @@ public class AnnotatedMethodInvoker {
      * Determine if a passed {@link Method} has {@link FeatureSwitch} annotation and that
      * the feature is enabledStatus. It invokes the original method if the feature is enabledStatus or
      * if the annotation is not found. Otherwise it returns null.
+     * The annotation lookup is done only once per target class and method, see {@link MethodDecision}.
+     * The {@link com.googlecode.fitchy.FeatureCallSite} of a method is kept by this invoker, see {@link ProxyCallSites}.
      *
      * @param method {@link Method} that was called from outside
      * @param arguments of method call
@@ -118,20 +113,48 @@ public class AnnotatedMethodInvoker {
      * @throws Throwable rethrow exceptions that a method call can throw
      */
     public Object invoke(Method method, Object[] arguments) throws Throwable {
-        AnnotationRetriever retriever = new AnnotationRetriever(FeatureSwitch.class, invoke.getTargetClass());
+        MethodDecision decision = MethodDecision.of(getTargetClass(), method);
         Object result = null;
+        if(!decision.isGated() || getCallSites().isAvailable(method, decision)) {
+            result = invokeTarget(decision, method, arguments);
+        }
+
+        return result;
+    }
+
+    private Object invokeTarget(MethodDecision decision, Method method, Object[] arguments) throws Throwable {
+        if(invoke == null) {
+            return decision.getInvoker().invoke(origin, arguments);
+        }
+
         try {
-            FeatureSwitch featureSwitch = retriever.getAnnotation(method);
-            FeatureResolver resolver =  resolverFactory.createResolver();
-            if(resolver.isFeatureAvailable(featureSwitch)) {
-                result = invoke.invoke(method, arguments);
-            }
-        } catch (AnnotationNotFoundException e) {
-            result = invoke.invoke(method, arguments);
+            return invoke.invoke(method, arguments);
         } catch (InvokeException e) {
         	throw e.getCause();
         }
+    }
 
-        return result;
+    private Class<?> getTargetClass() {
+        return invoke == null ? originClass : invoke.getTargetClass();
+    }
+
+    /**
+     * Returns the {@link ProxyCallSites} of this invoker. They are created with a {@link FeatureResolver}
+     * on the first call of a gated method and reused for all following calls.
+     *
+     * @return the {@link ProxyCallSites} of the {@link FeatureResolver} created by the {@link FeatureResolverFactory}
+     */
+    private ProxyCallSites getCallSites() {
+        ProxyCallSites current = callSites;
+        if(current == null) {
+            synchronized(this) {
+                current = callSites;
+                if(current == null) {
+                    current = new ProxyCallSites(resolverFactory.createResolver());
+                    callSites = current;
+                }
+            }
+        }
+        return current;
     }
 }
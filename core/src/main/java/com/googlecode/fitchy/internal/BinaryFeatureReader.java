@@ -0,0 +1,106 @@
+/**
+ *  Licensed to the Apache Software Foundation (ASF) under one
+ *	or more contributor license agreements.  See the NOTICE file
+ *  distributed with this work for additional information
+ *	regarding copyright ownership.  The ASF licenses this file
+ *  to you under the Apache License, Version 2.0 (the
+ *  "License"); you may not use this file except in compliance
+ *  with the License.  You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing,
+ *  software distributed under the License is distributed on an
+ *  "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ *  KIND, either express or implied.  See the License for the
+ *  specific language governing permissions and limitations
+ *  under the License.
+ */
+package com.googlecode.fitchy.internal;
+
+import java.io.ByteArrayOutputStream;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+
+import com.googlecode.fitchy.Configuration;
+import com.googlecode.fitchy.Feature;
+import com.googlecode.fitchy.FeatureReader;
+import com.googlecode.fitchy.exception.UnsupportedFormatException;
+
+/**
+ * Implementation of {@link FeatureReader} for files written by {@link BinaryFeatureWriter}.
+ * A {@link FileInputStream} is mapped into memory, other streams are read into a buffer.
+ * The checksum is verified before the first feature is returned.
+ *
+ * To use this reader set <code>fitchy.feature.reader</code> to its class name. For lookups
+ * without a {@link Feature} per entry use {@link BinaryFeatureTable} directly.
+ */
+public class BinaryFeatureReader extends FeatureReader {
+
+    private BinaryFeatureTable table;
+
+    private RuntimeException error;
+
+    private int next;
+
+    /**
+     * constructor of super class {@link FeatureReader}
+     *
+     * @param is {@link InputStream} stream of a binary feature file
+     * @param options {@link Configuration} current options that the reader uses to resolve
+     *                the {@link com.googlecode.fitchy.FeatureStatus} of a {@link Feature}
+     */
+    public BinaryFeatureReader(InputStream is, Configuration options) {
+        super(is, options);
+        try {
+            table = BinaryFeatureTable.of(toBuffer(is), options);
+            table.verify();
+        } catch (IOException e) {
+            error = new UnsupportedFormatException("unable to read binary features from InputStream", e);
+        } catch (RuntimeException e) {
+            //exception will be thrown at function read()
+            error = e;
+        }
+    }
+
+    /* (non-Javadoc)
+     * @see com.googlecode.fitchy.FeatureReader#read()
+     */
+    @Override
+    public Feature read() {
+        if(error != null) {
+            throw error;
+        }
+        if(next == table.size()) {
+            return null;
+        }
+        Feature feature = new Feature(table.getName(next), table.getStatus(next));
+        next++;
+        return feature;
+    }
+
+    /**
+     * Maps a {@link FileInputStream} from its position, reads other streams completely into a buffer.
+     *
+     * @param is a stream of binary features
+     * @return a buffer with the content of is
+     * @throws IOException if is can't be read
+     */
+    public static ByteBuffer toBuffer(InputStream is) throws IOException {
+        if(is == null) {
+            throw new UnsupportedFormatException("unable from InputStream");
+        }
+        if(is instanceof FileInputStream) {
+            return BinaryFeatureTable.map(((FileInputStream) is).getChannel());
+        }
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        byte[] chunk = new byte[8192];
+        int read;
+        while((read = is.read(chunk)) != -1) {
+            bytes.write(chunk, 0, read);
+        }
+        return ByteBuffer.wrap(bytes.toByteArray());
+    }
+}
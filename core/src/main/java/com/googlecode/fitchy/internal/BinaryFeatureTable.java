@@ -0,0 +1,247 @@
+/**
+ *  Licensed to the Apache Software Foundation (ASF) under one
+ *	or more contributor license agreements.  See the NOTICE file
+ *  distributed with this work for additional information
+ *	regarding copyright ownership.  The ASF licenses this file
+ *  to you under the Apache License, Version 2.0 (the
+ *  "License"); you may not use this file except in compliance
+ *  with the License.  You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing,
+ *  software distributed under the License is distributed on an
+ *  "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ *  KIND, either express or implied.  See the License for the
+ *  specific language governing permissions and limitations
+ *  under the License.
+ */
+package com.googlecode.fitchy.internal;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.Charset;
+import java.util.zip.CRC32;
+
+import com.googlecode.fitchy.Configuration;
+import com.googlecode.fitchy.FeatureStatus;
+import com.googlecode.fitchy.exception.UnsupportedFormatException;
+
+/**
+ * Read-only view of features in the binary format of {@link BinaryFeatureWriter}. All
+ * lookups are served from the buffer, usually a memory mapped file, so opening a table
+ * only reads its header and status names and a lookup only touches the pages of its
+ * hash slot, entry and name.
+ *
+ * The format consists of these sections, all numbers are big endian:
+ * <pre>
+ *  header     magic "FTCH", version, entry count, status count, slot count, length of
+ *             the status names, length of the names and a CRC32 of all following sections
+ *  statuses   system names of the statuses, each as unsigned short length and UTF-8 bytes
+ *  slots      open addressing hash table, every slot holds an entry index + 1 or 0
+ *  entries    name offset (int), name length (unsigned short), status ordinal (short, -1 for none)
+ *  names      UTF-8 bytes of all names, every name is stored once
+ * </pre>
+ * A table is safe for concurrent use because it only uses absolute reads of the buffer.
+ */
+public final class BinaryFeatureTable {
+
+    static final int MAGIC = 0x46544348;
+    static final short VERSION = 1;
+    static final int HEADER_SIZE = 32;
+    static final int ENTRY_SIZE = 8;
+    static final short NO_STATUS = -1;
+    static final Charset UTF8 = Charset.forName("UTF-8");
+
+    private final ByteBuffer buffer;
+    private final FeatureStatus[] statuses;
+    private final int entryCount;
+    private final int slotMask;
+    private final int slotsOffset;
+    private final int entriesOffset;
+    private final int namesOffset;
+    private final int checksum;
+
+    private BinaryFeatureTable(ByteBuffer buffer, Configuration config) {
+        this.buffer = buffer;
+        if(buffer.capacity() < HEADER_SIZE || buffer.getInt(0) != MAGIC) {
+            throw new UnsupportedFormatException("buffer doesn't contain binary features");
+        }
+        if(buffer.getShort(4) != VERSION) {
+            throw new UnsupportedFormatException("unsupported version " + buffer.getShort(4) + " of binary features");
+        }
+        entryCount = buffer.getInt(8);
+        int statusCount = buffer.getInt(12);
+        int slotCount = buffer.getInt(16);
+        int statusesLength = buffer.getInt(20);
+        int namesLength = buffer.getInt(24);
+        checksum = buffer.getInt(28);
+
+        slotsOffset = HEADER_SIZE + statusesLength;
+        entriesOffset = slotsOffset + slotCount * 4;
+        namesOffset = entriesOffset + entryCount * ENTRY_SIZE;
+        if(entryCount < 0 || statusCount < 0 || Integer.bitCount(slotCount) != 1 || slotCount <= entryCount
+                || namesOffset + (long) namesLength != buffer.capacity()) {
+            throw new UnsupportedFormatException("corrupt header of binary features");
+        }
+        slotMask = slotCount - 1;
+
+        statuses = new FeatureStatus[statusCount];
+        int offset = HEADER_SIZE;
+        for(int i = 0; i < statusCount; i++) {
+            int length = buffer.getShort(offset) & 0xFFFF;
+            statuses[i] = config.statusOf(decode(offset + 2, length));
+            offset += 2 + length;
+        }
+    }
+
+    /**
+     * Creates a table of buffer. The position and limit of buffer are ignored.
+     *
+     * @param buffer a buffer that contains binary features from its first byte up to its capacity
+     * @param config the {@link Configuration} that the status names are resolved with
+     * @return the table
+     * @throws UnsupportedFormatException if buffer doesn't contain binary features
+     */
+    public static BinaryFeatureTable of(ByteBuffer buffer, Configuration config) {
+        return new BinaryFeatureTable(buffer, config);
+    }
+
+    /**
+     * Maps file read-only into memory and creates a table of it. The mapping stays valid
+     * until the table is garbage collected.
+     *
+     * @param file a file written by {@link BinaryFeatureWriter}
+     * @param config the {@link Configuration} that the status names are resolved with
+     * @return the table
+     * @throws IOException if file can't be mapped
+     * @throws UnsupportedFormatException if file doesn't contain binary features
+     */
+    public static BinaryFeatureTable map(File file, Configuration config) throws IOException {
+        FileInputStream in = new FileInputStream(file);
+        try {
+            return of(map(in.getChannel()), config);
+        } finally {
+            in.close();
+        }
+    }
+
+    static ByteBuffer map(FileChannel channel) throws IOException {
+        return channel.map(FileChannel.MapMode.READ_ONLY, channel.position(), channel.size() - channel.position());
+    }
+
+    /**
+     * Compares the checksum of the header with the content. This reads the whole buffer.
+     *
+     * @throws UnsupportedFormatException if the checksum doesn't match
+     */
+    public void verify() {
+        CRC32 crc = new CRC32();
+        byte[] chunk = new byte[8192];
+        int offset = HEADER_SIZE;
+        while(offset < buffer.capacity()) {
+            int length = Math.min(chunk.length, buffer.capacity() - offset);
+            for(int i = 0; i < length; i++) {
+                chunk[i] = buffer.get(offset + i);
+            }
+            crc.update(chunk, 0, length);
+            offset += length;
+        }
+        if((int) crc.getValue() != checksum) {
+            throw new UnsupportedFormatException("checksum of binary features doesn't match");
+        }
+    }
+
+    /**
+     * @return number of features
+     */
+    public int size() {
+        return entryCount;
+    }
+
+    /**
+     * Looks up the entry of a feature.
+     *
+     * @param key name of the feature
+     * @return index of the entry or -1 if the feature doesn't exist
+     */
+    public int indexOf(String key) {
+        byte[] name = key.getBytes(UTF8);
+        int slot = hash(name) & slotMask;
+        int entry;
+        while((entry = buffer.getInt(slotsOffset + slot * 4)) != 0) {
+            if(nameEquals(entry - 1, name)) {
+                return entry - 1;
+            }
+            slot = (slot + 1) & slotMask;
+        }
+        return -1;
+    }
+
+    /**
+     * @param key name of the feature
+     * @return true if the feature exists
+     */
+    public boolean hasFeature(String key) {
+        return indexOf(key) >= 0;
+    }
+
+    /**
+     * @param index index of an entry, see {@link #indexOf(String)}
+     * @return name of the feature
+     */
+    public String getName(int index) {
+        int entry = entriesOffset + checkIndex(index) * ENTRY_SIZE;
+        return decode(namesOffset + buffer.getInt(entry), buffer.getShort(entry + 4) & 0xFFFF);
+    }
+
+    /**
+     * @param index index of an entry, see {@link #indexOf(String)}
+     * @return status of the feature or null if it has no status
+     */
+    public FeatureStatus getStatus(int index) {
+        short ordinal = buffer.getShort(entriesOffset + checkIndex(index) * ENTRY_SIZE + 6);
+        return ordinal == NO_STATUS ? null : statuses[ordinal];
+    }
+
+    static int hash(byte[] name) {
+        // FNV-1a
+        int hash = 0x811C9DC5;
+        for(byte b : name) {
+            hash = (hash ^ (b & 0xFF)) * 0x01000193;
+        }
+        return hash;
+    }
+
+    private boolean nameEquals(int index, byte[] name) {
+        int entry = entriesOffset + index * ENTRY_SIZE;
+        if((buffer.getShort(entry + 4) & 0xFFFF) != name.length) {
+            return false;
+        }
+        int offset = namesOffset + buffer.getInt(entry);
+        for(int i = 0; i < name.length; i++) {
+            if(buffer.get(offset + i) != name[i]) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private String decode(int offset, int length) {
+        byte[] bytes = new byte[length];
+        for(int i = 0; i < length; i++) {
+            bytes[i] = buffer.get(offset + i);
+        }
+        return new String(bytes, UTF8);
+    }
+
+    private int checkIndex(int index) {
+        if(index < 0 || index >= entryCount) {
+            throw new IndexOutOfBoundsException("no entry at index " + index);
+        }
+        return index;
+    }
+}
@@ -0,0 +1,133 @@
+/**
+ *  Licensed to the Apache Software Foundation (ASF) under one
+ *	or more contributor license agreements.  See the NOTICE file
+ *  distributed with this work for additional information
+ *	regarding copyright ownership.  The ASF licenses this file
+ *  to you under the Apache License, Version 2.0 (the
+ *  "License"); you may not use this file except in compliance
+ *  with the License.  You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing,
+ *  software distributed under the License is distributed on an
+ *  "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ *  KIND, either express or implied.  See the License for the
+ *  specific language governing permissions and limitations
+ *  under the License.
+ */
+package com.googlecode.fitchy.internal;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeSet;
+import java.util.zip.CRC32;
+
+import com.googlecode.fitchy.FeatureSnapshot;
+import com.googlecode.fitchy.FeatureStatus;
+import com.googlecode.fitchy.util.Preconditions;
+
+/**
+ * Writes the features of a {@link FeatureSnapshot} in the binary format of
+ * {@link BinaryFeatureTable}, which is read by {@link BinaryFeatureReader}. The entries
+ * are written sorted by name, so the same features always give the same bytes.
+ */
+public final class BinaryFeatureWriter {
+
+    private BinaryFeatureWriter() {
+    }
+
+    /**
+     * Writes all features of snapshot to out. The stream isn't closed.
+     *
+     * @param snapshot the features to write, e.g. {@link com.googlecode.fitchy.FeatureContext#getSnapshot()}
+     * @param out the stream to write to
+     * @throws IOException if out can't be written
+     * @throws IllegalArgumentException if snapshot or out is null or a name is too long
+     */
+    public static void write(FeatureSnapshot snapshot, OutputStream out) throws IOException {
+        Preconditions.throwIllegalArgumentExceptionIfNull(snapshot, "FeatureSnapshot argument is required.");
+        Preconditions.throwIllegalArgumentExceptionIfNull(out, "OutputStream argument is required.");
+
+        List<String> names = new ArrayList<String>(new TreeSet<String>(snapshot.getFeatureNames()));
+        List<FeatureStatus> statuses = new ArrayList<FeatureStatus>();
+        Map<FeatureStatus, Integer> ordinals = new HashMap<FeatureStatus, Integer>();
+        int slotCount = Integer.highestOneBit(Math.max(names.size(), 1)) * 4;
+        int[] slots = new int[slotCount];
+
+        ByteArrayOutputStream statusBytes = new ByteArrayOutputStream();
+        ByteArrayOutputStream entryBytes = new ByteArrayOutputStream();
+        ByteArrayOutputStream nameBytes = new ByteArrayOutputStream();
+        DataOutputStream statusOut = new DataOutputStream(statusBytes);
+        DataOutputStream entryOut = new DataOutputStream(entryBytes);
+
+        for(int index = 0; index < names.size(); index++) {
+            String name = names.get(index);
+            byte[] encoded = name.getBytes(BinaryFeatureTable.UTF8);
+            Preconditions.throwIllegalArgumentExceptionIfFalse(encoded.length <= 0xFFFF, "name of feature is too long: " + name);
+
+            FeatureStatus status = snapshot.getStatus(name);
+            int ordinal = BinaryFeatureTable.NO_STATUS;
+            if(status != null) {
+                Integer known = ordinals.get(status);
+                if(known == null) {
+                    known = statuses.size();
+                    ordinals.put(status, known);
+                    statuses.add(status);
+                    writeString(statusOut, status.getSystemName());
+                }
+                ordinal = known;
+            }
+
+            entryOut.writeInt(nameBytes.size());
+            entryOut.writeShort(encoded.length);
+            entryOut.writeShort(ordinal);
+            nameBytes.write(encoded);
+
+            int slot = BinaryFeatureTable.hash(encoded) & (slotCount - 1);
+            while(slots[slot] != 0) {
+                slot = (slot + 1) & (slotCount - 1);
+            }
+            slots[slot] = index + 1;
+        }
+
+        ByteArrayOutputStream body = new ByteArrayOutputStream(statusBytes.size() + slotCount * 4 + entryBytes.size() + nameBytes.size());
+        DataOutputStream bodyOut = new DataOutputStream(body);
+        statusBytes.writeTo(bodyOut);
+        for(int slot : slots) {
+            bodyOut.writeInt(slot);
+        }
+        entryBytes.writeTo(bodyOut);
+        nameBytes.writeTo(bodyOut);
+        bodyOut.flush();
+
+        CRC32 crc = new CRC32();
+        byte[] content = body.toByteArray();
+        crc.update(content);
+
+        DataOutputStream headerOut = new DataOutputStream(out);
+        headerOut.writeInt(BinaryFeatureTable.MAGIC);
+        headerOut.writeShort(BinaryFeatureTable.VERSION);
+        headerOut.writeShort(0);
+        headerOut.writeInt(names.size());
+        headerOut.writeInt(statuses.size());
+        headerOut.writeInt(slotCount);
+        headerOut.writeInt(statusBytes.size());
+        headerOut.writeInt(nameBytes.size());
+        headerOut.writeInt((int) crc.getValue());
+        headerOut.write(content);
+        headerOut.flush();
+    }
+
+    private static void writeString(DataOutputStream out, String value) throws IOException {
+        byte[] encoded = value.getBytes(BinaryFeatureTable.UTF8);
+        out.writeShort(encoded.length);
+        out.write(encoded);
+    }
+}
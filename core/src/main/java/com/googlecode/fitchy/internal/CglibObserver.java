@@ -21,6 +21,7 @@ package com.googlecode.fitchy.internal;
 import static com.googlecode.fitchy.util.Preconditions.throwIllegalArgumentExceptionIfNull;
 
 import java.lang.reflect.Constructor;
+import java.lang.reflect.InvocationTargetException;
 import java.lang.reflect.Method;
 import java.util.HashMap;
 import java.util.Map;
@@ -30,23 +31,40 @@ import com.googlecode.fitchy.FeatureObserver;
 import com.googlecode.fitchy.exception.CannotCreateProxyException;
 import com.googlecode.fitchy.resolver.FeatureResolverFactory;
 
+import net.sf.cglib.proxy.Callback;
+import net.sf.cglib.proxy.CallbackFilter;
+import net.sf.cglib.proxy.Dispatcher;
 import net.sf.cglib.proxy.Enhancer;
+import net.sf.cglib.proxy.Factory;
 import net.sf.cglib.proxy.MethodInterceptor;
 import net.sf.cglib.proxy.MethodProxy;
+import net.sf.cglib.proxy.NoOp;
 
 /**
  * {@link CglibObserver} is a {@link FeatureObserver} implementation
  * that uses cglib to surround source object with a proxy. cglib doesn't
  * need interfaces to create a proxy like a {@link java.lang.reflect.Proxy} instance.
- * This {@link FeatureObserver} searches the source class for a standard constructor.
  *
- * If there is no standard constructor the observer try to lookup the first available
- * constructor and use this if it has no primitive arguments. Otherwise it tries another one.
- * When a constructor is found that doesn't have primitive arguments the observer tries to create
- * an instance while all arguments will have a null value.
+ * The proxy is created without calling any constructor of the source class, see
+ * {@link ConstructorFreeInstantiator}. Its fields are never used because every method is
+ * passed to the source object, so the source class may have any constructor and the cost of
+ * creating a proxy doesn't depend on it. Only if the JVM doesn't support this the standard
+ * constructor of the source class is called. If there is no standard constructor either the
+ * first public constructor is called with null for every object argument and a default value
+ * for every primitive argument, so you must ensure that such a constructor doesn't contain
+ * further logic and doesn't throw any exceptions.
  *
- * So when you want to use this {@link FeatureObserver} you must ensure that to further logic is in
- * constructor and that a constructor doesn't throw any exceptions.
+ * Only methods with a {@link com.googlecode.fitchy.annotation.FeatureSwitch} annotation are intercepted.
+ * All other methods are dispatched directly to the source object. Intercepted methods are called
+ * through the {@link MethodProxy} of cglib.
+ *
+ * If you don't need a separate source object use {@link #create(Class, FeatureContext)}. It creates
+ * an enhanced instance that is the real object itself.
+ *
+ * The enhanced class and the constructor that is used to instantiate it are created once for every
+ * source class and cached with a {@link ClassValue}, so the cache doesn't prevent the class loader
+ * of a source class from being collected. Creating a proxy of a known class only allocates the
+ * instance and sets its callbacks.
  *
  * User: Andreas Kaubisch <andreas.kaubisch@gmail.com>
  * Date: 6/24/12
@@ -59,113 +77,296 @@ public class CglibObserver implements FeatureObserver {
     static {
         DEFAULT_VALUE_MAP = new HashMap<Class<?>, Object>();
         DEFAULT_VALUE_MAP.put(Integer.TYPE, -1);
-        DEFAULT_VALUE_MAP.put(Long.TYPE, -1);
-        DEFAULT_VALUE_MAP.put(Double.TYPE, -1);
-        DEFAULT_VALUE_MAP.put(Float.TYPE, -1);
-        DEFAULT_VALUE_MAP.put(Byte.TYPE, -1);
+        DEFAULT_VALUE_MAP.put(Long.TYPE, -1L);
+        DEFAULT_VALUE_MAP.put(Double.TYPE, -1d);
+        DEFAULT_VALUE_MAP.put(Float.TYPE, -1f);
+        DEFAULT_VALUE_MAP.put(Byte.TYPE, (byte) -1);
+        DEFAULT_VALUE_MAP.put(Short.TYPE, (short) -1);
+        DEFAULT_VALUE_MAP.put(Character.TYPE, '\0');
+        DEFAULT_VALUE_MAP.put(Boolean.TYPE, false);
+    }
+
+    private static final ClassValue<EnhancedClass> OBSERVING_CLASSES = new ClassValue<EnhancedClass>() {
+        @Override
+        protected EnhancedClass computeValue(Class<?> type) {
+            return new EnhancedClass(type, Dispatcher.class, ConstructorFreeInstantiator.isSupported());
+        }
+    };
+
+    private static final ClassValue<EnhancedClass> SELF_CLASSES = new ClassValue<EnhancedClass>() {
+        @Override
+        protected EnhancedClass computeValue(Class<?> type) {
+            return new EnhancedClass(type, NoOp.class, false);
+        }
+    };
+
+    /**
+     * Holds the enhanced subclass of a source class, its standard constructor if there is one
+     * or otherwise its first public constructor, and a {@link ConstructorFreeInstantiator} if
+     * instances should be created without calling a constructor.
+     */
+    static class EnhancedClass {
+
+        private final Class<?> enhancedClass;
+        private final Constructor<?> standardConstructor;
+        private final Constructor<?> firstConstructor;
+        private final ConstructorFreeInstantiator instantiator;
+
+        EnhancedClass(Class<?> type, Class<? extends Callback> dispatcherType, boolean constructorFree) {
+            Enhancer e = new Enhancer();
+            e.setSuperclass(type);
+            e.setCallbackFilter(new FeatureSwitchCallbackFilter(type));
+            e.setCallbackTypes(new Class[] {MethodInterceptor.class, dispatcherType});
+            this.enhancedClass = e.createClass();
+            this.standardConstructor = findConstructor(new Class<?>[] {});
+            Constructor<?>[] constructors = enhancedClass.getConstructors();
+            this.firstConstructor = constructors.length > 0 ? constructors[0] : null;
+            this.instantiator = constructorFree ? ConstructorFreeInstantiator.forClass(enhancedClass) : null;
+        }
+
+        /**
+         * Creates an instance without calling a constructor of the source class and sets its
+         * callbacks through the {@link Factory} interface of the enhanced class. If constructor
+         * free instantiation isn't supported the standard constructor is used or, if there is
+         * none, the first public constructor with the values of {@link #getConstructorValues(Class[])}.
+         *
+         * @param callbacks the callbacks of the new instance
+         * @return the new instance or null if the source class has no public constructor
+         *         and constructor free instantiation isn't supported
+         */
+        Object newInstance(Callback[] callbacks) {
+            if(instantiator != null) {
+                Factory instance = (Factory) instantiator.newInstance();
+                instance.setCallbacks(callbacks);
+                return instance;
+            }
+            if(standardConstructor != null) {
+                return newInstance(standardConstructor, new Object[] {}, callbacks);
+            }
+            if(firstConstructor != null) {
+                return newInstance(firstConstructor, getConstructorValues(firstConstructor.getParameterTypes()), callbacks);
+            }
+            return null;
+        }
+
+        /**
+         * Creates an instance with the constructor of the passed argument types.
+         *
+         * @param argumentTypes argument types of the constructor
+         * @param arguments argument values of the constructor
+         * @param callbacks the callbacks of the new instance
+         * @return the new instance
+         */
+        Object newInstance(Class<?>[] argumentTypes, Object[] arguments, Callback[] callbacks) {
+            Constructor<?> c = argumentTypes.length == 0 ? standardConstructor : findConstructor(argumentTypes);
+            if(c == null) {
+                throw new CannotCreateProxyException("enhanced class has no constructor with the passed argument types");
+            }
+            return newInstance(c, arguments, callbacks);
+        }
+
+        private Object newInstance(Constructor<?> c, Object[] arguments, Callback[] callbacks) {
+            Enhancer.registerCallbacks(enhancedClass, callbacks);
+            try {
+                return c.newInstance(arguments);
+            } catch (InstantiationException e) {
+                throw new CannotCreateProxyException("unable to create cglib proxy", e);
+            } catch (IllegalAccessException e) {
+                throw new CannotCreateProxyException("unable to create cglib proxy", e);
+            } catch (InvocationTargetException e) {
+                throw new CannotCreateProxyException("unable to create cglib proxy", e.getCause());
+            } finally {
+                Enhancer.registerCallbacks(enhancedClass, null);
+            }
+        }
+
+        private Constructor<?> findConstructor(Class<?>[] argumentTypes) {
+            try {
+                return enhancedClass.getConstructor(argumentTypes);
+            } catch (NoSuchMethodException e) {
+                return null;
+            }
+        }
+
+        /**
+         * Create an array of objects that can be used to instantiate an object
+         * with a {@link Constructor} object. It lookup default values in an internal
+         * map (especially for native classes). If no default value is found it fill this
+         * argument with null
+         *
+         * @param classes all argument classes of a constructor
+         * @return an array of possible argument values for a constructor
+         */
+        private static Object[] getConstructorValues(Class<?>[] classes) {
+            Object[] values = new Object[classes.length];
+            for(int i = 0; i < classes.length; i++) {
+                values[i] = DEFAULT_VALUE_MAP.get(classes[i]);
+            }
+
+            return values;
+        }
+    }
+
+    /**
+     * Base class of the {@link MethodInterceptor} implementations of this observer. It looks up
+     * the {@link MethodDecision} of a called method and reads the {@link com.googlecode.fitchy.FeatureCallSite}
+     * of the method that this interceptor keeps for its proxy, see {@link ProxyCallSites}.
+     */
+    abstract static class FeatureSwitchInterceptor implements MethodInterceptor {
+
+        private final Class<?> targetClass;
+        private final ProxyCallSites callSites;
+
+        FeatureSwitchInterceptor(Class<?> targetClass, FeatureContext context) {
+            this.targetClass = targetClass;
+            this.callSites = new ProxyCallSites(new FeatureResolverFactory(context).createResolver());
+        }
+
+        /**
+         * Checks whether method has no {@link com.googlecode.fitchy.annotation.FeatureSwitch} annotation
+         * or its feature is available.
+         *
+         * @param method the called {@link Method}
+         * @return true if the method may be called otherwise false
+         */
+        protected boolean isAvailable(Method method) {
+            MethodDecision decision = MethodDecision.of(targetClass, method);
+            return !decision.isGated() || callSites.isAvailable(method, decision);
+        }
     }
 
     /**
      * Implementation of {@link MethodInterceptor} that is needed when you want to create
      * a proxy with cglib. This Interceptor works the same way like
-     * {@link com.googlecode.fitchy.internal.JavaProxyObserver.ProxyInvocationHandler}.
+     * {@link com.googlecode.fitchy.internal.JavaProxyObserver.ProxyInvocationHandler} but calls
+     * the origin object through the {@link MethodProxy} of cglib instead of reflection.
      */
-    public static class CglibMethodInterceptor implements MethodInterceptor {
+    public static class CglibMethodInterceptor extends FeatureSwitchInterceptor {
 
-        private Object origin;
-        private FeatureContext context;
+        private final Object origin;
 
         public CglibMethodInterceptor(Object origin, FeatureContext context) {
+            super(origin.getClass(), context);
             this.origin = origin;
-            this.context = context;
         }
 
         public Object intercept(Object o, Method method, Object[] objects, MethodProxy methodProxy) throws Throwable {
-            return new AnnotatedMethodInvoker(origin, new FeatureResolverFactory(context)).invoke(method, objects);
+            return isAvailable(method) ? methodProxy.invoke(origin, objects) : null;
         }
     }
 
     /**
-     * {@inheritDoc}
+     * Implementation of {@link MethodInterceptor} for instances created with
+     * {@link CglibObserver#create(Class, FeatureContext)}. The enhanced instance is the
+     * real object so the interceptor calls the method of the super class.
      */
-    public <T> T observe(Object toObserve, FeatureContext context) {
-        throwIllegalArgumentExceptionIfNull(context, "FeatureContext instance is required.");
-        throwIllegalArgumentExceptionIfNull(toObserve, "Observable object is required.");
+    public static class SelfMethodInterceptor extends FeatureSwitchInterceptor {
 
-        Enhancer e = new Enhancer();
-        e.setSuperclass(toObserve.getClass());
-        e.setCallback(new CglibMethodInterceptor(toObserve, context));
-        T proxiedObject = null;
-        if(hasStandardConstructor(toObserve.getClass())) {
-            proxiedObject = (T)e.create();
-        } else {
-            proxiedObject = createProxyWithFirstUsableConstructor(e, toObserve);
+        public SelfMethodInterceptor(Class<?> type, FeatureContext context) {
+            super(type, context);
         }
-        
-        if(proxiedObject == null) {
-        	throw new CannotCreateProxyException("CglibObserver did not found a constructor to enhance target class");
+
+        public Object intercept(Object o, Method method, Object[] objects, MethodProxy methodProxy) throws Throwable {
+            return isAvailable(method) ? methodProxy.invokeSuper(o, objects) : null;
         }
-        return proxiedObject;
     }
 
     /**
-     * Lookup sourceClass for a constructor with zero arguments.
-     * It returns true if a constructor with zero argument is found otherwise
-     * it returns false.
-     *
-     * @param sourceClass {@link Class} which needs to be inspected
-     * @return returns true if standard constructor is found otherwise it returns false
+     * {@link Dispatcher} that is used for all methods without a {@link com.googlecode.fitchy.annotation.FeatureSwitch}
+     * annotation. cglib calls these methods directly on the origin object without
+     * passing arguments through an interceptor.
      */
-    private boolean hasStandardConstructor(Class<?> sourceClass) {
-        boolean hasStandardConstructor = false;
-        try {
-            Constructor c = sourceClass.getConstructor(new Class<?>[]{});
-            hasStandardConstructor = c != null;
-        } catch (NoSuchMethodException e) {
-            hasStandardConstructor = false;
+    public static class OriginDispatcher implements Dispatcher {
+
+        private final Object origin;
+
+        public OriginDispatcher(Object origin) {
+            this.origin = origin;
         }
 
-        return hasStandardConstructor;
+        public Object loadObject() {
+            return origin;
+        }
     }
 
     /**
-     * Searches source class for all available constructor and take the first that not have a primitive class
-     * in his arguments. After that the function will use cglib to create a proxy and return it.
-     *
-     * @param e current {@link Enhancer} of cglib
-     * @param toObserve source object that needs to be surrounded from a proxy
-     * @param <T> target class
-     * @return a proxied target class instance surrounding toObserve
+     * {@link CallbackFilter} that routes methods with a {@link com.googlecode.fitchy.annotation.FeatureSwitch}
+     * annotation to the {@link CglibMethodInterceptor} and all other methods to the
+     * {@link OriginDispatcher}. Two filters of the same target class are equal so cglib
+     * can reuse the generated proxy class.
      */
-    private <T> T createProxyWithFirstUsableConstructor(Enhancer e, Object toObserve) {
-        T proxiedObject = null;
-        Constructor[] constructors = toObserve.getClass().getConstructors();
-        
-        for(Constructor c : constructors) {
-            Class<?>[] argumentClasses = c.getParameterTypes();
-            Object[] values = getConstructorValues(argumentClasses);
-            proxiedObject = (T)e.create(argumentClasses, values);
-            break;
+    static class FeatureSwitchCallbackFilter implements CallbackFilter {
+
+        static final int INTERCEPTOR = 0;
+        static final int DISPATCHER = 1;
+
+        private final Class<?> targetClass;
+
+        FeatureSwitchCallbackFilter(Class<?> targetClass) {
+            this.targetClass = targetClass;
+        }
+
+        public int accept(Method method) {
+            return FeatureSwitchMethods.of(targetClass).isGated(method) ? INTERCEPTOR : DISPATCHER;
+        }
+
+        @Override
+        public boolean equals(Object obj) {
+            return obj instanceof FeatureSwitchCallbackFilter && ((FeatureSwitchCallbackFilter) obj).targetClass == targetClass;
+        }
+
+        @Override
+        public int hashCode() {
+            return targetClass.hashCode();
         }
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    public <T> T observe(Object toObserve, FeatureContext context) {
+        throwIllegalArgumentExceptionIfNull(context, "FeatureContext instance is required.");
+        throwIllegalArgumentExceptionIfNull(toObserve, "Observable object is required.");
 
+        Callback[] callbacks = new Callback[] {new CglibMethodInterceptor(toObserve, context), new OriginDispatcher(toObserve)};
+        T proxiedObject = (T) OBSERVING_CLASSES.get(toObserve.getClass()).newInstance(callbacks);
+
+        if(proxiedObject == null) {
+        	throw new CannotCreateProxyException("CglibObserver did not found a constructor to enhance target class");
+        }
         return proxiedObject;
     }
 
     /**
-     * Create an array of objects that can be used to instantiate an object
-     * with a {@link Constructor} object. It lookup default values in an internal
-     * map (especially for native classes). If no default value is found it fill this
-     * argument with null
+     * Creates a new instance of type with its standard constructor. Other than
+     * {@link #observe(Object, FeatureContext)} there is no separate source object: the
+     * created instance is an enhanced subclass of type and is the real object itself.
+     * Methods without a {@link com.googlecode.fitchy.annotation.FeatureSwitch} annotation
+     * are not intercepted at all.
      *
-     * @param classes all argument classes of a constructor
-     * @return an array of possible argument values for a constructor
+     * @param type the {@link Class} that needs to be instantiated
+     * @param context current {@link FeatureContext}
+     * @return a new enhanced instance of type
      */
-    private Object[] getConstructorValues(Class<?>[] classes) {
-        Object[] values = new Object[classes.length];
-        for(int i = 0; i < classes.length; i++) {
-            values[i] = DEFAULT_VALUE_MAP.get(classes[i]);
-        }
+    public <T> T create(Class<T> type, FeatureContext context) {
+        return create(type, new Class<?>[] {}, new Object[] {}, context);
+    }
+
+    /**
+     * Works like {@link #create(Class, FeatureContext)} but uses the constructor of type
+     * with the passed argument types.
+     *
+     * @param type the {@link Class} that needs to be instantiated
+     * @param argumentTypes argument types of the constructor
+     * @param arguments argument values of the constructor
+     * @param context current {@link FeatureContext}
+     * @return a new enhanced instance of type
+     */
+    public <T> T create(Class<T> type, Class<?>[] argumentTypes, Object[] arguments, FeatureContext context) {
+        throwIllegalArgumentExceptionIfNull(context, "FeatureContext instance is required.");
+        throwIllegalArgumentExceptionIfNull(type, "type is required.");
 
-        return values;
+        Callback[] callbacks = new Callback[] {new SelfMethodInterceptor(type, context), NoOp.INSTANCE};
+        return type.cast(SELF_CLASSES.get(type).newInstance(argumentTypes, arguments, callbacks));
     }
 }
@@ -0,0 +1,278 @@
+/**
+ *  Licensed to the Apache Software Foundation (ASF) under one
+ *	or more contributor license agreements.  See the NOTICE file
+ *  distributed with this work for additional information
+ *	regarding copyright ownership.  The ASF licenses this file
+ *  to you under the Apache License, Version 2.0 (the
+ *  "License"); you may not use this file except in compliance
+ *  with the License.  You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing,
+ *  software distributed under the License is distributed on an
+ *  "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ *  KIND, either express or implied.  See the License for the
+ *  specific language governing permissions and limitations
+ *  under the License.
+ */
+package com.googlecode.fitchy.internal;
+
+import static com.googlecode.fitchy.util.Preconditions.*;
+
+import java.lang.reflect.Constructor;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Modifier;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import net.sf.cglib.core.AbstractClassGenerator;
+import net.sf.cglib.core.ClassEmitter;
+import net.sf.cglib.core.CodeEmitter;
+import net.sf.cglib.core.Constants;
+import net.sf.cglib.core.EmitUtils;
+import net.sf.cglib.core.MethodInfo;
+import net.sf.cglib.core.ReflectUtils;
+import net.sf.cglib.core.Signature;
+import net.sf.cglib.core.TypeUtils;
+
+import org.objectweb.asm.ClassVisitor;
+import org.objectweb.asm.Label;
+import org.objectweb.asm.Type;
+
+import com.googlecode.fitchy.FeatureContext;
+import com.googlecode.fitchy.FeatureObserver;
+import com.googlecode.fitchy.exception.CannotCreateProxyException;
+import com.googlecode.fitchy.resolver.FeatureResolver;
+import com.googlecode.fitchy.resolver.FeatureResolverFactory;
+
+/**
+ * {@link CompiledProxyObserver} is an implementation of {@link FeatureObserver} that
+ * generates a dedicated proxy class for every observed class. Like {@link JavaProxyObserver}
+ * the source class needs to implement at least one interface.
+ *
+ * Every method of the generated class calls the method of the source object directly. A method
+ * with a {@link com.googlecode.fitchy.annotation.FeatureSwitch} annotation checks its precomputed
+ * {@link FeatureSlot} first. There is no {@link java.lang.reflect.InvocationHandler}, no argument
+ * array and no reflection involved when a method is called.
+ *
+ * If a feature is not available a method returns null, or zero respectively false when its
+ * return type is primitive.
+ */
+public class CompiledProxyObserver implements FeatureObserver {
+
+    private static final ClassValue<CompiledProxyClass> PROXY_CLASSES = new ClassValue<CompiledProxyClass>() {
+        @Override
+        protected CompiledProxyClass computeValue(Class<?> type) {
+            return new CompiledProxyClass(type);
+        }
+    };
+
+    /**
+     * {@inheritDoc}
+     */
+    public <T> T observe(Object obj, FeatureContext context) {
+        throwIllegalArgumentExceptionIfNull(context, "FeatureContext instance is required.");
+        throwIllegalArgumentExceptionIfNull(obj, "observable object is required.");
+        throwIllegalArgumentExceptionIfFalse(obj.getClass().getInterfaces().length != 0, "observable object must implement an interface.");
+        return (T) PROXY_CLASSES.get(obj.getClass()).newInstance(obj, new FeatureResolverFactory(context).createResolver());
+    }
+
+    /**
+     * Holds the generated proxy class of a source class and the {@link MethodDecision} of
+     * every slot of this class.
+     */
+    static class CompiledProxyClass {
+
+        private final Constructor<?> constructor;
+        private final MethodDecision[] slotDecisions;
+
+        CompiledProxyClass(Class<?> targetClass) {
+            Map<String, Method> methods = collectMethods(targetClass.getInterfaces());
+            List<MethodDecision> decisions = new ArrayList<MethodDecision>();
+            int[] slots = new int[methods.size()];
+            int i = 0;
+            for(Method method : methods.values()) {
+                MethodDecision decision = MethodDecision.of(targetClass, method);
+                slots[i++] = decision.isGated() ? decisions.size() : -1;
+                if(decision.isGated()) {
+                    decisions.add(decision);
+                }
+            }
+
+            Generator generator = new Generator(targetClass, new ArrayList<Method>(methods.values()), slots, decisions.size());
+            try {
+                this.constructor = generator.generate().getConstructor(Object.class, FeatureSlot[].class);
+            } catch (NoSuchMethodException e) {
+                throw new CannotCreateProxyException("generated proxy class has no usable constructor", e);
+            }
+            this.slotDecisions = decisions.toArray(new MethodDecision[decisions.size()]);
+        }
+
+        Object newInstance(Object delegate, FeatureResolver resolver) {
+            FeatureSlot[] slots = new FeatureSlot[slotDecisions.length];
+            for(int i = 0; i < slots.length; i++) {
+                slots[i] = new FeatureSlot(resolver, slotDecisions[i]);
+            }
+
+            try {
+                return constructor.newInstance(delegate, slots);
+            } catch (InstantiationException e) {
+                throw new CannotCreateProxyException("unable to create compiled proxy", e);
+            } catch (IllegalAccessException e) {
+                throw new CannotCreateProxyException("unable to create compiled proxy", e);
+            } catch (InvocationTargetException e) {
+                throw new CannotCreateProxyException("unable to create compiled proxy", e.getCause());
+            }
+        }
+
+        /**
+         * Collects all methods of the interfaces and the methods equals, hashCode and toString of
+         * {@link Object}. Methods with the same name and descriptor are only added once.
+         */
+        private static Map<String, Method> collectMethods(Class<?>[] interfaces) {
+            Map<String, Method> methods = new LinkedHashMap<String, Method>();
+            for(Class<?> type : interfaces) {
+                for(Method method : type.getMethods()) {
+                    addMethod(methods, method);
+                }
+            }
+            try {
+                addMethod(methods, Object.class.getMethod("equals", Object.class));
+                addMethod(methods, Object.class.getMethod("hashCode"));
+                addMethod(methods, Object.class.getMethod("toString"));
+            } catch (NoSuchMethodException e) {
+                throw new CannotCreateProxyException(e);
+            }
+            return methods;
+        }
+
+        private static void addMethod(Map<String, Method> methods, Method method) {
+            String key = method.getName() + Type.getMethodDescriptor(method);
+            if(!Modifier.isStatic(method.getModifiers()) && !methods.containsKey(key)) {
+                methods.put(key, method);
+            }
+        }
+    }
+
+    /**
+     * Generates the proxy class with cglib. The class has a constructor that takes the
+     * delegate and all {@link FeatureSlot} instances, a field for each of them and implements
+     * every method by calling the delegate.
+     */
+    static class Generator extends AbstractClassGenerator {
+
+        private static final Source SOURCE = new Source(CompiledProxyObserver.class.getName());
+
+        private static final String DELEGATE_FIELD = "delegate";
+        private static final Type FEATURE_SLOT = Type.getType(FeatureSlot.class);
+        private static final Signature CONSTRUCTOR = new Signature(Constants.CONSTRUCTOR_NAME, Type.VOID_TYPE,
+                new Type[] {Constants.TYPE_OBJECT, Type.getType(FeatureSlot[].class)});
+        private static final Signature IS_AVAILABLE = TypeUtils.parseSignature("boolean isAvailable()");
+
+        private final Class<?> targetClass;
+        private final List<Method> methods;
+        private final int[] slots;
+        private final int slotCount;
+
+        Generator(Class<?> targetClass, List<Method> methods, int[] slots, int slotCount) {
+            super(SOURCE);
+            this.targetClass = targetClass;
+            this.methods = methods;
+            this.slots = slots;
+            this.slotCount = slotCount;
+            setNamePrefix(targetClass.getName());
+            setUseCache(false);
+        }
+
+        Class<?> generate() {
+            return (Class<?>) super.create(targetClass.getName());
+        }
+
+        @Override
+        protected ClassLoader getDefaultClassLoader() {
+            ClassLoader loader = targetClass.getClassLoader();
+            return loader != null ? loader : CompiledProxyObserver.class.getClassLoader();
+        }
+
+        @Override
+        protected Object firstInstance(Class type) {
+            return type;
+        }
+
+        @Override
+        protected Object nextInstance(Object instance) {
+            return instance;
+        }
+
+        public void generateClass(ClassVisitor v) {
+            ClassEmitter ce = new ClassEmitter(v);
+            ce.begin_class(Constants.V1_2, Constants.ACC_PUBLIC | Constants.ACC_FINAL, getClassName(), Constants.TYPE_OBJECT,
+                    TypeUtils.getTypes(targetClass.getInterfaces()), Constants.SOURCE_FILE);
+            ce.declare_field(Constants.ACC_PRIVATE | Constants.ACC_FINAL, DELEGATE_FIELD, Constants.TYPE_OBJECT, null);
+            for(int i = 0; i < slotCount; i++) {
+                ce.declare_field(Constants.ACC_PRIVATE | Constants.ACC_FINAL, slotField(i), FEATURE_SLOT, null);
+            }
+
+            emitConstructor(ce);
+            for(int i = 0; i < methods.size(); i++) {
+                emitMethod(ce, methods.get(i), slots[i]);
+            }
+            ce.end_class();
+        }
+
+        private void emitConstructor(ClassEmitter ce) {
+            CodeEmitter e = ce.begin_method(Constants.ACC_PUBLIC, CONSTRUCTOR, null);
+            e.load_this();
+            e.super_invoke_constructor();
+            e.load_this();
+            e.load_arg(0);
+            e.putfield(DELEGATE_FIELD);
+            for(int i = 0; i < slotCount; i++) {
+                e.load_this();
+                e.load_arg(1);
+                e.aaload(i);
+                e.putfield(slotField(i));
+            }
+            e.return_value();
+            e.end_method();
+        }
+
+        private void emitMethod(ClassEmitter ce, Method method, int slot) {
+            MethodInfo info = ReflectUtils.getMethodInfo(method);
+            CodeEmitter e = EmitUtils.begin_method(ce, info, Constants.ACC_PUBLIC);
+            Label disabled = null;
+            if(slot >= 0) {
+                disabled = e.make_label();
+                e.load_this();
+                e.getfield(slotField(slot));
+                e.invoke_virtual(FEATURE_SLOT, IS_AVAILABLE);
+                e.if_jump(CodeEmitter.EQ, disabled);
+            }
+
+            e.load_this();
+            e.getfield(DELEGATE_FIELD);
+            e.checkcast(info.getClassInfo().getType());
+            e.load_args();
+            e.invoke(info);
+            e.return_value();
+
+            if(disabled != null) {
+                e.mark(disabled);
+                Type returnType = info.getSignature().getReturnType();
+                if(!Type.VOID_TYPE.equals(returnType)) {
+                    e.zero_or_null(returnType);
+                }
+                e.return_value();
+            }
+            e.end_method();
+        }
+
+        private static String slotField(int index) {
+            return "slot" + index;
+        }
+    }
+}
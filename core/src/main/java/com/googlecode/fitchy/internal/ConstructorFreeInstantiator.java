@@ -0,0 +1,115 @@
+/**
+ *  Licensed to the Apache Software Foundation (ASF) under one
+ *	or more contributor license agreements.  See the NOTICE file
+ *  distributed with this work for additional information
+ *	regarding copyright ownership.  The ASF licenses this file
+ *  to you under the Apache License, Version 2.0 (the
+ *  "License"); you may not use this file except in compliance
+ *  with the License.  You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing,
+ *  software distributed under the License is distributed on an
+ *  "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ *  KIND, either express or implied.  See the License for the
+ *  specific language governing permissions and limitations
+ *  under the License.
+ */
+package com.googlecode.fitchy.internal;
+
+import java.lang.reflect.Constructor;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+import com.googlecode.fitchy.exception.CannotCreateProxyException;
+
+/**
+ * Creates instances of a class without calling one of its constructors. Like Objenesis does on
+ * HotSpot it asks <code>sun.reflect.ReflectionFactory</code> for a serialization constructor,
+ * which allocates the class and only runs the constructor of {@link Object}. All fields of
+ * such an instance keep their default values.
+ *
+ * If the JVM doesn't provide a <code>ReflectionFactory</code> {@link #isSupported()} returns
+ * false and no instantiator can be created.
+ */
+final class ConstructorFreeInstantiator {
+
+    private static final Logger LOG = Logger.getLogger(ConstructorFreeInstantiator.class.getName());
+
+    private static final Object REFLECTION_FACTORY;
+    private static final Method NEW_CONSTRUCTOR_FOR_SERIALIZATION;
+
+    static {
+        Object factory = null;
+        Method newConstructor = null;
+        try {
+            Class<?> factoryClass = Class.forName("sun.reflect.ReflectionFactory");
+            factory = factoryClass.getMethod("getReflectionFactory").invoke(null);
+            newConstructor = factoryClass.getMethod("newConstructorForSerialization", Class.class, Constructor.class);
+        } catch (Exception e) {
+            if(LOG.isLoggable(Level.FINE)) {
+                LOG.fine("ReflectionFactory is not available, constructor free instantiation is disabled. " + e.getMessage());
+            }
+            factory = null;
+            newConstructor = null;
+        }
+        REFLECTION_FACTORY = factory;
+        NEW_CONSTRUCTOR_FOR_SERIALIZATION = newConstructor;
+    }
+
+    private final Constructor<?> constructor;
+
+    private ConstructorFreeInstantiator(Constructor<?> constructor) {
+        this.constructor = constructor;
+    }
+
+    /**
+     * @return true if this JVM allows to create instances without calling a constructor
+     */
+    static boolean isSupported() {
+        return NEW_CONSTRUCTOR_FOR_SERIALIZATION != null;
+    }
+
+    /**
+     * Creates an instantiator for type.
+     *
+     * @param type the {@link Class} that needs to be instantiated
+     * @return a new {@link ConstructorFreeInstantiator}
+     * @throws CannotCreateProxyException if the serialization constructor can't be created
+     */
+    static ConstructorFreeInstantiator forClass(Class<?> type) {
+        if(!isSupported()) {
+            throw new CannotCreateProxyException("constructor free instantiation is not supported by this JVM");
+        }
+        try {
+            Constructor<?> constructor = (Constructor<?>) NEW_CONSTRUCTOR_FOR_SERIALIZATION.invoke(REFLECTION_FACTORY,
+                    type, Object.class.getConstructor());
+            constructor.setAccessible(true);
+            return new ConstructorFreeInstantiator(constructor);
+        } catch (NoSuchMethodException e) {
+            throw new CannotCreateProxyException("unable to create serialization constructor for " + type.getName(), e);
+        } catch (IllegalAccessException e) {
+            throw new CannotCreateProxyException("unable to create serialization constructor for " + type.getName(), e);
+        } catch (InvocationTargetException e) {
+            throw new CannotCreateProxyException("unable to create serialization constructor for " + type.getName(), e.getCause());
+        }
+    }
+
+    /**
+     * @return a new instance whose constructors have not been called
+     */
+    Object newInstance() {
+        try {
+            return constructor.newInstance();
+        } catch (InstantiationException e) {
+            throw new CannotCreateProxyException("unable to instantiate " + constructor.getDeclaringClass().getName(), e);
+        } catch (IllegalAccessException e) {
+            throw new CannotCreateProxyException("unable to instantiate " + constructor.getDeclaringClass().getName(), e);
+        } catch (InvocationTargetException e) {
+            throw new CannotCreateProxyException("unable to instantiate " + constructor.getDeclaringClass().getName(), e.getCause());
+        }
+    }
+}
@@ -0,0 +1,76 @@
+/**
+ *  Licensed to the Apache Software Foundation (ASF) under one
+ *	or more contributor license agreements.  See the NOTICE file
+ *  distributed with this work for additional information
+ *	regarding copyright ownership.  The ASF licenses this file
+ *  to you under the Apache License, Version 2.0 (the
+ *  "License"); you may not use this file except in compliance
+ *  with the License.  You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing,
+ *  software distributed under the License is distributed on an
+ *  "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ *  KIND, either express or implied.  See the License for the
+ *  specific language governing permissions and limitations
+ *  under the License.
+ */
+package com.googlecode.fitchy.internal;
+
+import com.googlecode.fitchy.FeatureCallSite;
+import com.googlecode.fitchy.annotation.FeatureSwitch;
+import com.googlecode.fitchy.resolver.FeatureResolver;
+
+/**
+ * The precomputed check of one {@link FeatureSwitch} annotation. It holds the feature name
+ * and all accepted statuses of the annotation. A check is immutable and doesn't depend on a
+ * {@link com.googlecode.fitchy.FeatureContext}, so it can be shared by all proxies of a class.
+ * Every proxy takes the {@link FeatureCallSite} of its own context once and keeps it, see
+ * {@link ProxyCallSites}.
+ */
+public final class FeatureCheck {
+
+    private final String featureName;
+    private final String[] statusNames;
+
+    private FeatureCheck(String featureName, String[] statusNames) {
+        this.featureName = featureName;
+        this.statusNames = statusNames;
+    }
+
+    /**
+     * Creates the check of a {@link FeatureSwitch} annotation.
+     *
+     * @param featureSwitch the annotation
+     * @return a new {@link FeatureCheck}
+     */
+    public static FeatureCheck of(FeatureSwitch featureSwitch) {
+        return new FeatureCheck(featureSwitch.value(), FeatureResolver.statusValuesOf(featureSwitch));
+    }
+
+    /**
+     * Returns the {@link FeatureCallSite} of this check in the context of resolver. The call site
+     * is true whenever the feature has one of the accepted statuses.
+     *
+     * @param resolver the {@link FeatureResolver} of the caller
+     * @return the {@link FeatureCallSite} of the feature and all accepted statuses
+     */
+    public FeatureCallSite getCallSite(FeatureResolver resolver) {
+        return resolver.getCallSite(featureName, statusNames);
+    }
+
+    /**
+     * @return the name of the feature taken from {@link FeatureSwitch#value()}
+     */
+    public String getFeatureName() {
+        return featureName;
+    }
+
+    /**
+     * @return the accepted statuses taken from {@link FeatureSwitch#status()} and {@link FeatureSwitch#statuses()}
+     */
+    public String[] getStatusNames() {
+        return statusNames.clone();
+    }
+}
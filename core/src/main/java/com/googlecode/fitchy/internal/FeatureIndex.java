@@ -0,0 +1,175 @@
+/**
+ *  Licensed to the Apache Software Foundation (ASF) under one
+ *	or more contributor license agreements.  See the NOTICE file
+ *  distributed with this work for additional information
+ *	regarding copyright ownership.  The ASF licenses this file
+ *  to you under the Apache License, Version 2.0 (the
+ *  "License"); you may not use this file except in compliance
+ *  with the License.  You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing,
+ *  software distributed under the License is distributed on an
+ *  "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ *  KIND, either express or implied.  See the License for the
+ *  specific language governing permissions and limitations
+ *  under the License.
+ */
+package com.googlecode.fitchy.internal;
+
+import java.util.ArrayDeque;
+import java.util.Collection;
+import java.util.Deque;
+import java.util.HashSet;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicIntegerArray;
+
+/**
+ * Interns feature names to dense integer ids and stores one int code per id in a
+ * packed {@link AtomicIntegerArray}. The name is hashed only once when its id is
+ * resolved, afterwards the code is read by index.
+ *
+ * An id stays valid after {@link #clear()}. Names that are gone can be released with
+ * {@link #release(Collection)}, their ids are reused for the next new names, so the index
+ * doesn't grow when features are renamed over and over. The id of a name that was
+ * {@link #retain(String) retained}, e.g. because a handle holds it, is never released.
+ * Reads are lock free, writes are rare and synchronized because the array may
+ * need to grow.
+ */
+public final class FeatureIndex {
+
+    /**
+     * The code of an id that has no value.
+     */
+    public static final int EMPTY = 0;
+
+    private static final int INITIAL_CAPACITY = 16;
+
+    private final ConcurrentMap<String, Integer> ids = new ConcurrentHashMap<String, Integer>();
+
+    private volatile AtomicIntegerArray codes = new AtomicIntegerArray(INITIAL_CAPACITY);
+
+    private int size;
+
+    private final Deque<Integer> freeIds = new ArrayDeque<Integer>();
+
+    private final Set<String> retained = new HashSet<String>();
+
+    /**
+     * Returns the id of name. A new id is assigned if name wasn't interned before.
+     *
+     * @param name a feature name
+     * @return the dense id of name
+     */
+    public int idOf(String name) {
+        Integer id = ids.get(name);
+        if(id == null) {
+            synchronized(this) {
+                id = ids.get(name);
+                if(id == null) {
+                    id = freeIds.isEmpty() ? size++ : freeIds.pop();
+                    ids.put(name, id);
+                }
+            }
+        }
+        return id;
+    }
+
+    /**
+     * Returns the id of name like {@link #idOf(String)} and keeps it, so the id of name
+     * is never released and stays valid as long as this index exists.
+     *
+     * @param name a feature name
+     * @return the dense id of name
+     */
+    public synchronized int retain(String name) {
+        retained.add(name);
+        return idOf(name);
+    }
+
+    /**
+     * Releases the ids of names that are not retained. The code of a released id is reset to
+     * {@link #EMPTY} and the id is reused for the next name that is interned.
+     *
+     * @param names feature names that are no longer used, names without an id are ignored
+     */
+    public synchronized void release(Collection<String> names) {
+        AtomicIntegerArray current = codes;
+        for(String name : names) {
+            if(retained.contains(name)) {
+                continue;
+            }
+            Integer id = ids.remove(name);
+            if(id != null) {
+                if(id < current.length()) {
+                    current.set(id, EMPTY);
+                }
+                freeIds.push(id);
+            }
+        }
+    }
+
+    /**
+     * Returns the code stored for id or {@link #EMPTY}.
+     *
+     * @param id an id returned by {@link #idOf(String)}
+     * @return the stored code
+     */
+    public int get(int id) {
+        AtomicIntegerArray current = codes;
+        return id < current.length() ? current.get(id) : EMPTY;
+    }
+
+    /**
+     * Stores a code for id.
+     *
+     * @param id an id returned by {@link #idOf(String)}
+     * @param code the new code
+     */
+    public synchronized void set(int id, int code) {
+        AtomicIntegerArray current = codes;
+        if(id >= current.length()) {
+            AtomicIntegerArray grown = new AtomicIntegerArray(Math.max(current.length() * 2, id + 1));
+            for(int i = 0; i < current.length(); i++) {
+                grown.set(i, current.get(i));
+            }
+            codes = grown;
+            current = grown;
+        }
+        current.set(id, code);
+    }
+
+    /**
+     * Stores the codes of several ids at once. The codes are written to a copy that replaces
+     * the current codes, so a reader sees either all of the new codes or none of them.
+     *
+     * @param ids ids returned by {@link #idOf(String)}
+     * @param newCodes the new code of every id, in the same order as ids
+     */
+    public synchronized void update(int[] ids, int[] newCodes) {
+        AtomicIntegerArray current = codes;
+        int length = current.length();
+        for(int id : ids) {
+            length = Math.max(length, id + 1);
+        }
+        AtomicIntegerArray updated = new AtomicIntegerArray(length);
+        for(int i = 0; i < current.length(); i++) {
+            updated.set(i, current.get(i));
+        }
+        for(int i = 0; i < ids.length; i++) {
+            updated.set(ids[i], newCodes[i]);
+        }
+        codes = updated;
+    }
+
+    /**
+     * Resets the code of every id to {@link #EMPTY}. The ids stay interned. The codes are
+     * replaced at once, so a reader sees either all old codes or none of them.
+     */
+    public synchronized void clear() {
+        codes = new AtomicIntegerArray(codes.length());
+    }
+}
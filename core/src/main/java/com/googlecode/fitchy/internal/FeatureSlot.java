@@ -0,0 +1,47 @@
+/**
+ *  Licensed to the Apache Software Foundation (ASF) under one
+ *	or more contributor license agreements.  See the NOTICE file
+ *  distributed with this work for additional information
+ *	regarding copyright ownership.  The ASF licenses this file
+ *  to you under the Apache License, Version 2.0 (the
+ *  "License"); you may not use this file except in compliance
+ *  with the License.  You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing,
+ *  software distributed under the License is distributed on an
+ *  "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ *  KIND, either express or implied.  See the License for the
+ *  specific language governing permissions and limitations
+ *  under the License.
+ */
+package com.googlecode.fitchy.internal;
+
+import com.googlecode.fitchy.FeatureCallSite;
+import com.googlecode.fitchy.resolver.FeatureResolver;
+
+/**
+ * A {@link FeatureSlot} is precomputed for every method with a
+ * {@link com.googlecode.fitchy.annotation.FeatureSwitch} annotation of a proxy created by
+ * {@link CompiledProxyObserver}. The generated proxy reads its slot and asks it whether
+ * the method of the delegate may be called. The slot reads the feature from the
+ * {@link FeatureCallSite} of its method.
+ *
+ * This class needs to be public because it is accessed from generated classes.
+ */
+public final class FeatureSlot {
+
+    private final FeatureCallSite callSite;
+
+    public FeatureSlot(FeatureResolver resolver, MethodDecision decision) {
+        this.callSite = resolver.getCallSite(decision.getFeatureName(), decision.getStatusNames());
+    }
+
+    /**
+     * @return true if the feature of this slot has the required status
+     */
+    public boolean isAvailable() {
+        return callSite.isAvailable();
+    }
+}
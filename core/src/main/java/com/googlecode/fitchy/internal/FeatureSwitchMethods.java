@@ -0,0 +1,116 @@
+/**
+ *  Licensed to the Apache Software Foundation (ASF) under one
+ *	or more contributor license agreements.  See the NOTICE file
+ *  distributed with this work for additional information
+ *	regarding copyright ownership.  The ASF licenses this file
+ *  to you under the Apache License, Version 2.0 (the
+ *  "License"); you may not use this file except in compliance
+ *  with the License.  You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing,
+ *  software distributed under the License is distributed on an
+ *  "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ *  KIND, either express or implied.  See the License for the
+ *  specific language governing permissions and limitations
+ *  under the License.
+ */
+package com.googlecode.fitchy.internal;
+
+import java.lang.reflect.Method;
+import java.lang.reflect.Modifier;
+import java.util.Collections;
+import java.util.LinkedHashSet;
+import java.util.Set;
+
+import com.googlecode.fitchy.annotation.FeatureSwitch;
+import com.googlecode.fitchy.resolver.AnnotationRetriever;
+
+/**
+ * The result of scanning a class for methods with a {@link FeatureSwitch} annotation. The
+ * scan covers all non-private instance methods of the class and its super classes and all
+ * methods of the implemented interfaces. Like {@link MethodDecision} it looks up the annotation
+ * with an {@link AnnotationRetriever}, so an annotation on an interface method or on the
+ * implementing method is found as well.
+ *
+ * A class is scanned only once, the result is cached with a {@link ClassValue}.
+ */
+public final class FeatureSwitchMethods {
+
+    private static final ClassValue<FeatureSwitchMethods> SCANS = new ClassValue<FeatureSwitchMethods>() {
+        @Override
+        protected FeatureSwitchMethods computeValue(Class<?> type) {
+            return new FeatureSwitchMethods(scan(type));
+        }
+    };
+
+    private final Set<Method> gatedMethods;
+
+    private FeatureSwitchMethods(Set<Method> gatedMethods) {
+        this.gatedMethods = Collections.unmodifiableSet(gatedMethods);
+    }
+
+    /**
+     * Returns the cached scan of type.
+     *
+     * @param type the {@link Class} that needs to be scanned
+     * @return the {@link FeatureSwitchMethods} of type
+     */
+    public static FeatureSwitchMethods of(Class<?> type) {
+        return SCANS.get(type);
+    }
+
+    /**
+     * @return true if no method of the scanned class depends on a feature
+     */
+    public boolean isEmpty() {
+        return gatedMethods.isEmpty();
+    }
+
+    /**
+     * @param method a {@link Method} of the scanned class, its super classes or its interfaces
+     * @return true if the method has a {@link FeatureSwitch} annotation
+     */
+    public boolean isGated(Method method) {
+        return gatedMethods.contains(method);
+    }
+
+    /**
+     * @return all methods with a {@link FeatureSwitch} annotation
+     */
+    public Set<Method> getGatedMethods() {
+        return gatedMethods;
+    }
+
+    private static Set<Method> scan(Class<?> type) {
+        AnnotationRetriever retriever = new AnnotationRetriever(FeatureSwitch.class, type);
+        Set<Method> gated = new LinkedHashSet<Method>();
+        Set<Class<?>> interfaces = new LinkedHashSet<Class<?>>();
+        for(Class<?> current = type; current != null && current != Object.class; current = current.getSuperclass()) {
+            for(Method method : current.getDeclaredMethods()) {
+                int modifiers = method.getModifiers();
+                if(!Modifier.isPrivate(modifiers) && !Modifier.isStatic(modifiers) && retriever.findAnnotation(method) != null) {
+                    gated.add(method);
+                }
+            }
+            collectInterfaces(current, interfaces);
+        }
+        for(Class<?> interfaceType : interfaces) {
+            for(Method method : interfaceType.getDeclaredMethods()) {
+                if(!Modifier.isStatic(method.getModifiers()) && retriever.findAnnotation(method) != null) {
+                    gated.add(method);
+                }
+            }
+        }
+        return gated;
+    }
+
+    private static void collectInterfaces(Class<?> type, Set<Class<?>> interfaces) {
+        for(Class<?> interfaceType : type.getInterfaces()) {
+            if(interfaces.add(interfaceType)) {
+                collectInterfaces(interfaceType, interfaces);
+            }
+        }
+    }
+}
@@ -0,0 +1,178 @@
+/**
+ *  Licensed to the Apache Software Foundation (ASF) under one
+ *	or more contributor license agreements.  See the NOTICE file
+ *  distributed with this work for additional information
+ *	regarding copyright ownership.  The ASF licenses this file
+ *  to you under the Apache License, Version 2.0 (the
+ *  "License"); you may not use this file except in compliance
+ *  with the License.  You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing,
+ *  software distributed under the License is distributed on an
+ *  "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ *  KIND, either express or implied.  See the License for the
+ *  specific language governing permissions and limitations
+ *  under the License.
+ */
+package com.googlecode.fitchy.internal;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.file.ClosedWatchServiceException;
+import java.nio.file.FileSystems;
+import java.nio.file.Path;
+import java.nio.file.StandardWatchEventKinds;
+import java.nio.file.WatchEvent;
+import java.nio.file.WatchKey;
+import java.nio.file.WatchService;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Watches one or more files with a {@link WatchService} and runs a task when one of the files
+ * was created or modified. The task runs on the daemon thread of the watcher, never on the
+ * thread that changed the file.
+ *
+ * Editors and deployment tools often write a file in several steps. So the watcher waits
+ * until the file wasn't changed for the debounce delay before it runs the task once for
+ * all of these changes.
+ */
+public final class FileWatcher implements Closeable {
+
+    private static final Logger LOG = Logger.getLogger(FileWatcher.class.getName());
+
+    private final List<Path> files;
+    private final Map<WatchKey, Set<Path>> fileNames = new HashMap<WatchKey, Set<Path>>();
+    private final long debounceMillis;
+    private final Runnable task;
+    private final WatchService watchService;
+    private final Thread thread;
+
+    /**
+     * Creates a watcher and registers the directory of file. The watcher doesn't
+     * run before {@link #start()} is called.
+     *
+     * @param file the file that needs to be watched
+     * @param debounceMillis the time in milliseconds the file must be unchanged before task runs
+     * @param task the task that is run after the file was changed
+     * @throws IOException if the directory of file can't be watched
+     */
+    public FileWatcher(Path file, long debounceMillis, Runnable task) throws IOException {
+        this(Collections.singletonList(file), debounceMillis, task);
+    }
+
+    /**
+     * Creates a watcher and registers the directories of all files. The task runs once for
+     * changes of several files within the debounce delay. The watcher doesn't run before
+     * {@link #start()} is called.
+     *
+     * @param files the files that need to be watched
+     * @param debounceMillis the time in milliseconds the files must be unchanged before task runs
+     * @param task the task that is run after a file was changed
+     * @throws IOException if the directory of a file can't be watched
+     */
+    public FileWatcher(Collection<Path> files, long debounceMillis, Runnable task) throws IOException {
+        this.files = new ArrayList<Path>();
+        this.debounceMillis = debounceMillis;
+        this.task = task;
+        this.watchService = FileSystems.getDefault().newWatchService();
+        try {
+            for(Path file : files) {
+                Path absolute = file.toAbsolutePath();
+                WatchKey key = absolute.getParent().register(watchService, StandardWatchEventKinds.ENTRY_CREATE, StandardWatchEventKinds.ENTRY_MODIFY);
+                if(!fileNames.containsKey(key)) {
+                    fileNames.put(key, new HashSet<Path>());
+                }
+                fileNames.get(key).add(absolute.getFileName());
+                this.files.add(absolute);
+            }
+        } catch (IOException e) {
+            watchService.close();
+            throw e;
+        }
+        this.thread = new Thread(new Runnable() {
+            public void run() {
+                watch();
+            }
+        }, "fitchy-watcher-" + this.files.get(0).getFileName());
+        this.thread.setDaemon(true);
+    }
+
+    /**
+     * Starts the daemon thread of this watcher.
+     */
+    public void start() {
+        thread.start();
+    }
+
+    /**
+     * Stops watching the files. A running task is finished.
+     */
+    public void close() throws IOException {
+        watchService.close();
+    }
+
+    private void watch() {
+        try {
+            while(true) {
+                if(isFileChanged(watchService.take())) {
+                    debounce();
+                    runTask();
+                }
+            }
+        } catch (ClosedWatchServiceException e) {
+            LOG.fine("watcher of " + files + " was closed");
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    /**
+     * Waits until no change of the files is reported within the debounce delay.
+     */
+    private void debounce() throws InterruptedException {
+        long delay = TimeUnit.MILLISECONDS.toNanos(debounceMillis);
+        long deadline = System.nanoTime() + delay;
+        long remaining;
+        while((remaining = deadline - System.nanoTime()) > 0) {
+            WatchKey key = watchService.poll(remaining, TimeUnit.NANOSECONDS);
+            if(key != null && isFileChanged(key)) {
+                deadline = System.nanoTime() + delay;
+            }
+        }
+    }
+
+    /**
+     * Consumes the events of key and returns true if one of them is about a watched file.
+     */
+    private boolean isFileChanged(WatchKey key) {
+        boolean changed = false;
+        Set<Path> names = fileNames.get(key);
+        for(WatchEvent<?> event : key.pollEvents()) {
+            if(event.kind() == StandardWatchEventKinds.OVERFLOW || (names != null && names.contains(event.context()))) {
+                changed = true;
+            }
+        }
+        key.reset();
+        return changed;
+    }
+
+    private void runTask() {
+        try {
+            task.run();
+        } catch (RuntimeException e) {
+            LOG.log(Level.WARNING, "unable to process change of " + files, e);
+        }
+    }
+}
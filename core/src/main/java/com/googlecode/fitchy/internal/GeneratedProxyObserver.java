@@ -0,0 +1,127 @@
+/**
+ *  Licensed to the Apache Software Foundation (ASF) under one
+ *	or more contributor license agreements.  See the NOTICE file
+ *  distributed with this work for additional information
+ *	regarding copyright ownership.  The ASF licenses this file
+ *  to you under the Apache License, Version 2.0 (the
+ *  "License"); you may not use this file except in compliance
+ *  with the License.  You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing,
+ *  software distributed under the License is distributed on an
+ *  "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ *  KIND, either express or implied.  See the License for the
+ *  specific language governing permissions and limitations
+ *  under the License.
+ */
+package com.googlecode.fitchy.internal;
+
+import static com.googlecode.fitchy.util.Preconditions.*;
+
+import java.lang.reflect.Field;
+import java.lang.reflect.Modifier;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+import com.googlecode.fitchy.FeatureContext;
+import com.googlecode.fitchy.FeatureObserver;
+import com.googlecode.fitchy.GeneratedProxyFactory;
+import com.googlecode.fitchy.resolver.FeatureResolverFactory;
+
+/**
+ * {@link GeneratedProxyObserver} is an implementation of {@link FeatureObserver} that uses
+ * proxy classes generated at compile time by the fitchy-processor module. The proxy of a class
+ * is found by its name: it lives in the same package, its name is the simple name of the class,
+ * prefixed with the names of all enclosing classes joined by an underscore, followed by
+ * {@link #PROXY_SUFFIX}. Its {@link GeneratedProxyFactory} is read from the static field
+ * <code>FACTORY</code>. Because every proxy is found on its own, classes of different compilations
+ * or modules never share a registry that could get out of sync.
+ *
+ * The factory of a class is looked up once and cached with a {@link ClassValue}, so the cache
+ * doesn't prevent the class loader of a source class from being collected. If there is no
+ * generated proxy for the class of an observed object this observer falls back to
+ * {@link JavaProxyObserver}.
+ *
+ * {@link com.googlecode.fitchy.ProxyBuilder} uses a generated proxy automatically whenever one
+ * exists, so you only need to add the fitchy-processor module to the annotation processor path
+ * of your build.
+ */
+public class GeneratedProxyObserver implements FeatureObserver {
+
+    /**
+     * Suffix of the name of a generated proxy class.
+     */
+    public static final String PROXY_SUFFIX = "_FitchyProxy";
+
+    private static final Logger LOG = Logger.getLogger(GeneratedProxyObserver.class.getName());
+
+    private static final ClassValue<GeneratedProxyFactory> FACTORIES = new ClassValue<GeneratedProxyFactory>() {
+        @Override
+        protected GeneratedProxyFactory computeValue(Class<?> type) {
+            return findFactory(type);
+        }
+    };
+
+    private final FeatureObserver fallback = new JavaProxyObserver();
+
+    /**
+     * Checks whether a proxy was generated for type at compile time.
+     *
+     * @param type the {@link Class} of an object that should be observed
+     * @return true if {@link #observe(Object, FeatureContext)} returns a generated proxy for instances of type
+     */
+    public boolean hasProxy(Class<?> type) {
+        return type != null && FACTORIES.get(type) != null;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    public <T> T observe(Object toObserve, FeatureContext context) {
+        throwIllegalArgumentExceptionIfNull(context, "FeatureContext instance is required.");
+        throwIllegalArgumentExceptionIfNull(toObserve, "observable object is required.");
+        GeneratedProxyFactory factory = FACTORIES.get(toObserve.getClass());
+        if(factory == null) {
+            return fallback.observe(toObserve, context);
+        }
+        return (T) factory.create(toObserve, new FeatureResolverFactory(context).createResolver());
+    }
+
+    private static GeneratedProxyFactory findFactory(Class<?> type) {
+        if(type.isAnonymousClass() || type.isLocalClass()) {
+            return null;
+        }
+
+        try {
+            Class<?> proxyClass = Class.forName(getProxyName(type), true, type.getClassLoader());
+            Field field = proxyClass.getDeclaredField("FACTORY");
+            if(!Modifier.isStatic(field.getModifiers()) || !GeneratedProxyFactory.class.isAssignableFrom(field.getType())) {
+                return null;
+            }
+            GeneratedProxyFactory factory = (GeneratedProxyFactory) field.get(null);
+            return factory != null && factory.getTargetClass() == type ? factory : null;
+        } catch (ClassNotFoundException e) {
+            return null;
+        } catch (NoSuchFieldException e) {
+            return null;
+        } catch (IllegalAccessException e) {
+            if(LOG.isLoggable(Level.FINE)) {
+                LOG.fine("cannot read factory of generated proxy. " + e.getMessage());
+            }
+            return null;
+        }
+    }
+
+    private static String getProxyName(Class<?> type) {
+        StringBuilder name = new StringBuilder(type.getSimpleName()).append(PROXY_SUFFIX);
+        Class<?> topLevel = type;
+        while(topLevel.getEnclosingClass() != null) {
+            topLevel = topLevel.getEnclosingClass();
+            name.insert(0, topLevel.getSimpleName() + "_");
+        }
+        String topLevelName = topLevel.getName();
+        return topLevelName.substring(0, topLevelName.lastIndexOf('.') + 1) + name;
+    }
+}
@@ -0,0 +1,362 @@
+/**
+ *  Licensed to the Apache Software Foundation (ASF) under one
+ *	or more contributor license agreements.  See the NOTICE file
+ *  distributed with this work for additional information
+ *	regarding copyright ownership.  The ASF licenses this file
+ *  to you under the Apache License, Version 2.0 (the
+ *  "License"); you may not use this file except in compliance
+ *  with the License.  You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing,
+ *  software distributed under the License is distributed on an
+ *  "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ *  KIND, either express or implied.  See the License for the
+ *  specific language governing permissions and limitations
+ *  under the License.
+ */
+package com.googlecode.fitchy.internal;
+
+import java.util.AbstractSet;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Set;
+
+import com.googlecode.fitchy.util.Preconditions;
+
+/**
+ * An immutable hash map that shares its structure with the map it was derived from. The
+ * entries are kept in a hash array mapped trie: every level consumes five bits of the hash
+ * and only stores the children that exist. {@link #plus(Object, Object)} and
+ * {@link #minus(Object)} copy the nodes on the path to one entry and share all other nodes,
+ * so a change costs O(log32 n) instead of a copy of the whole map.
+ *
+ * Keys with the same hash are kept in a list at the end of their path. Null keys and null
+ * values aren't supported.
+ *
+ * @param <K> type of the keys
+ * @param <V> type of the values
+ */
+public final class HashTrieMap<K, V> {
+
+    private static final int BITS = 5;
+    private static final int MASK = (1 << BITS) - 1;
+
+    @SuppressWarnings("rawtypes")
+    private static final HashTrieMap EMPTY = new HashTrieMap(BitmapNode.EMPTY, 0);
+
+    private final Node root;
+    private final int size;
+
+    private HashTrieMap(Node root, int size) {
+        this.root = root;
+        this.size = size;
+    }
+
+    /**
+     * @return the empty map
+     */
+    @SuppressWarnings("unchecked")
+    public static <K, V> HashTrieMap<K, V> empty() {
+        return EMPTY;
+    }
+
+    /**
+     * @param key the key
+     * @return the value of key or null if this map doesn't contain key
+     */
+    @SuppressWarnings("unchecked")
+    public V get(Object key) {
+        return key == null ? null : (V) root.get(key, hash(key), 0);
+    }
+
+    /**
+     * @param key the key
+     * @return true if this map contains key
+     */
+    public boolean containsKey(Object key) {
+        return get(key) != null;
+    }
+
+    /**
+     * @param key the key
+     * @param value the new value of key
+     * @return a map that contains all entries of this map and maps key to value
+     */
+    public HashTrieMap<K, V> plus(K key, V value) {
+        Preconditions.throwIllegalArgumentExceptionIfNull(key, "key argument must be an instance");
+        Preconditions.throwIllegalArgumentExceptionIfNull(value, "value argument must be an instance");
+        int hash = hash(key);
+        boolean exists = root.get(key, hash, 0) != null;
+        Node next = root.plus(key, hash, value, 0);
+        return next == root ? this : new HashTrieMap<K, V>(next, exists ? size : size + 1);
+    }
+
+    /**
+     * @param key the key
+     * @return a map that contains all entries of this map except the entry of key
+     */
+    public HashTrieMap<K, V> minus(Object key) {
+        if(key == null) {
+            return this;
+        }
+        Node next = root.minus(key, hash(key), 0);
+        if(next == root) {
+            return this;
+        }
+        return new HashTrieMap<K, V>(next != null ? next : BitmapNode.EMPTY, size - 1);
+    }
+
+    /**
+     * @return the amount of entries
+     */
+    public int size() {
+        return size;
+    }
+
+    /**
+     * @return true if this map has no entries
+     */
+    public boolean isEmpty() {
+        return size == 0;
+    }
+
+    /**
+     * @return an unmodifiable view of the keys of this map
+     */
+    public Set<K> keySet() {
+        return new AbstractSet<K>() {
+            @Override
+            @SuppressWarnings("unchecked")
+            public Iterator<K> iterator() {
+                List<Object> keys = new ArrayList<Object>(size);
+                root.collectKeys(keys);
+                return (Iterator<K>) Collections.unmodifiableList(keys).iterator();
+            }
+
+            @Override
+            public boolean contains(Object key) {
+                return containsKey(key);
+            }
+
+            @Override
+            public int size() {
+                return size;
+            }
+        };
+    }
+
+    private static int hash(Object key) {
+        int h = key.hashCode();
+        return h ^ (h >>> 16);
+    }
+
+    private static int bitOf(int hash, int shift) {
+        return 1 << ((hash >>> shift) & MASK);
+    }
+
+    /**
+     * A node of the trie. Changes return a new node or the same node if nothing changed,
+     * {@link #minus(Object, int, int)} returns null for a node without entries.
+     */
+    private abstract static class Node {
+        abstract Object get(Object key, int hash, int shift);
+
+        abstract Node plus(Object key, int hash, Object value, int shift);
+
+        abstract Node minus(Object key, int hash, int shift);
+
+        abstract void collectKeys(Collection<Object> keys);
+    }
+
+    /**
+     * Stores a key and its value or, with a null key, a child node for every set bit of the
+     * bitmap. The array only has slots for the set bits.
+     */
+    private static final class BitmapNode extends Node {
+
+        private static final BitmapNode EMPTY = new BitmapNode(0, new Object[0]);
+
+        private final int bitmap;
+        private final Object[] array;
+
+        private BitmapNode(int bitmap, Object[] array) {
+            this.bitmap = bitmap;
+            this.array = array;
+        }
+
+        private int slotOf(int bit) {
+            return 2 * Integer.bitCount(bitmap & (bit - 1));
+        }
+
+        @Override
+        Object get(Object key, int hash, int shift) {
+            int bit = bitOf(hash, shift);
+            if((bitmap & bit) == 0) {
+                return null;
+            }
+            int slot = slotOf(bit);
+            Object k = array[slot];
+            if(k == null) {
+                return ((Node) array[slot + 1]).get(key, hash, shift + BITS);
+            }
+            return key.equals(k) ? array[slot + 1] : null;
+        }
+
+        @Override
+        Node plus(Object key, int hash, Object value, int shift) {
+            int bit = bitOf(hash, shift);
+            int slot = slotOf(bit);
+            if((bitmap & bit) == 0) {
+                Object[] copy = new Object[array.length + 2];
+                System.arraycopy(array, 0, copy, 0, slot);
+                copy[slot] = key;
+                copy[slot + 1] = value;
+                System.arraycopy(array, slot, copy, slot + 2, array.length - slot);
+                return new BitmapNode(bitmap | bit, copy);
+            }
+            Object k = array[slot];
+            Object v = array[slot + 1];
+            if(k == null) {
+                Node child = ((Node) v).plus(key, hash, value, shift + BITS);
+                return child == v ? this : with(slot, null, child);
+            }
+            if(key.equals(k)) {
+                return v == value ? this : with(slot, k, value);
+            }
+            return with(slot, null, pair(k, v, key, hash, value, shift + BITS));
+        }
+
+        @Override
+        Node minus(Object key, int hash, int shift) {
+            int bit = bitOf(hash, shift);
+            if((bitmap & bit) == 0) {
+                return this;
+            }
+            int slot = slotOf(bit);
+            Object k = array[slot];
+            if(k == null) {
+                Node child = (Node) array[slot + 1];
+                Node next = child.minus(key, hash, shift + BITS);
+                if(next == child) {
+                    return this;
+                }
+                return next != null ? with(slot, null, next) : without(bit, slot);
+            }
+            return key.equals(k) ? without(bit, slot) : this;
+        }
+
+        @Override
+        void collectKeys(Collection<Object> keys) {
+            for(int slot = 0; slot < array.length; slot += 2) {
+                if(array[slot] == null) {
+                    ((Node) array[slot + 1]).collectKeys(keys);
+                } else {
+                    keys.add(array[slot]);
+                }
+            }
+        }
+
+        private BitmapNode with(int slot, Object key, Object value) {
+            Object[] copy = array.clone();
+            copy[slot] = key;
+            copy[slot + 1] = value;
+            return new BitmapNode(bitmap, copy);
+        }
+
+        private BitmapNode without(int bit, int slot) {
+            if(bitmap == bit) {
+                return null;
+            }
+            Object[] copy = new Object[array.length - 2];
+            System.arraycopy(array, 0, copy, 0, slot);
+            System.arraycopy(array, slot + 2, copy, slot, array.length - slot - 2);
+            return new BitmapNode(bitmap ^ bit, copy);
+        }
+
+        private static Node pair(Object key1, Object value1, Object key2, int hash2, Object value2, int shift) {
+            int hash1 = hash(key1);
+            if(hash1 == hash2) {
+                return new CollisionNode(hash1, new Object[] {key1, value1, key2, value2});
+            }
+            return EMPTY.plus(key1, hash1, value1, shift).plus(key2, hash2, value2, shift);
+        }
+    }
+
+    /**
+     * Stores the keys and values of several keys with the same hash.
+     */
+    private static final class CollisionNode extends Node {
+
+        private final int hash;
+        private final Object[] array;
+
+        private CollisionNode(int hash, Object[] array) {
+            this.hash = hash;
+            this.array = array;
+        }
+
+        private int slotOf(Object key) {
+            for(int slot = 0; slot < array.length; slot += 2) {
+                if(key.equals(array[slot])) {
+                    return slot;
+                }
+            }
+            return -1;
+        }
+
+        @Override
+        Object get(Object key, int hash, int shift) {
+            int slot = hash == this.hash ? slotOf(key) : -1;
+            return slot >= 0 ? array[slot + 1] : null;
+        }
+
+        @Override
+        Node plus(Object key, int hash, Object value, int shift) {
+            if(hash != this.hash) {
+                // another hash with the same prefix, split this path one level further
+                return new BitmapNode(bitOf(this.hash, shift), new Object[] {null, this}).plus(key, hash, value, shift);
+            }
+            int slot = slotOf(key);
+            if(slot >= 0) {
+                if(array[slot + 1] == value) {
+                    return this;
+                }
+                Object[] copy = array.clone();
+                copy[slot + 1] = value;
+                return new CollisionNode(hash, copy);
+            }
+            Object[] copy = new Object[array.length + 2];
+            System.arraycopy(array, 0, copy, 0, array.length);
+            copy[array.length] = key;
+            copy[array.length + 1] = value;
+            return new CollisionNode(hash, copy);
+        }
+
+        @Override
+        Node minus(Object key, int hash, int shift) {
+            int slot = hash == this.hash ? slotOf(key) : -1;
+            if(slot < 0) {
+                return this;
+            }
+            if(array.length == 2) {
+                return null;
+            }
+            Object[] copy = new Object[array.length - 2];
+            System.arraycopy(array, 0, copy, 0, slot);
+            System.arraycopy(array, slot + 2, copy, slot, array.length - slot - 2);
+            return new CollisionNode(hash, copy);
+        }
+
+        @Override
+        void collectKeys(Collection<Object> keys) {
+            for(int slot = 0; slot < array.length; slot += 2) {
+                keys.add(array[slot]);
+            }
+        }
+    }
+}
@@ -19,12 +19,15 @@
 package com.googlecode.fitchy.internal;
 
 
+import java.lang.reflect.Constructor;
 import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.InvocationTargetException;
 import java.lang.reflect.Method;
 import java.lang.reflect.Proxy;
 
 import com.googlecode.fitchy.FeatureContext;
 import com.googlecode.fitchy.FeatureObserver;
+import com.googlecode.fitchy.exception.CannotCreateProxyException;
 import com.googlecode.fitchy.resolver.FeatureResolverFactory;
 
 import static com.googlecode.fitchy.util.Preconditions.*;
@@ -36,12 +39,27 @@ import static com.googlecode.fitchy.util.Preconditions.*;
  * The internal static class {@link ProxyInvocationHandler} handles the method invocation
  * of the proxied object.
  *
+ * The proxy class and its constructor are looked up once for every source class and cached
+ * with a {@link ClassValue}, so creating a proxy is a single constructor call. The cache doesn't
+ * prevent the class loader of a source class from being collected.
+ *
  * User: Andreas Kaubisch <andreas.kaubisch@gmail.com>
  * Date: 6/24/12
  * Time: 1:01 PM
  */
 public class JavaProxyObserver implements FeatureObserver {
 
+    private static final ClassValue<Constructor<?>> PROXY_CONSTRUCTORS = new ClassValue<Constructor<?>>() {
+        @Override
+        protected Constructor<?> computeValue(Class<?> type) {
+            try {
+                return Proxy.getProxyClass(type.getClassLoader(), type.getInterfaces()).getConstructor(InvocationHandler.class);
+            } catch (NoSuchMethodException e) {
+                throw new CannotCreateProxyException("proxy class of " + type.getName() + " has no usable constructor", e);
+            }
+        }
+    };
+
     /**
      * The {@link ProxyInvocationHandler} implementation that looks for
      * a {@link com.googlecode.fitchy.annotation.FeatureSwitch} annotation which is marking the method and uses
@@ -49,19 +67,17 @@ public class JavaProxyObserver implements FeatureObserver {
      *
      */
     public static class ProxyInvocationHandler implements InvocationHandler {
-        private Object origin;
-        private FeatureContext context;
+        private final AnnotatedMethodInvoker invoker;
 
         public ProxyInvocationHandler(Object origin, FeatureContext context) {
-            this.origin = origin;
-            this.context = context;
+            this.invoker = new AnnotatedMethodInvoker(origin, new FeatureResolverFactory(context));
         }
 
         /**
          * {@inheritDoc}
          */
         public Object invoke(Object o, Method method, Object[] objects) throws Throwable {
-            return new AnnotatedMethodInvoker(origin, new FeatureResolverFactory(context)).invoke(method, objects);
+            return invoker.invoke(method, objects);
         }
     }
 
@@ -72,6 +88,14 @@ public class JavaProxyObserver implements FeatureObserver {
         throwIllegalArgumentExceptionIfNull(context, "FeatureContext instance is required.");
         throwIllegalArgumentExceptionIfNull(obj, "observable object is required.");
         throwIllegalArgumentExceptionIfFalse(obj.getClass().getInterfaces().length != 0, "observable object must implement an interface.");
-        return (T) Proxy.newProxyInstance(obj.getClass().getClassLoader(), obj.getClass().getInterfaces(), new ProxyInvocationHandler(obj, context));
+        try {
+            return (T) PROXY_CONSTRUCTORS.get(obj.getClass()).newInstance(new ProxyInvocationHandler(obj, context));
+        } catch (InstantiationException e) {
+            throw new CannotCreateProxyException("unable to create java proxy", e);
+        } catch (IllegalAccessException e) {
+            throw new CannotCreateProxyException("unable to create java proxy", e);
+        } catch (InvocationTargetException e) {
+            throw new CannotCreateProxyException("unable to create java proxy", e.getCause());
+        }
     }
 }
@@ -0,0 +1,142 @@
+/**
+ *  Licensed to the Apache Software Foundation (ASF) under one
+ *	or more contributor license agreements.  See the NOTICE file
+ *  distributed with this work for additional information
+ *	regarding copyright ownership.  The ASF licenses this file
+ *  to you under the Apache License, Version 2.0 (the
+ *  "License"); you may not use this file except in compliance
+ *  with the License.  You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing,
+ *  software distributed under the License is distributed on an
+ *  "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ *  KIND, either express or implied.  See the License for the
+ *  specific language governing permissions and limitations
+ *  under the License.
+ */
+package com.googlecode.fitchy.internal;
+
+import java.lang.reflect.Method;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+import com.googlecode.fitchy.FeatureCallSite;
+import com.googlecode.fitchy.annotation.FeatureSwitch;
+import com.googlecode.fitchy.resolver.AnnotationRetriever;
+import com.googlecode.fitchy.resolver.FeatureResolver;
+
+/**
+ * An immutable plan that describes how a call of an observed method is handled.
+ * A {@link MethodDecision} is resolved only once for every pair of target class and
+ * {@link Method} and is cached per target class afterwards. So the annotation lookup
+ * on the method and on the implementing class is not repeated on every call.
+ *
+ * A method without a {@link FeatureSwitch} annotation is represented by a decision
+ * that is not gated and will always be invoked. The {@link TargetMethodInvoker} of a decision
+ * is bound to the method on the first call of {@link #getInvoker()}, so observers that never
+ * call through the decision don't generate an accessor for every method.
+ *
+ * A gated decision checks its feature with a {@link FeatureCheck}. A decision doesn't hold any
+ * state of a {@link com.googlecode.fitchy.FeatureContext}, the {@link FeatureCallSite} of a proxy
+ * is kept by the proxy itself.
+ */
+public final class MethodDecision {
+
+    private static final ClassValue<ConcurrentMap<Method, MethodDecision>> DECISIONS = new ClassValue<ConcurrentMap<Method, MethodDecision>>() {
+        @Override
+        protected ConcurrentMap<Method, MethodDecision> computeValue(Class<?> type) {
+            return new ConcurrentHashMap<Method, MethodDecision>();
+        }
+    };
+
+    private final FeatureCheck check;
+    private final Method method;
+    private volatile TargetMethodInvoker invoker;
+
+    private MethodDecision(FeatureCheck check, Method method) {
+        this.check = check;
+        this.method = method;
+    }
+
+    /**
+     * Returns the cached {@link MethodDecision} for a method that is called on an instance
+     * of targetClass. If there is no decision yet it is resolved from the {@link FeatureSwitch}
+     * annotation of the method or of the implementing method of targetClass.
+     *
+     * @param targetClass the {@link Class} of the original instance, may be null
+     * @param method the {@link Method} that was called from outside
+     * @return the {@link MethodDecision} of this method
+     */
+    public static MethodDecision of(Class<?> targetClass, Method method) {
+        Class<?> owner = targetClass != null ? targetClass : method.getDeclaringClass();
+        ConcurrentMap<Method, MethodDecision> decisions = DECISIONS.get(owner);
+        MethodDecision decision = decisions.get(method);
+        if(decision == null) {
+            decision = resolve(owner, method);
+            MethodDecision existing = decisions.putIfAbsent(method, decision);
+            if(existing != null) {
+                decision = existing;
+            }
+        }
+
+        return decision;
+    }
+
+    private static MethodDecision resolve(Class<?> targetClass, Method method) {
+        AnnotationRetriever retriever = new AnnotationRetriever(FeatureSwitch.class, targetClass);
+        FeatureSwitch featureSwitch = retriever.findAnnotation(method);
+        return new MethodDecision(featureSwitch != null ? FeatureCheck.of(featureSwitch) : null, method);
+    }
+
+    /**
+     * Returns whether the method is annotated with {@link FeatureSwitch} and
+     * its invocation depends on a feature.
+     *
+     * @return true if the method has a {@link FeatureSwitch} annotation
+     */
+    public boolean isGated() {
+        return check != null;
+    }
+
+    /**
+     * Returns the {@link FeatureCallSite} of this gated decision in the context of resolver,
+     * see {@link FeatureCheck#getCallSite(FeatureResolver)}.
+     *
+     * @param resolver the {@link FeatureResolver} of the calling proxy
+     * @return the {@link FeatureCallSite} that is true if the feature has the required status
+     */
+    public FeatureCallSite getCallSite(FeatureResolver resolver) {
+        return check.getCallSite(resolver);
+    }
+
+    /**
+     * @return the name of the feature taken from {@link FeatureSwitch#value()}
+     */
+    public String getFeatureName() {
+        return check != null ? check.getFeatureName() : null;
+    }
+
+    /**
+     * @return the accepted statuses taken from {@link FeatureSwitch#status()} and {@link FeatureSwitch#statuses()}
+     */
+    public String[] getStatusNames() {
+        return check != null ? check.getStatusNames() : null;
+    }
+
+    /**
+     * Returns the {@link TargetMethodInvoker} of the method and binds it on the first call.
+     * Two threads may bind it at the same time, which is harmless.
+     *
+     * @return the {@link TargetMethodInvoker} that calls the method on a target object
+     */
+    public TargetMethodInvoker getInvoker() {
+        TargetMethodInvoker current = invoker;
+        if(current == null) {
+            current = TargetMethodInvoker.bind(method);
+            invoker = current;
+        }
+        return current;
+    }
+}
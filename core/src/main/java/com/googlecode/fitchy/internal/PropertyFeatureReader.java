@@ -19,10 +19,11 @@
 package com.googlecode.fitchy.internal;
 
 
+import java.io.BufferedReader;
 import java.io.IOException;
 import java.io.InputStream;
-import java.util.Enumeration;
-import java.util.Properties;
+import java.io.InputStreamReader;
+import java.nio.charset.Charset;
 
 import com.googlecode.fitchy.Configuration;
 import com.googlecode.fitchy.Feature;
@@ -32,14 +33,32 @@ import com.googlecode.fitchy.exception.UnsupportedFormatException;
 /**
  * Implementation of {@link FeatureReader} that can read streams from 
  * a properties file or resource.
+ *
+ * The stream is parsed line by line while features are read, in the format of
+ * {@link java.util.Properties#load(InputStream)}: ISO 8859-1 with unicode escapes, comment lines
+ * starting with <code>#</code> or <code>!</code>, keys separated by <code>=</code>, <code>:</code>
+ * or whitespace and lines continued with a trailing backslash. Only the current line is kept
+ * in memory, so the features are returned in the order of the stream and a key that occurs
+ * twice is returned twice. {@link com.googlecode.fitchy.FeatureContext.Builder} keeps the
+ * last occurrence, like {@link java.util.Properties} does.
  * 
  * @author Andreas Kaubisch <andreas.kaubisch@gmail.com>
  */
 public class PropertyFeatureReader extends FeatureReader {
 
-	private Properties rawEntryData;
-	
-	private Enumeration<Object> keyEnum;
+	private static final Charset CHARSET = Charset.forName("ISO-8859-1");
+
+	private static final int BUFFER_SIZE = 8192;
+
+	private final BufferedReader lineReader;
+
+	private final StringBuilder line = new StringBuilder();
+
+	private final StringBuilder token = new StringBuilder();
+
+	private boolean lineRead;
+
+	private IOException readError;
 
 	/**
 	 * constructor of super class {@link FeatureReader}
@@ -51,16 +70,16 @@ public class PropertyFeatureReader extends FeatureReader {
 	 */
 	public PropertyFeatureReader(InputStream is, Configuration options) {
 		super(is, options);
-		try {
-			rawEntryData = new Properties();
-			rawEntryData.load(is);
-			keyEnum = rawEntryData.keys();
-		} catch (IOException e) {
-            //do nothing. exception will be thrown at function read()
-		} catch (NullPointerException e) {
-            //do nothing. exception will be thrown at function read()
-        }
-		
+		//a missing stream is reported by function read()
+		lineReader = is != null ? new BufferedReader(new InputStreamReader(is, CHARSET), BUFFER_SIZE) : null;
+		if(lineReader != null) {
+			//like before the first line is read at once, an error is thrown at function read()
+			try {
+				lineRead = readLogicalLine();
+			} catch (IOException e) {
+				readError = e;
+			}
+		}
 	}
 
 	/* (non-Javadoc)
@@ -68,18 +87,130 @@ public class PropertyFeatureReader extends FeatureReader {
 	 */
 	@Override
 	public Feature read() {
-        if(keyEnum == null || rawEntryData == null) {
+        if(lineReader == null) {
             throw new UnsupportedFormatException("unable from InputStream");
         }
 
-		Feature next = null;
-		if(keyEnum.hasMoreElements()) {
-			Object key = keyEnum.nextElement();
-			if(key instanceof String) {
-				String value = rawEntryData.getProperty((String)key, options.disabledStatus.getSystemName());
-				next = new Feature((String)key, options.statusOf(value));
+		if(readError != null) {
+			throw new UnsupportedFormatException("unable to read features from InputStream", readError);
+		}
+		try {
+			if(!lineRead && !readLogicalLine()) {
+				return null;
 			}
+		} catch (IOException e) {
+			throw new UnsupportedFormatException("unable to read features from InputStream", e);
 		}
-		return next;
+		lineRead = false;
+		return parseEntry();
+	}
+
+	/**
+	 * Reads the next line that isn't empty or a comment into {@link #line}. Continued lines are
+	 * joined without their trailing backslash and leading whitespace.
+	 *
+	 * @return false if the end of the stream is reached
+	 */
+	private boolean readLogicalLine() throws IOException {
+		line.setLength(0);
+		boolean continued = false;
+		String physical;
+		while((physical = lineReader.readLine()) != null) {
+			int start = skipWhitespace(physical, 0, physical.length());
+			if(!continued && (start == physical.length() || physical.charAt(start) == '#' || physical.charAt(start) == '!')) {
+				continue;
+			}
+			line.append(physical, start, physical.length());
+
+			int backslashes = 0;
+			while(backslashes < line.length() && line.charAt(line.length() - 1 - backslashes) == '\\') {
+				backslashes++;
+			}
+			if(backslashes % 2 == 0) {
+				return true;
+			}
+			line.setLength(line.length() - 1);
+			continued = true;
+		}
+		return continued;
+	}
+
+	private Feature parseEntry() {
+		int length = line.length();
+		int keyEnd = 0;
+		boolean escaped = false;
+		while(keyEnd < length) {
+			char c = line.charAt(keyEnd);
+			if(escaped) {
+				escaped = false;
+			} else if(c == '\\') {
+				escaped = true;
+			} else if(c == '=' || c == ':' || isWhitespace(c)) {
+				break;
+			}
+			keyEnd++;
+		}
+
+		int valueStart = skipWhitespace(line, keyEnd, length);
+		if(valueStart < length && (line.charAt(valueStart) == '=' || line.charAt(valueStart) == ':')
+				&& (keyEnd == valueStart || isWhitespace(line.charAt(keyEnd)))) {
+			valueStart = skipWhitespace(line, valueStart + 1, length);
+		}
+
+		String key = unescape(0, keyEnd);
+		String value = unescape(valueStart, length);
+		return new Feature(key, options.statusOf(value));
+	}
+
+	private String unescape(int start, int end) {
+		token.setLength(0);
+		int i = start;
+		while(i < end) {
+			char c = line.charAt(i++);
+			if(c != '\\' || i == end) {
+				token.append(c);
+				continue;
+			}
+			c = line.charAt(i++);
+			switch (c) {
+				case 't':
+					token.append('\t');
+					break;
+				case 'n':
+					token.append('\n');
+					break;
+				case 'r':
+					token.append('\r');
+					break;
+				case 'f':
+					token.append('\f');
+					break;
+				case 'u':
+					if(i + 4 > end) {
+						throw new UnsupportedFormatException("malformed \\uxxxx encoding in line " + line);
+					}
+					try {
+						token.append((char) Integer.parseInt(line.substring(i, i + 4), 16));
+					} catch (NumberFormatException e) {
+						throw new UnsupportedFormatException("malformed \\uxxxx encoding in line " + line, e);
+					}
+					i += 4;
+					break;
+				default:
+					token.append(c);
+			}
+		}
+		return token.toString();
+	}
+
+	private static int skipWhitespace(CharSequence chars, int start, int end) {
+		while(start < end && isWhitespace(chars.charAt(start))) {
+			start++;
+		}
+		return start;
+	}
+
+	private static boolean isWhitespace(char c) {
+		return c == ' ' || c == '\t' || c == '\f';
 	}
 }
@@ -0,0 +1,62 @@
+/**
+ *  Licensed to the Apache Software Foundation (ASF) under one
+ *	or more contributor license agreements.  See the NOTICE file
+ *  distributed with this work for additional information
+ *	regarding copyright ownership.  The ASF licenses this file
+ *  to you under the Apache License, Version 2.0 (the
+ *  "License"); you may not use this file except in compliance
+ *  with the License.  You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing,
+ *  software distributed under the License is distributed on an
+ *  "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ *  KIND, either express or implied.  See the License for the
+ *  specific language governing permissions and limitations
+ *  under the License.
+ */
+package com.googlecode.fitchy.internal;
+
+import java.lang.reflect.Method;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+import com.googlecode.fitchy.FeatureCallSite;
+import com.googlecode.fitchy.resolver.FeatureResolver;
+
+/**
+ * The {@link FeatureCallSite} instances of a single proxy. A proxy belongs to exactly one
+ * {@link com.googlecode.fitchy.FeatureContext}, so the call site of a gated method is taken from
+ * its {@link FeatureResolver} on the first call and read directly on every following call.
+ * Proxies of the same class share their {@link MethodDecision} instances but never their call sites.
+ */
+final class ProxyCallSites {
+
+    private final FeatureResolver resolver;
+
+    private final ConcurrentMap<Method, FeatureCallSite> callSites = new ConcurrentHashMap<Method, FeatureCallSite>(8, 0.75f, 1);
+
+    ProxyCallSites(FeatureResolver resolver) {
+        this.resolver = resolver;
+    }
+
+    /**
+     * Checks whether the feature of a gated method is available.
+     *
+     * @param method the called {@link Method}
+     * @param decision the gated {@link MethodDecision} of method
+     * @return true if the feature has the required status
+     */
+    boolean isAvailable(Method method, MethodDecision decision) {
+        FeatureCallSite callSite = callSites.get(method);
+        if(callSite == null) {
+            callSite = decision.getCallSite(resolver);
+            FeatureCallSite existing = callSites.putIfAbsent(method, callSite);
+            if(existing != null) {
+                callSite = existing;
+            }
+        }
+        return callSite.isAvailable();
+    }
+}
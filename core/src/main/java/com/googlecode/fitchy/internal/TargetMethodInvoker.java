@@ -0,0 +1,329 @@
+/**
+ *  Licensed to the Apache Software Foundation (ASF) under one
+ *	or more contributor license agreements.  See the NOTICE file
+ *  distributed with this work for additional information
+ *	regarding copyright ownership.  The ASF licenses this file
+ *  to you under the Apache License, Version 2.0 (the
+ *  "License"); you may not use this file except in compliance
+ *  with the License.  You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing,
+ *  software distributed under the License is distributed on an
+ *  "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ *  KIND, either express or implied.  See the License for the
+ *  specific language governing permissions and limitations
+ *  under the License.
+ */
+package com.googlecode.fitchy.internal;
+
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Modifier;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+import net.sf.cglib.core.AbstractClassGenerator;
+import net.sf.cglib.core.ClassEmitter;
+import net.sf.cglib.core.CodeEmitter;
+import net.sf.cglib.core.Constants;
+import net.sf.cglib.core.EmitUtils;
+import net.sf.cglib.core.MethodInfo;
+import net.sf.cglib.core.ReflectUtils;
+import net.sf.cglib.core.Signature;
+import net.sf.cglib.core.TypeUtils;
+
+import org.objectweb.asm.ClassVisitor;
+import org.objectweb.asm.Type;
+
+/**
+ * Invocation engine that calls a target method without {@link Method#invoke(Object, Object...)}.
+ * The invoker is bound only once when a {@link MethodDecision} is built.
+ *
+ * For a public method of a public class a small {@link Accessor} class is generated that calls
+ * the method directly, unboxes the arguments and boxes the return value. There is no method
+ * handle or reflective call the JIT would have to see through, so the call can be inlined like
+ * every other virtual call. Accessors are cached per declaring class and method with a
+ * {@link ClassValue}, so proxies of different classes that share an interface share its accessors.
+ *
+ * Every other method is unreflected into a {@link MethodHandle} of the shape
+ * <code>(Object target, Object[] arguments)Object</code>. If the method isn't accessible the
+ * accessible flag is set on a private copy of it, the {@link Method} that was passed to
+ * {@link #bind(Method)} is never changed. If even that fails the invoker falls back to reflection.
+ * Exceptions of the target method are always thrown unwrapped.
+ */
+public final class TargetMethodInvoker {
+
+    private static final Logger LOG = Logger.getLogger(TargetMethodInvoker.class.getName());
+
+    private static final ClassValue<ConcurrentMap<Method, Accessor>> ACCESSORS = new ClassValue<ConcurrentMap<Method, Accessor>>() {
+        @Override
+        protected ConcurrentMap<Method, Accessor> computeValue(Class<?> type) {
+            return new ConcurrentHashMap<Method, Accessor>();
+        }
+    };
+
+    private final Method method;
+
+    private final Accessor accessor;
+
+    private TargetMethodInvoker(Method method, Accessor accessor) {
+        this.method = method;
+        this.accessor = accessor;
+    }
+
+    /**
+     * Calls a bound method. Implementations are generated at runtime and need to be
+     * public because they are defined in the package of the target method.
+     */
+    public abstract static class Accessor {
+
+        /**
+         * Invokes the bound method.
+         *
+         * @param target the object the method is called on, ignored for static methods
+         * @param arguments all arguments of the method call, may be null if the method has no arguments
+         * @return the return value of the method or null if its return type is void
+         * @throws Throwable every exception the target method throws
+         */
+        public abstract Object invoke(Object target, Object[] arguments) throws Throwable;
+    }
+
+    /**
+     * Creates a new {@link TargetMethodInvoker} that is bound to passed method.
+     *
+     * @param method the {@link Method} that needs to be invoked later
+     * @return a new {@link TargetMethodInvoker}
+     */
+    public static TargetMethodInvoker bind(Method method) {
+        return new TargetMethodInvoker(method, accessorOf(method));
+    }
+
+    private static Accessor accessorOf(Method method) {
+        if(!isPublic(method)) {
+            return handleAccessor(method);
+        }
+
+        ConcurrentMap<Method, Accessor> accessors = ACCESSORS.get(method.getDeclaringClass());
+        Accessor accessor = accessors.get(method);
+        if(accessor == null) {
+            accessor = generateAccessor(method);
+            Accessor existing = accessors.putIfAbsent(method, accessor);
+            accessor = existing != null ? existing : accessor;
+        }
+        return accessor;
+    }
+
+    private static boolean isPublic(Method method) {
+        return Modifier.isPublic(method.getModifiers()) && Modifier.isPublic(method.getDeclaringClass().getModifiers());
+    }
+
+    private static Accessor generateAccessor(Method method) {
+        try {
+            return (Accessor) new Generator(method).generate().newInstance();
+        } catch (InstantiationException e) {
+            logFallback(e);
+        } catch (IllegalAccessException e) {
+            logFallback(e);
+        } catch (RuntimeException e) {
+            logFallback(e);
+        } catch (LinkageError e) {
+            logFallback(e);
+        }
+        return handleAccessor(method);
+    }
+
+    private static void logFallback(Throwable e) {
+        if(LOG.isLoggable(Level.FINE)) {
+            LOG.fine("cannot generate accessor, use method handle instead. " + e.getMessage());
+        }
+    }
+
+    private static Accessor handleAccessor(Method method) {
+        Method accessibleMethod = method;
+        MethodHandle handle = unreflect(method);
+        if(handle == null) {
+            accessibleMethod = accessibleCopy(method);
+            handle = accessibleMethod != null ? unreflect(accessibleMethod) : null;
+        }
+
+        if(handle == null) {
+            return new ReflectionAccessor(accessibleMethod != null ? accessibleMethod : method);
+        }
+
+        int parameterCount = method.getParameterTypes().length;
+        if(Modifier.isStatic(method.getModifiers())) {
+            handle = MethodHandles.dropArguments(handle, 0, Object.class);
+        }
+        return new HandleAccessor(handle.asType(MethodType.genericMethodType(parameterCount + 1))
+                                        .asSpreader(Object[].class, parameterCount));
+    }
+
+    private static MethodHandle unreflect(Method method) {
+        try {
+            return MethodHandles.lookup().unreflect(method);
+        } catch (IllegalAccessException e) {
+            if(LOG.isLoggable(Level.FINE)) {
+                LOG.fine("cannot bind method handle. " + e.getMessage());
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Looks up a new {@link Method} instance of method and sets its accessible flag, so the
+     * method that is shared with other callers keeps its flag.
+     *
+     * @return the accessible copy or null if the flag cannot be set
+     */
+    private static Method accessibleCopy(Method method) {
+        try {
+            Method copy = method.getDeclaringClass().getDeclaredMethod(method.getName(), method.getParameterTypes());
+            copy.setAccessible(true);
+            return copy;
+        } catch (NoSuchMethodException e) {
+            if(LOG.isLoggable(Level.FINE)) {
+                LOG.fine("cannot copy method, use reflection instead. " + e.getMessage());
+            }
+        } catch (RuntimeException e) {
+            if(LOG.isLoggable(Level.FINE)) {
+                LOG.fine("cannot change accessible flag, use reflection instead. " + e.getMessage());
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Invokes the bound method on target with passed arguments.
+     *
+     * @param target the object the method is called on
+     * @param arguments all arguments of the method call, may be null if the method has no arguments
+     * @return the return value of the method or null if its return type is void
+     * @throws Throwable every exception the target method throws
+     */
+    public Object invoke(Object target, Object[] arguments) throws Throwable {
+        return accessor.invoke(target, arguments);
+    }
+
+    /**
+     * @return the {@link Method} this invoker is bound to
+     */
+    public Method getMethod() {
+        return method;
+    }
+
+    /**
+     * {@link Accessor} that calls a spread {@link MethodHandle}.
+     */
+    static final class HandleAccessor extends Accessor {
+
+        private final MethodHandle handle;
+
+        HandleAccessor(MethodHandle handle) {
+            this.handle = handle;
+        }
+
+        @Override
+        public Object invoke(Object target, Object[] arguments) throws Throwable {
+            return handle.invokeExact(target, arguments);
+        }
+    }
+
+    /**
+     * {@link Accessor} that calls a method with reflection and unwraps its exceptions.
+     */
+    static final class ReflectionAccessor extends Accessor {
+
+        private final Method method;
+
+        ReflectionAccessor(Method method) {
+            this.method = method;
+        }
+
+        @Override
+        public Object invoke(Object target, Object[] arguments) throws Throwable {
+            try {
+                return method.invoke(target, arguments);
+            } catch (InvocationTargetException e) {
+                throw e.getCause();
+            }
+        }
+    }
+
+    /**
+     * Generates an {@link Accessor} subclass for a single method with cglib. The class is
+     * defined in the class loader of the declaring class of the method.
+     */
+    static class Generator extends AbstractClassGenerator {
+
+        private static final Source SOURCE = new Source(TargetMethodInvoker.class.getName());
+
+        private static final Type ACCESSOR = Type.getType(Accessor.class);
+        private static final Signature INVOKE = TypeUtils.parseSignature("Object invoke(Object, Object[])");
+
+        private final Method method;
+
+        Generator(Method method) {
+            super(SOURCE);
+            this.method = method;
+            setNamePrefix(method.getDeclaringClass().getName());
+            setUseCache(false);
+        }
+
+        Class<?> generate() {
+            return (Class<?>) super.create(method);
+        }
+
+        @Override
+        protected ClassLoader getDefaultClassLoader() {
+            ClassLoader loader = method.getDeclaringClass().getClassLoader();
+            return loader != null ? loader : TargetMethodInvoker.class.getClassLoader();
+        }
+
+        @Override
+        protected Object firstInstance(Class type) {
+            return type;
+        }
+
+        @Override
+        protected Object nextInstance(Object instance) {
+            return instance;
+        }
+
+        public void generateClass(ClassVisitor v) {
+            ClassEmitter ce = new ClassEmitter(v);
+            ce.begin_class(Constants.V1_2, Constants.ACC_PUBLIC | Constants.ACC_FINAL, getClassName(), ACCESSOR, null, Constants.SOURCE_FILE);
+            EmitUtils.null_constructor(ce);
+
+            MethodInfo info = ReflectUtils.getMethodInfo(method);
+            CodeEmitter e = ce.begin_method(Constants.ACC_PUBLIC, INVOKE, new Type[] {Constants.TYPE_THROWABLE});
+            if(!TypeUtils.isStatic(info.getModifiers())) {
+                e.load_arg(0);
+                e.checkcast(info.getClassInfo().getType());
+            }
+            Type[] parameterTypes = info.getSignature().getArgumentTypes();
+            for(int i = 0; i < parameterTypes.length; i++) {
+                e.load_arg(1);
+                e.aaload(i);
+                e.unbox(parameterTypes[i]);
+            }
+            e.invoke(info);
+
+            Type returnType = info.getSignature().getReturnType();
+            if(Type.VOID_TYPE.equals(returnType)) {
+                e.aconst_null();
+            } else {
+                e.box(returnType);
+            }
+            e.return_value();
+            e.end_method();
+            ce.end_class();
+        }
+    }
+}
@@ -48,7 +48,32 @@ public class AnnotationRetriever {
         this.originClass = originClass;
     }
 
+    /**
+     * Returns the annotation of the passed {@link Method}. If the method itself isn't annotated
+     * the method with the same signature of the origin class is inspected.
+     *
+     * @param method the {@link Method} that needs to be inspected
+     * @return the found annotation
+     * @throws AnnotationNotFoundException if neither the method nor the implementing method is annotated
+     */
     public <T extends Annotation> T getAnnotation(Method method) throws AnnotationNotFoundException {
+        T annotation = findAnnotation(method);
+        if(annotation == null) {
+            throw new AnnotationNotFoundException("unable to find annotation with classname " + anClass.getName());
+        }
+
+        return annotation;
+    }
+
+    /**
+     * Works like {@link #getAnnotation(Method)} but returns null instead of throwing an
+     * {@link AnnotationNotFoundException} when no annotation is found. Use this function when
+     * a missing annotation is an expected case.
+     *
+     * @param method the {@link Method} that needs to be inspected
+     * @return the found annotation or null
+     */
+    public <T extends Annotation> T findAnnotation(Method method) {
         T annotation = (T) method.getAnnotation(anClass);
         if(annotation == null && originClass != null && !method.getDeclaringClass().equals(originClass)) {
             try {
@@ -66,10 +91,6 @@ public class AnnotationRetriever {
             }
         }
 
-        if(annotation == null) {
-            throw new AnnotationNotFoundException("unable to find annotation with classname " + anClass.getName());
-        }
-
         return annotation;
     }
 }
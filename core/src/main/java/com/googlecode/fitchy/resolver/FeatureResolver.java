@@ -19,6 +19,7 @@
 package com.googlecode.fitchy.resolver;
 
 import com.googlecode.fitchy.Configuration;
+import com.googlecode.fitchy.FeatureCallSite;
 import com.googlecode.fitchy.FeatureContext;
 import com.googlecode.fitchy.FeatureStatus;
 import com.googlecode.fitchy.annotation.FeatureSwitch;
@@ -34,9 +35,9 @@ import com.googlecode.fitchy.annotation.FeatureSwitch;
  */
 public class FeatureResolver {
 
-    private FeatureContext storage;
+    private final FeatureContext storage;
 
-    private Configuration config;
+    private final Configuration config;
 
     public FeatureResolver(FeatureContext context, Configuration config) {
         this.storage = context;
@@ -54,13 +55,108 @@ public class FeatureResolver {
     public boolean isFeatureAvailable(FeatureSwitch annotation) {
         boolean found = false;
         if(annotation != null) {
-            String statusValue = annotation.status();
-            if("".equals(statusValue)) {
-                statusValue = config.enabledStatus.getSystemName();
+            if(annotation.statuses().length == 0) {
+                found = isFeatureAvailable(annotation.value(), annotation.status());
+            } else {
+                found = storage.featureHasAnyStatus(annotation.value(), getStatusMask(statusValuesOf(annotation)));
             }
-            FeatureStatus status = config.statusOf(statusValue);
-            found = storage.featureHasStatus(annotation.value(), status);
         }
         return found;
     }
+
+    /**
+     * Returns the system names of all statuses a {@link FeatureSwitch} annotation accepts, that is
+     * {@link FeatureSwitch#status()} followed by {@link FeatureSwitch#statuses()}.
+     *
+     * @param annotation a {@link FeatureSwitch} annotation
+     * @return all accepted system names, may contain an empty String
+     */
+    public static String[] statusValuesOf(FeatureSwitch annotation) {
+        String[] statuses = annotation.statuses();
+        String[] values = new String[statuses.length + 1];
+        values[0] = annotation.status();
+        System.arraycopy(statuses, 0, values, 1, statuses.length);
+        return values;
+    }
+
+    /**
+     * This function decides whether a feature is available or not like {@link #isFeatureAvailable(FeatureSwitch)}
+     * but takes the already extracted values of a {@link FeatureSwitch} annotation. So callers that cached
+     * these values don't need to access the annotation again.
+     *
+     * @param featureName name of the feature
+     * @param statusValue system name of the desired status or an empty String for the enabled status
+     * @return returns true if the feature has the desired status otherwise it returns false
+     */
+    public boolean isFeatureAvailable(String featureName, String statusValue) {
+        return storage.featureHasStatus(featureName, resolveStatus(statusValue));
+    }
+
+    /**
+     * Returns the {@link FeatureCallSite} of the context for the values of a {@link FeatureSwitch}
+     * annotation. Callers that keep the call site don't need to resolve the statuses and lookup the
+     * feature on every check.
+     *
+     * If the values name a single status the call site compares the status of the feature with it
+     * like {@link FeatureContext#featureHasStatus(String, FeatureStatus)}, so a status that isn't part of
+     * the configuration still matches. Only several statuses are combined to a bitmask.
+     *
+     * @param featureName name of the feature
+     * @param statusValues system names of the accepted statuses, see {@link #getStatusMask(String...)}
+     * @return the {@link FeatureCallSite} of the feature and statuses
+     */
+    public FeatureCallSite getCallSite(String featureName, String... statusValues) {
+        FeatureStatus status = singleStatusOf(statusValues);
+        return status != null ? storage.getCallSite(featureName, status) : storage.getCallSite(featureName, getStatusMask(statusValues));
+    }
+
+    /**
+     * Combines the bits of all statuses to one bitmask. Empty values are skipped, if no value
+     * remains the mask of the enabled status is returned.
+     *
+     * @param statusValues system names of the accepted statuses
+     * @return the combined bitmask of {@link Configuration#maskOf(FeatureStatus)}
+     * @throws com.googlecode.fitchy.exception.StatusNotFoundException if a status is not found
+     */
+    public long getStatusMask(String... statusValues) {
+        long mask = 0L;
+        for(String statusValue : statusValues) {
+            if(!"".equals(statusValue)) {
+                mask |= config.maskOf(config.statusOf(statusValue));
+            }
+        }
+        return mask != 0L ? mask : config.maskOf(resolveStatus(""));
+    }
+
+    /**
+     * @return the {@link FeatureContext} this resolver checks the features against
+     */
+    public FeatureContext getContext() {
+        return storage;
+    }
+
+    /**
+     * @return the only status named by statusValues, the enabled status if there is no value or
+     *         null if the values name several statuses
+     */
+    private FeatureStatus singleStatusOf(String... statusValues) {
+        FeatureStatus single = null;
+        for(String statusValue : statusValues) {
+            if(!"".equals(statusValue)) {
+                FeatureStatus status = config.statusOf(statusValue);
+                if(single != null && single != status) {
+                    return null;
+                }
+                single = status;
+            }
+        }
+        return single != null ? single : resolveStatus("");
+    }
+
+    private FeatureStatus resolveStatus(String statusValue) {
+        if("".equals(statusValue)) {
+            statusValue = config.enabledStatus.getSystemName();
+        }
+        return config.statusOf(statusValue);
+    }
 }
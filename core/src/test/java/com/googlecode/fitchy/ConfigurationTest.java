@@ -0,0 +1,115 @@
+/**
+ *  Licensed to the Apache Software Foundation (ASF) under one
+ *	or more contributor license agreements.  See the NOTICE file
+ *  distributed with this work for additional information
+ *	regarding copyright ownership.  The ASF licenses this file
+ *  to you under the Apache License, Version 2.0 (the
+ *  "License"); you may not use this file except in compliance
+ *  with the License.  You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing,
+ *  software distributed under the License is distributed on an
+ *  "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ *  KIND, either express or implied.  See the License for the
+ *  specific language governing permissions and limitations
+ *  under the License.
+ */
+package com.googlecode.fitchy;
+
+import static org.hamcrest.CoreMatchers.*;
+import static org.junit.Assert.*;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import com.googlecode.fitchy.Configuration.Builder;
+import com.googlecode.fitchy.exception.StatusNotFoundException;
+
+public class ConfigurationTest {
+
+    private Configuration config;
+
+    @Before
+    public void setUp() {
+        config = Builder.fromStatus(TestStatus.ON).build();
+    }
+
+    @Test
+    public void statusOf_WithSystemName_ReturnsStatus() {
+        assertThat(config.statusOf("on"), is((FeatureStatus) TestStatus.ON));
+        assertThat(config.statusOf("off"), is((FeatureStatus) TestStatus.OFF));
+    }
+
+    @Test(expected = StatusNotFoundException.class)
+    public void statusOf_WithUnknownSystemName_throwsException() {
+        config.statusOf("unknown");
+    }
+
+    @Test
+    public void statusOfName_WithEnumName_ReturnsStatus() {
+        assertThat(config.statusOfName("OFF"), is((FeatureStatus) TestStatus.OFF));
+        assertThat(config.statusOfName("off"), is(nullValue()));
+    }
+
+    @Test
+    public void indexOf_WithStatuses_ReturnsPosition() {
+        assertThat(config.indexOf(TestStatus.ON), is(0));
+        assertThat(config.indexOf(TestStatus.OFF), is(1));
+        assertThat(config.indexOf(null), is(-1));
+    }
+
+    @Test
+    public void indexOf_WithReorderedList_ReturnsPositionInList() {
+        List<Enum<? extends FeatureStatus>> statuses = new ArrayList<Enum<? extends FeatureStatus>>();
+        statuses.add(TestStatus.OFF);
+        statuses.add(TestStatus.ON);
+        config.setStatusList(statuses);
+        assertThat(config.indexOf(TestStatus.OFF), is(0));
+        assertThat(config.maskOf(TestStatus.ON), is(2L));
+    }
+
+    @Test
+    public void maskOf_WithStatuses_ReturnsSingleBit() {
+        assertThat(config.maskOf(TestStatus.ON), is(1L));
+        assertThat(config.maskOf(TestStatus.OFF), is(2L));
+        assertThat(config.maskOf(null), is(0L));
+    }
+
+    @Test
+    public void indexOf_WithConstantMissingInList_ReturnsMinusOne() {
+        List<Enum<? extends FeatureStatus>> statuses = new ArrayList<Enum<? extends FeatureStatus>>();
+        statuses.add(TestStatus.ON);
+        config.setStatusList(statuses);
+        assertThat(config.indexOf(TestStatus.ON), is(0));
+        assertThat(config.indexOf(TestStatus.OFF), is(-1));
+        assertThat(config.maskOf(TestStatus.OFF), is(0L));
+    }
+
+    @Test
+    public void setStatusList_ChangedAfterwards_KeepsConfiguredStatuses() {
+        List<Enum<? extends FeatureStatus>> statuses = new ArrayList<Enum<? extends FeatureStatus>>();
+        statuses.add(TestStatus.ON);
+        config.setStatusList(statuses);
+        statuses.add(TestStatus.OFF);
+        assertThat(config.getStatusList().size(), is(1));
+        assertThat(config.indexOf(TestStatus.OFF), is(-1));
+    }
+
+    @Test(expected = UnsupportedOperationException.class)
+    public void getStatusList_Changed_throwsException() {
+        config.getStatusList().clear();
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void setStatusList_WithTooManyStatuses_throwsException() {
+        Enum<? extends FeatureStatus>[] statuses = new TestStatus[Configuration.MAX_STATUS_COUNT + 1];
+        Arrays.fill(statuses, TestStatus.ON);
+        config.setStatusList(Arrays.<Enum<? extends FeatureStatus>>asList(statuses));
+    }
+}
@@ -0,0 +1,137 @@
+/**
+ *  Licensed to the Apache Software Foundation (ASF) under one
+ *	or more contributor license agreements.  See the NOTICE file
+ *  distributed with this work for additional information
+ *	regarding copyright ownership.  The ASF licenses this file
+ *  to you under the Apache License, Version 2.0 (the
+ *  "License"); you may not use this file except in compliance
+ *  with the License.  You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing,
+ *  software distributed under the License is distributed on an
+ *  "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ *  KIND, either express or implied.  See the License for the
+ *  specific language governing permissions and limitations
+ *  under the License.
+ */
+package com.googlecode.fitchy;
+
+import static org.junit.Assert.*;
+
+import java.lang.invoke.MethodHandle;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import com.googlecode.fitchy.internal.DefaultFeatureStatus;
+
+public class FeatureCallSiteTest {
+
+    private FeatureContext context;
+
+    @Before
+    public void setUp() {
+        context = new FeatureContext(Configuration.getDefault());
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void getCallSite_WithoutKey_throwsException() {
+        context.getCallSite("");
+    }
+
+    @Test
+    public void getCallSite_CalledTwice_ReturnsSameInstance() {
+        assertSame(context.getCallSite("test.feature"), context.getCallSite("test.feature"));
+        assertNotSame(context.getCallSite("test.feature"), context.getCallSite("test.feature", DefaultFeatureStatus.ON));
+    }
+
+    @Test
+    public void isAvailable_WithFeatureAddedLater_ReturnsTrue() {
+        FeatureCallSite callSite = context.getCallSite("test.feature");
+        assertFalse(callSite.isAvailable());
+        context.addFeature("test.feature");
+        assertTrue(callSite.isAvailable());
+    }
+
+    @Test
+    public void isAvailable_AfterClear_ReturnsFalse() {
+        context.addFeature("test.feature");
+        FeatureCallSite callSite = context.getCallSite("test.feature");
+        assertTrue(callSite.isAvailable());
+        context.clear();
+        assertFalse(callSite.isAvailable());
+    }
+
+    @Test
+    public void isAvailable_WithChangedStatus_FollowsStatus() {
+        Feature feature = context.addFeature("test.feature");
+        FeatureCallSite onSite = context.getCallSite("test.feature", DefaultFeatureStatus.ON);
+        FeatureCallSite offSite = context.getCallSite("test.feature", DefaultFeatureStatus.OFF);
+        assertTrue(onSite.isAvailable());
+        assertFalse(offSite.isAvailable());
+
+        feature.setStatus(DefaultFeatureStatus.OFF);
+        assertFalse(onSite.isAvailable());
+        assertTrue(offSite.isAvailable());
+    }
+
+    @Test
+    public void dynamicInvoker_WithFeatureAddedLater_ReturnsCurrentValue() throws Throwable {
+        MethodHandle invoker = context.getCallSite("test.feature").dynamicInvoker();
+        assertFalse((boolean) invoker.invokeExact());
+        context.addFeature("test.feature");
+        assertTrue((boolean) invoker.invokeExact());
+    }
+
+    @Test
+    public void dynamicInvoker_InScope_ReturnsOverride() throws Throwable {
+        context.addFeature("test.feature");
+        MethodHandle invoker = context.getCallSite("test.feature").dynamicInvoker();
+        assertTrue((boolean) invoker.invokeExact());
+        FeatureScope scope = context.override(new FeatureOverrides().remove("test.feature"));
+        try {
+            assertFalse((boolean) invoker.invokeExact());
+        } finally {
+            scope.close();
+        }
+        assertTrue((boolean) invoker.invokeExact());
+    }
+
+    @Test
+    public void getCallSite_WhileFeaturesChange_FollowsLatestStatus() throws InterruptedException {
+        final int featureCount = 2000;
+        final Feature[] features = new Feature[featureCount];
+        for(int i = 0; i < featureCount; i++) {
+            features[i] = context.addFeature("test.feature" + i);
+        }
+
+        final AtomicBoolean running = new AtomicBoolean(true);
+        Thread writer = new Thread(new Runnable() {
+            public void run() {
+                for(int round = 0; running.get(); round++) {
+                    for(Feature feature : features) {
+                        feature.setStatus(round % 2 == 0 ? DefaultFeatureStatus.OFF : DefaultFeatureStatus.ON);
+                    }
+                }
+            }
+        });
+        writer.start();
+        FeatureCallSite[] callSites = new FeatureCallSite[featureCount];
+        try {
+            for(int i = 0; i < featureCount; i++) {
+                callSites[i] = context.getCallSite("test.feature" + i, DefaultFeatureStatus.ON);
+            }
+        } finally {
+            running.set(false);
+            writer.join();
+        }
+
+        for(int i = 0; i < featureCount; i++) {
+            boolean expected = context.featureHasStatus("test.feature" + i, DefaultFeatureStatus.ON);
+            assertEquals("test.feature" + i, expected, callSites[i].isAvailable());
+        }
+    }
+}
@@ -0,0 +1,150 @@
+/**
+ *  Licensed to the Apache Software Foundation (ASF) under one
+ *	or more contributor license agreements.  See the NOTICE file
+ *  distributed with this work for additional information
+ *	regarding copyright ownership.  The ASF licenses this file
+ *  to you under the Apache License, Version 2.0 (the
+ *  "License"); you may not use this file except in compliance
+ *  with the License.  You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing,
+ *  software distributed under the License is distributed on an
+ *  "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ *  KIND, either express or implied.  See the License for the
+ *  specific language governing permissions and limitations
+ *  under the License.
+ */
+package com.googlecode.fitchy;
+
+import static org.junit.Assert.*;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.Queue;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Executor;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.Before;
+import org.junit.Test;
+
+public class FeatureChangeListenerTest {
+
+    private FeatureContext context;
+
+    private QueuedExecutor executor;
+
+    private RecordingListener listener;
+
+    @Before
+    public void setUp() {
+        context = new FeatureContext(Configuration.getDefault());
+        executor = new QueuedExecutor();
+        context.setListenerExecutor(executor);
+        listener = new RecordingListener();
+    }
+
+    @Test
+    public void addFeature_WithListener_NotifiesAfterPublication() {
+        context.addChangeListener(listener);
+        context.addFeature("test.feature");
+        assertTrue("listener must not run on the publishing thread", listener.changes.isEmpty());
+
+        executor.runAll();
+        assertEquals(1, listener.changes.size());
+        assertEquals(Collections.singleton("test.feature"), listener.changes.get(0).getAdded());
+    }
+
+    @Test
+    public void setStatus_SeveralTimesBeforeDelivery_CoalescesChanges() {
+        Feature feature = context.addFeature("test.feature");
+        context.addChangeListener(listener);
+        feature.setStatus(context.getConfig().disabledStatus);
+        context.addFeature("other.feature");
+        executor.runAll();
+
+        assertEquals(1, listener.changes.size());
+        assertEquals(Collections.singleton("test.feature"), listener.changes.get(0).getChanged());
+        assertEquals(Collections.singleton("other.feature"), listener.changes.get(0).getAdded());
+    }
+
+    @Test
+    public void setStatus_BackToPreviousStatus_DoesNotNotify() {
+        Feature feature = context.addFeature("test.feature");
+        context.addChangeListener(listener);
+        feature.setStatus(context.getConfig().disabledStatus);
+        feature.setStatus(context.getConfig().enabledStatus);
+        executor.runAll();
+
+        assertTrue(listener.changes.isEmpty());
+    }
+
+    @Test
+    public void addChangeListener_ForFeature_GetsOnlyThisFeature() {
+        context.addChangeListener(listener, "test.feature");
+        context.addFeature("other.feature");
+        executor.runAll();
+        assertTrue(listener.changes.isEmpty());
+
+        context.addFeatures(Arrays.asList(new Feature("test.feature", null), new Feature("third.feature", null)));
+        executor.runAll();
+        assertEquals(1, listener.changes.size());
+        assertEquals(Collections.singleton("test.feature"), listener.changes.get(0).getAffected());
+    }
+
+    @Test
+    public void removeChangeListener_WithQueuedChanges_DoesNotNotify() {
+        context.addChangeListener(listener);
+        context.addFeature("test.feature");
+        context.removeChangeListener(listener);
+        executor.runAll();
+
+        assertTrue(listener.changes.isEmpty());
+    }
+
+    @Test
+    public void addChangeListener_WithDefaultExecutor_NotifiesAsynchronously() throws Exception {
+        context.setListenerExecutor(null);
+        final CountDownLatch latch = new CountDownLatch(1);
+        context.addChangeListener(new FeatureChangeListener() {
+            public void featuresChanged(FeatureChangeSet changes) {
+                latch.countDown();
+            }
+        });
+        context.addFeature("test.feature");
+        assertTrue(latch.await(10, TimeUnit.SECONDS));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void addChangeListener_WithoutFeatureNames_ThrowsException() {
+        context.addChangeListener(listener, new String[] {});
+    }
+
+    private static class RecordingListener implements FeatureChangeListener {
+        private final List<FeatureChangeSet> changes = new ArrayList<FeatureChangeSet>();
+
+        public void featuresChanged(FeatureChangeSet changeSet) {
+            changes.add(changeSet);
+        }
+    }
+
+    private static class QueuedExecutor implements Executor {
+        private final Queue<Runnable> tasks = new LinkedList<Runnable>();
+
+        public void execute(Runnable task) {
+            tasks.add(task);
+        }
+
+        void runAll() {
+            Runnable task;
+            while((task = tasks.poll()) != null) {
+                task.run();
+            }
+        }
+    }
+}
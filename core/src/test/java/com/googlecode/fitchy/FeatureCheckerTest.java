@@ -66,6 +66,25 @@ public class FeatureCheckerTest {
         assertEquals("checker should return 'enabledStatus' string", "enabledStatus", checker.run());
     }
 
+    @Test
+    public void run_WithCallSite_FollowsContext() {
+        FeatureContext realContext = new FeatureContext(Configuration.getDefault());
+        FeatureChecker<String> callSiteChecker = new FeatureChecker<String>(realContext.getCallSite("test.feature")) {
+            @Override
+            public String onFeatureEnabled() {
+                return "enabledStatus";
+            }
+
+            @Override
+            public String onFeatureDisabled() {
+                return "disabledStatus";
+            }
+        };
+        assertEquals("disabledStatus", callSiteChecker.run());
+        realContext.addFeature("test.feature");
+        assertEquals("enabledStatus", callSiteChecker.run());
+    }
+
     @Test
     public void run_WithoutFeature_ReturnDisabled() {
         when(context.hasFeature("test.feature")).thenReturn(false);
@@ -2,21 +2,35 @@ package com.googlecode.fitchy;
 
 import static org.junit.Assert.assertThat;
 
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.FileWriter;
+import java.io.IOException;
 import java.io.InputStream;
+import java.io.OutputStream;
 import java.net.URL;
 
 import org.hamcrest.core.Is;
 import org.hamcrest.core.IsNot;
+import org.junit.Rule;
 import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
 
 import com.googlecode.fitchy.Configuration;
 import com.googlecode.fitchy.FeatureContext;
 import com.googlecode.fitchy.FeatureStatus;
 import com.googlecode.fitchy.FeatureContext.Builder;
+import com.googlecode.fitchy.exception.UnableToLoadFeaturesException;
+import com.googlecode.fitchy.internal.BinaryFeatureWriter;
 
 
 public class FeatureContextBuilderTest {
 
+	@Rule
+	public TemporaryFolder folder = new TemporaryFolder();
+
 	@Test(expected=IllegalArgumentException.class)
 	public void fromUrl_withNullUrl_throwsIllegalArgumentException() {
 		Builder.fromUrl(null);
@@ -74,12 +88,170 @@ public class FeatureContextBuilderTest {
 		assertThatFeatureIsInContext(context, "feature_test", Configuration.getDefault().enabledStatus);
 	}
 
+	@Test
+	public void build_withRepeatedKeyInStream_lastOccurrenceWins() {
+		InputStream is = new ByteArrayInputStream("feature_test=on\nfeature_other=on\nfeature_test=off\n".getBytes());
+		FeatureContext context = Builder.fromStream(is).build();
+		assertThat(context.size(), Is.is(2));
+		assertThatFeatureIsInContext(context, "feature_test", Configuration.getDefault().disabledStatus);
+	}
+
 	@Test
 	public void create_callOnce_ReturnsNewBuilder() {
 		Builder context = Builder.create();
 		assertThat(context, IsNot.not((Builder)null));
 	}
 
+	@Test(expected=IllegalArgumentException.class)
+	public void withReload_withStreamBuilder_throwsIllegalArgumentException() {
+		InputStream is = this.getClass().getResourceAsStream("/test_features.properties");
+		Builder.fromStream(is).withReload();
+	}
+
+	@Test
+	public void build_withReload_replacesFeaturesWhenFileChanges() throws Exception {
+		File file = folder.newFile("reload_features.properties");
+		write(file, "feature_test=on\n");
+		FeatureContext context = Builder.fromUrl(file.toURI().toURL()).withReload(50L).build();
+		try {
+			assertThatFeatureIsInContext(context, "feature_test", Configuration.getDefault().enabledStatus);
+
+			write(file, "feature_test=off\nfeature_new=on\n");
+			long deadline = System.currentTimeMillis() + 30000L;
+			while(!context.hasFeature("feature_new") && System.currentTimeMillis() < deadline) {
+				Thread.sleep(20L);
+			}
+			assertThatFeatureIsInContext(context, "feature_new", Configuration.getDefault().enabledStatus);
+			assertThatFeatureIsInContext(context, "feature_test", Configuration.getDefault().disabledStatus);
+		} finally {
+			context.stopReload();
+		}
+	}
+
+	@Test
+	public void build_withLazyLoadingFromUrl_decodesFeatureOnFirstHandle() throws Exception {
+		File file = folder.newFile("features.bin");
+		OutputStream out = new FileOutputStream(file);
+		try {
+			writeBinary(out);
+		} finally {
+			out.close();
+		}
+		FeatureContext context = Builder.fromUrl(file.toURI().toURL()).withLazyLoading().build();
+		assertThat(context.size(), Is.is(2));
+		assertThat(context.getSnapshot().getFeature("feature_test"), Is.is((Feature) null));
+
+		assertThatFeatureIsInContext(context, "feature_test", Configuration.getDefault().enabledStatus);
+		assertThat(context.getSnapshot().getFeature("feature_test"), Is.is((Feature) null));
+
+		context.getHandle("feature_test");
+		assertThat(context.getSnapshot().getFeature("feature_test"), IsNot.not((Feature) null));
+		assertThat(context.size(), Is.is(2));
+	}
+
+	@Test
+	public void build_withLazyLoadingFromStream_loadsFeatureOnFirstLookup() throws Exception {
+		ByteArrayOutputStream out = new ByteArrayOutputStream();
+		writeBinary(out);
+		FeatureContext context = Builder.fromStream(new ByteArrayInputStream(out.toByteArray())).withLazyLoading().build();
+		assertThatFeatureIsInContext(context, "feature_off", Configuration.getDefault().disabledStatus);
+		assertThat(context.hasFeature("feature_unknown"), Is.is(false));
+	}
+
+	@Test(expected=UnableToLoadFeaturesException.class)
+	public void build_withLazyLoadingFromPropertiesStream_throwsUnableToLoadFeaturesException() {
+		InputStream is = this.getClass().getResourceAsStream("/test_features.properties");
+		Builder.fromStream(is).withLazyLoading().build();
+	}
+
+	@Test(expected=IllegalArgumentException.class)
+	public void build_withLazyLoadingAndReload_throwsIllegalArgumentException() {
+		URL urlToFeatures = this.getClass().getResource("/test_features.properties");
+		Builder.fromUrl(urlToFeatures).withReload().withLazyLoading().build();
+	}
+
+	@Test(expected=IllegalArgumentException.class)
+	public void withLazyLoading_withEmptyBuilder_throwsIllegalArgumentException() {
+		Builder.create().withLazyLoading();
+	}
+
+	@Test
+	public void build_withLayers_laterLayerTakesPrecedence() throws Exception {
+		File defaults = folder.newFile("defaults.properties");
+		write(defaults, "feature_test=on\nfeature_default=on\nfeature_host=on\n");
+		File host = folder.newFile("host.properties");
+		write(host, "feature_host=off\n");
+		InputStream emergency = new ByteArrayInputStream("feature_test=off\n".getBytes());
+
+		FeatureContext context = Builder.fromUrl(defaults.toURI().toURL())
+				.withUrl(host.toURI().toURL())
+				.withStream(emergency)
+				.build();
+		assertThat(context.size(), Is.is(3));
+		assertThatFeatureIsInContext(context, "feature_default", Configuration.getDefault().enabledStatus);
+		assertThatFeatureIsInContext(context, "feature_host", Configuration.getDefault().disabledStatus);
+		assertThatFeatureIsInContext(context, "feature_test", Configuration.getDefault().disabledStatus);
+	}
+
+	@Test
+	public void build_withMissingLayer_skipsLayer() throws Exception {
+		File defaults = folder.newFile("defaults.properties");
+		write(defaults, "feature_test=on\n");
+		File missing = new File(folder.getRoot(), "missing.properties");
+
+		FeatureContext context = Builder.fromUrl(defaults.toURI().toURL()).withUrl(missing.toURI().toURL()).build();
+		assertThatFeatureIsInContext(context, "feature_test", Configuration.getDefault().enabledStatus);
+	}
+
+	@Test
+	public void build_withReloadOfLayers_mergesLayersWhenFileChanges() throws Exception {
+		File defaults = folder.newFile("defaults.properties");
+		write(defaults, "feature_test=on\n");
+		File overrides = folder.newFile("overrides.properties");
+		write(overrides, "");
+		FeatureContext context = Builder.fromUrl(defaults.toURI().toURL()).withUrl(overrides.toURI().toURL()).withReload(50L).build();
+		try {
+			write(overrides, "feature_test=off\nfeature_new=on\n");
+			long deadline = System.currentTimeMillis() + 30000L;
+			while(!context.hasFeature("feature_new") && System.currentTimeMillis() < deadline) {
+				Thread.sleep(20L);
+			}
+			assertThatFeatureIsInContext(context, "feature_new", Configuration.getDefault().enabledStatus);
+			assertThatFeatureIsInContext(context, "feature_test", Configuration.getDefault().disabledStatus);
+		} finally {
+			context.stopReload();
+		}
+	}
+
+	@Test(expected=IllegalArgumentException.class)
+	public void build_withReloadAndStreamLayer_throwsIllegalArgumentException() {
+		URL urlToFeatures = this.getClass().getResource("/test_features.properties");
+		InputStream is = this.getClass().getResourceAsStream("/test_features.properties");
+		Builder.fromUrl(urlToFeatures).withReload().withStream(is).build();
+	}
+
+	@Test(expected=IllegalArgumentException.class)
+	public void build_withLazyLoadingAndLayers_throwsIllegalArgumentException() {
+		URL urlToFeatures = this.getClass().getResource("/test_features.properties");
+		Builder.fromUrl(urlToFeatures).withUrl(urlToFeatures).withLazyLoading().build();
+	}
+
+	private void writeBinary(OutputStream out) throws IOException {
+		FeatureContext source = new FeatureContext(Configuration.getDefault());
+		source.addFeature("feature_test");
+		source.addFeature("feature_off").setStatus(Configuration.getDefault().disabledStatus);
+		BinaryFeatureWriter.write(source.getSnapshot(), out);
+	}
+
+	private void write(File file, String content) throws IOException {
+		FileWriter writer = new FileWriter(file);
+		try {
+			writer.write(content);
+		} finally {
+			writer.close();
+		}
+	}
+
 	private void assertThatFeatureIsInContext(FeatureContext context, String name, FeatureStatus status) {
 		assertThat(context.hasFeature(name), Is.is(true));
 		assertThat(context.featureHasStatus(name, status), Is.is(true));
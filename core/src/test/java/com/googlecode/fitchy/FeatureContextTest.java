@@ -18,6 +18,9 @@
  */
 package com.googlecode.fitchy;
 
+import java.util.Arrays;
+import java.util.Collections;
+
 import org.hamcrest.core.Is;
 import org.junit.Before;
 import org.junit.Test;
@@ -136,6 +139,105 @@ public class FeatureContextTest {
         assertThat(context.size(), Is.is(1));
     }
 
+    @Test
+    public void addFeatures_WithFeatures_AddsAll() {
+        context.addFeatures(Arrays.asList(new Feature("first.feature", options.enabledStatus), new Feature("second.feature", options.disabledStatus)));
+        assertThat(context.size(), Is.is(2));
+        assertTrue(context.featureHasStatus("second.feature", options.disabledStatus));
+    }
+
+    @Test
+    public void addFeatures_WithExistingFeature_AddsNone() {
+        context.addFeature("second.feature");
+        try {
+            context.addFeatures(Arrays.asList(new Feature("first.feature", options.enabledStatus), new Feature("second.feature", options.enabledStatus)));
+            fail("FeatureAlreadyExistsException expected");
+        } catch (FeatureAlreadyExistsException e) {
+            assertFalse(context.hasFeature("first.feature"));
+        }
+    }
+
+    @Test(expected=FeatureAlreadyExistsException.class)
+    public void addFeatures_WithDuplicateName_ThrowsException() {
+        context.addFeatures(Arrays.asList(new Feature("test.feature", options.enabledStatus), new Feature("test.feature", options.disabledStatus)));
+    }
+
+    @Test
+    public void replaceFeatures_WithFeatures_RemovesMissingFeatures() {
+        context.addFeature("old.feature");
+        FeatureHandle handle = context.getHandle("old.feature");
+        context.replaceFeatures(Arrays.asList(new Feature("new.feature", options.disabledStatus)));
+        assertFalse(context.hasFeature("old.feature"));
+        assertFalse(handle.exists());
+        assertTrue(context.featureHasStatus("new.feature", options.disabledStatus));
+        assertTrue(context.getHandle("new.feature").hasStatus(options.disabledStatus));
+    }
+
+    @Test
+    public void replaceFeatures_WithFeatures_ReturnsDifference() {
+        Feature kept = context.addFeature("kept.feature");
+        context.addFeature("changed.feature");
+        context.addFeature("removed.feature");
+        FeatureChangeSet changes = context.replaceFeatures(Arrays.asList(
+                new Feature("kept.feature", options.enabledStatus),
+                new Feature("changed.feature", options.disabledStatus),
+                new Feature("added.feature", options.enabledStatus)));
+
+        assertEquals(Collections.singleton("added.feature"), changes.getAdded());
+        assertEquals(Collections.singleton("removed.feature"), changes.getRemoved());
+        assertEquals(Collections.singleton("changed.feature"), changes.getChanged());
+        assertFalse(changes.affects("kept.feature"));
+        assertSame(changes.getCurrent(), context.getSnapshot());
+
+        kept.setStatus(options.disabledStatus);
+        assertTrue("unchanged feature keeps its object", context.featureHasStatus("kept.feature", options.disabledStatus));
+    }
+
+    @Test
+    public void replaceFeatures_WithSameFeatures_ReturnsEmptyChangeSet() {
+        context.addFeature("test.feature");
+        FeatureSnapshot snapshot = context.getSnapshot();
+        FeatureChangeSet changes = context.replaceFeatures(Arrays.asList(new Feature("test.feature", options.enabledStatus)));
+        assertTrue(changes.isEmpty());
+        assertSame(snapshot, context.getSnapshot());
+    }
+
+    @Test
+    public void getSnapshot_AfterChange_KeepsPreviousState() {
+        Feature feature = context.addFeature("test.feature");
+        FeatureSnapshot snapshot = context.getSnapshot();
+        feature.setStatus(options.disabledStatus);
+        context.addFeature("other.feature");
+        assertTrue(snapshot.featureHasStatus("test.feature", options.enabledStatus));
+        assertFalse(snapshot.hasFeature("other.feature"));
+        assertTrue(context.getSnapshot().featureHasStatus("test.feature", options.disabledStatus));
+    }
+
+    @Test
+    public void getSnapshot_AfterClear_ReturnsEmptySnapshot() {
+        context.addFeature("test.feature");
+        FeatureSnapshot snapshot = context.getSnapshot();
+        context.clear();
+        assertThat(context.getSnapshot().size(), Is.is(0));
+        assertThat(snapshot.size(), Is.is(1));
+    }
+
+    @Test
+    public void setStatus_OfRemovedFeature_DoesNotChangeContext() {
+        Feature feature = context.addFeature("test.feature");
+        context.clear();
+        feature.setStatus(options.disabledStatus);
+        assertFalse(context.hasFeature("test.feature"));
+    }
+
+    @Test
+    public void featureHasAnyStatus_WithStatusOutsideConfiguration_ReturnsFalse() {
+        addFeatureToContext("test.feature", TestStatus.ON);
+        assertTrue(context.featureHasStatus("test.feature", TestStatus.ON));
+        assertFalse(context.featureHasAnyStatus("test.feature", ~0L));
+        assertThat(options.maskOf(TestStatus.ON), Is.is(0L));
+    }
+
     private void addFeatureToContext(String name, FeatureStatus status) {
         Feature feature = new Feature(name, status);
         context.addFeature(feature);
@@ -0,0 +1,115 @@
+/**
+ *  Licensed to the Apache Software Foundation (ASF) under one
+ *	or more contributor license agreements.  See the NOTICE file
+ *  distributed with this work for additional information
+ *	regarding copyright ownership.  The ASF licenses this file
+ *  to you under the Apache License, Version 2.0 (the
+ *  "License"); you may not use this file except in compliance
+ *  with the License.  You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing,
+ *  software distributed under the License is distributed on an
+ *  "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ *  KIND, either express or implied.  See the License for the
+ *  specific language governing permissions and limitations
+ *  under the License.
+ */
+package com.googlecode.fitchy;
+
+import static org.junit.Assert.*;
+
+import java.util.Arrays;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import com.googlecode.fitchy.internal.DefaultFeatureStatus;
+
+public class FeatureHandleTest {
+
+    private FeatureContext context;
+
+    @Before
+    public void setUp() {
+        context = new FeatureContext(Configuration.getDefault());
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void getHandle_WithoutKey_throwsException() {
+        context.getHandle(null);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void handleExists_WithHandleOfOtherContext_throwsException() {
+        FeatureHandle handle = new FeatureContext(Configuration.getDefault()).getHandle("test.feature");
+        context.handleExists(handle);
+    }
+
+    @Test
+    public void exists_WithFeatureAddedLater_ReturnsTrue() {
+        FeatureHandle handle = context.getHandle("test.feature");
+        assertFalse(handle.exists());
+        context.addFeature("test.feature");
+        assertTrue(handle.exists());
+        assertFalse(context.getHandle("other.feature").exists());
+    }
+
+    @Test
+    public void hasStatus_WithChangedStatus_FollowsFeature() {
+        FeatureHandle handle = context.getHandle("test.feature");
+        Feature feature = context.addFeature("test.feature");
+        assertTrue(handle.hasStatus(DefaultFeatureStatus.ON));
+        assertFalse(handle.hasStatus(DefaultFeatureStatus.OFF));
+
+        feature.setStatus(DefaultFeatureStatus.OFF);
+        assertFalse(handle.hasStatus(DefaultFeatureStatus.ON));
+        assertTrue(handle.hasStatus(DefaultFeatureStatus.OFF));
+    }
+
+    @Test
+    public void hasAnyStatus_WithMask_MatchesEveryStatusOfMask() {
+        FeatureHandle handle = context.getHandle("test.feature");
+        long bothStatuses = context.getConfig().maskOf(DefaultFeatureStatus.ON) | context.getConfig().maskOf(DefaultFeatureStatus.OFF);
+        assertFalse(handle.hasAnyStatus(bothStatuses));
+
+        Feature feature = context.addFeature("test.feature");
+        assertTrue(handle.hasAnyStatus(bothStatuses));
+        feature.setStatus(DefaultFeatureStatus.OFF);
+        assertTrue(handle.hasAnyStatus(bothStatuses));
+        assertFalse(handle.hasAnyStatus(context.getConfig().maskOf(DefaultFeatureStatus.ON)));
+        assertTrue(context.featureHasAnyStatus("test.feature", bothStatuses));
+    }
+
+    @Test
+    public void hasStatus_AfterClear_ReturnsFalse() {
+        FeatureHandle handle = context.getHandle("test.feature");
+        context.addFeature("test.feature");
+        context.clear();
+        assertFalse(handle.hasStatus(DefaultFeatureStatus.ON));
+        assertFalse(handle.exists());
+    }
+
+    @Test
+    public void exists_AfterFeaturesWereReplaced_FollowsOwnFeature() {
+        FeatureHandle handle = context.getHandle("test.feature");
+        context.replaceFeatures(Arrays.asList(new Feature("test.feature", DefaultFeatureStatus.ON), new Feature("removed.feature", DefaultFeatureStatus.ON)));
+        context.replaceFeatures(Arrays.asList(new Feature("added.feature", DefaultFeatureStatus.ON)));
+        assertFalse(handle.exists());
+        assertTrue(context.getHandle("added.feature").exists());
+
+        context.replaceFeatures(Arrays.asList(new Feature("test.feature", DefaultFeatureStatus.ON)));
+        assertTrue(handle.exists());
+        assertFalse(context.getHandle("added.feature").exists());
+        assertFalse(context.getHandle("removed.feature").exists());
+    }
+
+    @Test
+    public void hasStatus_WithStatusOfOtherEnum_ComparesFeatureStatus() {
+        FeatureHandle handle = context.getHandle("test.feature");
+        context.addFeature(new Feature("test.feature", TestStatus.ON));
+        assertTrue(handle.hasStatus(TestStatus.ON));
+        assertFalse(handle.hasStatus(DefaultFeatureStatus.ON));
+    }
+}
@@ -0,0 +1,237 @@
+/**
+ *  Licensed to the Apache Software Foundation (ASF) under one
+ *	or more contributor license agreements.  See the NOTICE file
+ *  distributed with this work for additional information
+ *	regarding copyright ownership.  The ASF licenses this file
+ *  to you under the Apache License, Version 2.0 (the
+ *  "License"); you may not use this file except in compliance
+ *  with the License.  You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing,
+ *  software distributed under the License is distributed on an
+ *  "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ *  KIND, either express or implied.  See the License for the
+ *  specific language governing permissions and limitations
+ *  under the License.
+ */
+package com.googlecode.fitchy;
+
+import static org.junit.Assert.*;
+
+import java.util.Arrays;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import com.googlecode.fitchy.resolver.FeatureResolver;
+
+public class FeatureScopeTest {
+
+    private FeatureContext context;
+
+    private Configuration config;
+
+    private Feature feature;
+
+    @Before
+    public void setUp() {
+        config = Configuration.getDefault();
+        context = new FeatureContext(config);
+        feature = context.addFeature("test.feature");
+    }
+
+    @Test
+    public void pin_StatusChangedInScope_ContextKeepsPinnedStatus() {
+        FeatureScope scope = context.pin();
+        try {
+            feature.setStatus(config.disabledStatus);
+            assertTrue(context.featureHasStatus("test.feature", config.enabledStatus));
+            assertTrue(context.getHandle("test.feature").hasStatus(config.enabledStatus));
+            assertTrue(context.getCallSite("test.feature", config.enabledStatus).isAvailable());
+        } finally {
+            scope.close();
+        }
+        assertTrue(context.featureHasStatus("test.feature", config.disabledStatus));
+        assertFalse(context.getCallSite("test.feature", config.enabledStatus).isAvailable());
+    }
+
+    @Test
+    public void pin_FeaturesReplacedInScope_ContextKeepsPinnedFeatures() {
+        FeatureCallSite callSite = context.getCallSite("test.feature");
+        FeatureScope scope = context.pin();
+        try {
+            context.replaceFeatures(Arrays.asList(new Feature("other.feature", config.enabledStatus)));
+            assertTrue(context.hasFeature("test.feature"));
+            assertFalse(context.hasFeature("other.feature"));
+            assertTrue(callSite.isAvailable());
+            assertTrue(new FeatureChecker<Boolean>(context, "test.feature") {
+                public Boolean onFeatureEnabled() {
+                    return true;
+                }
+
+                public Boolean onFeatureDisabled() {
+                    return false;
+                }
+            }.run());
+        } finally {
+            scope.close();
+        }
+        assertFalse(callSite.isAvailable());
+        assertTrue(context.hasFeature("other.feature"));
+    }
+
+    @Test
+    public void pin_NestedScope_KeepsOuterSnapshot() {
+        FeatureScope outer = context.pin();
+        feature.setStatus(config.disabledStatus);
+        FeatureScope inner = context.pin();
+        assertSame(outer.getSnapshot(), inner.getSnapshot());
+        inner.close();
+        assertTrue(context.featureHasStatus("test.feature", config.enabledStatus));
+        outer.close();
+        assertTrue(context.featureHasStatus("test.feature", config.disabledStatus));
+    }
+
+    @Test
+    public void close_CalledTwice_RestoresOnlyOnce() {
+        FeatureScope outer = context.pin();
+        FeatureScope inner = context.pin();
+        inner.close();
+        inner.close();
+        feature.setStatus(config.disabledStatus);
+        assertTrue(context.featureHasStatus("test.feature", config.enabledStatus));
+        outer.close();
+    }
+
+    @Test
+    public void close_OuterBeforeInner_ThrowsIllegalStateException() {
+        FeatureScope outer = context.pin();
+        FeatureScope inner = context.override(new FeatureOverrides().set("test.feature", config.disabledStatus));
+        try {
+            outer.close();
+            fail("outer scope closed before inner scope");
+        } catch(IllegalStateException e) {
+            assertTrue(context.featureHasStatus("test.feature", config.disabledStatus));
+        }
+        inner.close();
+        outer.close();
+        feature.setStatus(config.disabledStatus);
+        assertTrue(context.featureHasStatus("test.feature", config.disabledStatus));
+    }
+
+    @Test
+    public void pin_SnapshotOnOtherThread_ContinuesScope() throws InterruptedException {
+        final AtomicBoolean pinnedStatus = new AtomicBoolean();
+        final FeatureScope scope = context.pin();
+        try {
+            Thread thread = new Thread(new Runnable() {
+                public void run() {
+                    FeatureScope continued = context.pin(scope.getSnapshot());
+                    try {
+                        pinnedStatus.set(context.featureHasStatus("test.feature", config.enabledStatus));
+                    } finally {
+                        continued.close();
+                    }
+                }
+            });
+            feature.setStatus(config.disabledStatus);
+            thread.start();
+            thread.join();
+        } finally {
+            scope.close();
+        }
+        assertTrue(pinnedStatus.get());
+        assertTrue(context.featureHasStatus("test.feature", config.disabledStatus));
+    }
+
+    @Test
+    public void override_FeatureStatus_OnlyCurrentThreadSeesOverride() throws InterruptedException {
+        final AtomicBoolean otherThreadStatus = new AtomicBoolean();
+        FeatureCallSite callSite = context.getCallSite("test.feature", config.enabledStatus);
+        FeatureScope scope = context.override(new FeatureOverrides().set("test.feature", config.disabledStatus));
+        try {
+            assertTrue(context.featureHasStatus("test.feature", config.disabledStatus));
+            assertTrue(context.getHandle("test.feature").hasStatus(config.disabledStatus));
+            assertFalse(callSite.isAvailable());
+            assertFalse(new FeatureResolver(context, config).isFeatureAvailable("test.feature", ""));
+
+            Thread thread = new Thread(new Runnable() {
+                public void run() {
+                    otherThreadStatus.set(context.featureHasStatus("test.feature", config.enabledStatus));
+                }
+            });
+            thread.start();
+            thread.join();
+        } finally {
+            scope.close();
+        }
+        assertTrue(otherThreadStatus.get());
+        assertTrue(callSite.isAvailable());
+        assertSame(config.enabledStatus, feature.getStatus());
+    }
+
+    @Test
+    public void override_RemovedFeature_DoesNotExistInScope() {
+        FeatureScope scope = context.override(new FeatureOverrides().remove("test.feature").set("new.feature", config.enabledStatus));
+        try {
+            assertFalse(context.hasFeature("test.feature"));
+            assertTrue(context.hasFeature("new.feature"));
+            assertNull(scope.getSnapshot());
+        } finally {
+            scope.close();
+        }
+        assertTrue(context.hasFeature("test.feature"));
+        assertFalse(context.hasFeature("new.feature"));
+    }
+
+    @Test
+    public void override_NotOverriddenFeature_ReadsCurrentState() {
+        context.addFeature("other.feature");
+        FeatureScope scope = context.override(new FeatureOverrides().set("other.feature", config.disabledStatus));
+        try {
+            feature.setStatus(config.disabledStatus);
+            assertTrue(context.featureHasStatus("test.feature", config.disabledStatus));
+        } finally {
+            scope.close();
+        }
+    }
+
+    @Test
+    public void override_InPinnedScope_KeepsPinnedSnapshotForOtherFeatures() {
+        context.addFeature("other.feature");
+        FeatureScope outer = context.pin();
+        FeatureScope inner = context.override(new FeatureOverrides().set("other.feature", config.disabledStatus));
+        try {
+            feature.setStatus(config.disabledStatus);
+            assertTrue(context.featureHasStatus("test.feature", config.enabledStatus));
+            assertTrue(context.featureHasStatus("other.feature", config.disabledStatus));
+            assertSame(outer.getSnapshot(), inner.getSnapshot());
+        } finally {
+            inner.close();
+            outer.close();
+        }
+    }
+
+    @Test
+    public void override_NestedScope_InnerOverrideWins() {
+        FeatureScope outer = context.override(new FeatureOverrides().set("test.feature", config.disabledStatus));
+        FeatureScope inner = context.override(new FeatureOverrides().set("test.feature", config.enabledStatus));
+        assertTrue(context.featureHasStatus("test.feature", config.enabledStatus));
+        inner.close();
+        assertTrue(context.featureHasStatus("test.feature", config.disabledStatus));
+        outer.close();
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void pin_NullSnapshot_ThrowsIllegalArgumentException() {
+        context.pin(null);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void override_Null_ThrowsIllegalArgumentException() {
+        context.override(null);
+    }
+}
@@ -0,0 +1,135 @@
+/**
+ *  Licensed to the Apache Software Foundation (ASF) under one
+ *	or more contributor license agreements.  See the NOTICE file
+ *  distributed with this work for additional information
+ *	regarding copyright ownership.  The ASF licenses this file
+ *  to you under the Apache License, Version 2.0 (the
+ *  "License"); you may not use this file except in compliance
+ *  with the License.  You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing,
+ *  software distributed under the License is distributed on an
+ *  "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ *  KIND, either express or implied.  See the License for the
+ *  specific language governing permissions and limitations
+ *  under the License.
+ */
+package com.googlecode.fitchy;
+
+import static org.junit.Assert.*;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+import java.util.Collections;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import com.googlecode.fitchy.exception.FeatureAlreadyExistsException;
+import com.googlecode.fitchy.internal.BinaryFeatureTable;
+import com.googlecode.fitchy.internal.BinaryFeatureWriter;
+
+public class LazyFeatureContextTest {
+
+    private Configuration config;
+
+    private FeatureContext context;
+
+    @Before
+    public void setUp() throws IOException {
+        config = Configuration.getDefault();
+        FeatureContext source = new FeatureContext(config);
+        source.addFeatures(Arrays.asList(new Feature("first.feature", config.enabledStatus),
+                new Feature("second.feature", config.disabledStatus), new Feature("third.feature", config.enabledStatus)));
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        BinaryFeatureWriter.write(source.getSnapshot(), out);
+
+        context = new FeatureContext(config);
+        context.setCatalog(BinaryFeatureTable.of(ByteBuffer.wrap(out.toByteArray()), config));
+    }
+
+    @Test
+    public void getCallSite_NotLoadedFeature_LoadsFeature() {
+        FeatureCallSite callSite = context.getCallSite("second.feature", config.disabledStatus);
+        assertTrue(callSite.isAvailable());
+        assertTrue(context.getHandle("first.feature").hasStatus(config.enabledStatus));
+    }
+
+    @Test
+    public void setStatus_LoadedFeature_UpdatesCallSite() {
+        FeatureCallSite callSite = context.getCallSite("first.feature", config.enabledStatus);
+        context.getSnapshot().getFeature("first.feature").setStatus(config.disabledStatus);
+        assertFalse(callSite.isAvailable());
+        assertTrue(context.featureHasStatus("first.feature", config.disabledStatus));
+    }
+
+    @Test
+    public void pin_FeatureLoadedAfterPin_ReadsCatalog() {
+        FeatureScope scope = context.pin();
+        try {
+            assertTrue(context.featureHasStatus("third.feature", config.enabledStatus));
+        } finally {
+            scope.close();
+        }
+    }
+
+    @Test(expected = FeatureAlreadyExistsException.class)
+    public void addFeature_NameOfNotLoadedFeature_ThrowsFeatureAlreadyExistsException() {
+        context.addFeature("third.feature");
+    }
+
+    @Test
+    public void addFeature_NewName_CountsCatalogAndNewFeature() {
+        context.hasFeature("first.feature");
+        context.addFeature("new.feature");
+        assertEquals(4, context.size());
+        assertEquals(4, context.getSnapshot().getFeatureNames().size());
+    }
+
+    @Test
+    public void replaceFeatures_WithLazyContext_RemovesNotPassedFeatures() {
+        FeatureChangeSet changes = context.replaceFeatures(Collections.singletonList(new Feature("first.feature", config.enabledStatus)));
+        assertEquals(Collections.<String>emptySet(), changes.getAdded());
+        assertEquals(2, changes.getRemoved().size());
+        assertTrue(context.hasFeature("first.feature"));
+        assertFalse(context.hasFeature("second.feature"));
+        assertEquals(1, context.size());
+    }
+
+    @Test
+    public void featureHasStatus_NotLoadedFeature_KeepsSnapshot() {
+        FeatureSnapshot snapshot = context.getSnapshot();
+        assertTrue(context.featureHasStatus("second.feature", config.disabledStatus));
+        assertTrue(context.hasFeature("third.feature"));
+        context.getHandle("first.feature");
+        assertSame(snapshot, context.getSnapshot());
+    }
+
+    @Test
+    public void getHandle_FeatureKeptByReplaceFeatures_FindsFeature() {
+        context.replaceFeatures(Arrays.asList(new Feature("first.feature", config.enabledStatus),
+                new Feature("second.feature", config.disabledStatus)));
+        FeatureHandle handle = context.getHandle("second.feature");
+        assertTrue(handle.exists());
+        assertTrue(handle.hasStatus(config.disabledStatus));
+    }
+
+    @Test
+    public void replaceFeatures_WithDecodedFeature_KeepsFeature() {
+        context.getCallSite("first.feature", config.enabledStatus);
+        context.replaceFeatures(Collections.singletonList(new Feature("first.feature", config.enabledStatus)));
+        assertTrue(context.getHandle("first.feature").hasStatus(config.enabledStatus));
+        assertEquals(1, context.getSnapshot().getFeatureNames().size());
+    }
+
+    @Test
+    public void clear_LazyContext_RemovesCatalog() {
+        context.clear();
+        assertFalse(context.hasFeature("first.feature"));
+        assertEquals(0, context.size());
+    }
+}
@@ -7,6 +7,7 @@ import java.util.Comparator;
 
 import org.hamcrest.core.Is;
 import org.hamcrest.core.IsNot;
+import org.hamcrest.core.IsSame;
 import org.junit.After;
 import org.junit.Before;
 import org.junit.Test;
@@ -18,6 +19,7 @@ import com.googlecode.fitchy.Configuration;
 import com.googlecode.fitchy.FeatureContext;
 import com.googlecode.fitchy.FeatureObserver;
 import com.googlecode.fitchy.ProxyBuilder;
+import com.googlecode.fitchy.annotation.FeatureSwitch;
 import com.googlecode.fitchy.exception.CannotCreateProxyException;
 
 
@@ -83,10 +85,25 @@ public class ProxyBuilderTest {
 		assertThat(implementingObject, Is.is((ImplementingClass)null));
 		assertThat(FeatureObserverMock.isObserveCalled, Is.is(false));
 	}
+
+	@Test
+	public void build_withoutAnnotatedMethods_returnsOrigin() {
+		Comparator<Object> observableObject = new NotAnnotatedClass();
+		assertThat(ProxyBuilder.fromContext(context).build(observableObject), IsSame.sameInstance(observableObject));
+		assertThat(FeatureObserverMock.isObserveCalled, Is.is(false));
+	}
 }
 
 class ImplementingClass implements Comparator<Object> {
 
+	@FeatureSwitch("test.feature")
+	public int compare(Object arg0, Object arg1) {
+		return 0;
+	}
+}
+
+class NotAnnotatedClass implements Comparator<Object> {
+
 	public int compare(Object arg0, Object arg1) {
 		return 0;
 	}
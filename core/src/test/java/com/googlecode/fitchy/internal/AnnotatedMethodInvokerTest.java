@@ -25,6 +25,8 @@ import org.junit.runner.RunWith;
 import org.mockito.Mock;
 import org.mockito.runners.MockitoJUnitRunner;
 
+import com.googlecode.fitchy.Configuration;
+import com.googlecode.fitchy.FeatureContext;
 import com.googlecode.fitchy.annotation.FeatureSwitch;
 import com.googlecode.fitchy.internal.AnnotatedMethodInvoker;
 import com.googlecode.fitchy.resolver.FeatureResolver;
@@ -46,28 +48,27 @@ public class AnnotatedMethodInvokerTest {
     @Mock
     private FeatureResolverFactory resolverFactory;
 
-    @Mock
-    private FeatureResolver resolver;
+    private FeatureContext context;
 
     private AnnotatedMethodInvoker invoker;
 
     @Before
     public void setUp() {
+        context = new FeatureContext(Configuration.getDefault());
         invoker = new AnnotatedMethodInvoker(new AnnotatedFeatureMock(), resolverFactory);
-        when(resolverFactory.createResolver()).thenReturn(resolver);
+        when(resolverFactory.createResolver()).thenReturn(new FeatureResolver(context, context.getConfig()));
     }
 
     @Test
     public void invoke_WithFeature_ReturnsOriginalReturnValue() throws Throwable {
         Method sayHelloWithAnnotation = getMethod("sayHelloWithAnnotation");
-        when(resolver.isFeatureAvailable((FeatureSwitch)any())).thenReturn(true);
+        context.addFeature("test.feature");
         assertEquals("result should be orgin value 'hello'", "hello", invoker.invoke(sayHelloWithAnnotation, new Object[]{}));
     }
 
     @Test
     public void invoke_WithDisabledFeature_ReturnsNullValue() throws Throwable {
         Method sayHelloWithAnnotation = getMethod("sayHelloWithAnnotation");
-        when(resolver.isFeatureAvailable((FeatureSwitch)any())).thenReturn(false);
         assertNull("result should be null because feature is disabledStatus", invoker.invoke(sayHelloWithAnnotation, new Object[] {}));
     }
 
@@ -75,7 +76,38 @@ public class AnnotatedMethodInvokerTest {
     public void invoke_WithoutFeature_ReturnsOrginalReturnValue() throws Throwable {
         Method sayHelloWithoutAnnotation = getMethod("sayHelloWithoutAnnotation");
         assertEquals("result should be origin value 'hello'", "hello", invoker.invoke(sayHelloWithoutAnnotation, new Object[]{}));
-        verify(resolver, times(0)).isFeatureAvailable((FeatureSwitch)any());
+        verify(resolverFactory, times(0)).createResolver();
+    }
+
+    @Test
+    public void invoke_WithFeatureRemovedLater_ReturnsNullValue() throws Throwable {
+        Method sayHelloWithAnnotation = getMethod("sayHelloWithAnnotation");
+        context.addFeature("test.feature");
+        assertEquals("hello", invoker.invoke(sayHelloWithAnnotation, new Object[]{}));
+        context.clear();
+        assertNull(invoker.invoke(sayHelloWithAnnotation, new Object[]{}));
+    }
+
+    @Test
+    public void invoke_CalledTwice_CreatesResolverOnce() throws Throwable {
+        Method sayHelloWithAnnotation = getMethod("sayHelloWithAnnotation");
+        context.addFeature("test.feature");
+        invoker.invoke(sayHelloWithAnnotation, new Object[]{});
+        assertEquals("hello", invoker.invoke(sayHelloWithAnnotation, new Object[]{}));
+        verify(resolverFactory, times(1)).createResolver();
+    }
+
+    @Test
+    public void invoke_SameClassOnTwoContexts_ChecksOwnContext() throws Throwable {
+        Method sayHelloWithAnnotation = getMethod("sayHelloWithAnnotation");
+        FeatureContext otherContext = new FeatureContext(Configuration.getDefault());
+        AnnotatedMethodInvoker otherInvoker = new AnnotatedMethodInvoker(new AnnotatedFeatureMock(), new FeatureResolverFactory(otherContext));
+        context.addFeature("test.feature");
+
+        for(int i = 0; i < 3; i++) {
+            assertEquals("hello", invoker.invoke(sayHelloWithAnnotation, new Object[]{}));
+            assertNull(otherInvoker.invoke(sayHelloWithAnnotation, new Object[]{}));
+        }
     }
 
     private Method getMethod(String methodName, Class... arguments) {
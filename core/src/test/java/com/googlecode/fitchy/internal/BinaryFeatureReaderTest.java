@@ -0,0 +1,113 @@
+/**
+ *  Licensed to the Apache Software Foundation (ASF) under one
+ *	or more contributor license agreements.  See the NOTICE file
+ *  distributed with this work for additional information
+ *	regarding copyright ownership.  The ASF licenses this file
+ *  to you under the Apache License, Version 2.0 (the
+ *  "License"); you may not use this file except in compliance
+ *  with the License.  You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing,
+ *  software distributed under the License is distributed on an
+ *  "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ *  KIND, either express or implied.  See the License for the
+ *  specific language governing permissions and limitations
+ *  under the License.
+ */
+package com.googlecode.fitchy.internal;
+
+import static org.hamcrest.CoreMatchers.*;
+import static org.junit.Assert.*;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.util.HashMap;
+import java.util.Map;
+
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import com.googlecode.fitchy.Configuration;
+import com.googlecode.fitchy.Feature;
+import com.googlecode.fitchy.FeatureContext;
+import com.googlecode.fitchy.FeatureStatus;
+import com.googlecode.fitchy.exception.UnsupportedFormatException;
+
+public class BinaryFeatureReaderTest {
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    private Configuration config;
+
+    private FeatureContext context;
+
+    @Before
+    public void setUp() {
+        config = Configuration.getDefault();
+        context = new FeatureContext(config);
+        context.addFeature("first.feature");
+        context.addFeature("second.feature").setStatus(config.disabledStatus);
+    }
+
+    @Test
+    public void read_MappedFile_ReturnsAllFeatures() throws IOException {
+        File file = folder.newFile("features.bin");
+        FileOutputStream out = new FileOutputStream(file);
+        try {
+            BinaryFeatureWriter.write(context.getSnapshot(), out);
+        } finally {
+            out.close();
+        }
+
+        BinaryFeatureReader reader = new BinaryFeatureReader(new FileInputStream(file), config);
+        try {
+            Map<String, FeatureStatus> features = readAll(reader);
+            assertThat(features.size(), is(2));
+            assertThat(features.get("first.feature"), is(config.enabledStatus));
+            assertThat(features.get("second.feature"), is(config.disabledStatus));
+        } finally {
+            reader.close();
+        }
+    }
+
+    @Test
+    public void read_OtherStream_ReturnsAllFeatures() throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        BinaryFeatureWriter.write(context.getSnapshot(), out);
+        BinaryFeatureReader reader = new BinaryFeatureReader(new ByteArrayInputStream(out.toByteArray()), config);
+        assertThat(readAll(reader).size(), is(2));
+        assertThat(reader.read(), is(nullValue()));
+    }
+
+    @Test(expected = UnsupportedFormatException.class)
+    public void read_CorruptStream_ThrowsUnsupportedFormatException() throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        BinaryFeatureWriter.write(context.getSnapshot(), out);
+        byte[] bytes = out.toByteArray();
+        bytes[bytes.length - 1]++;
+        new BinaryFeatureReader(new ByteArrayInputStream(bytes), config).read();
+    }
+
+    @Test(expected = UnsupportedFormatException.class)
+    public void read_NullStream_ThrowsUnsupportedFormatException() {
+        new BinaryFeatureReader(null, config).read();
+    }
+
+    private Map<String, FeatureStatus> readAll(BinaryFeatureReader reader) {
+        Map<String, FeatureStatus> features = new HashMap<String, FeatureStatus>();
+        Feature feature;
+        while((feature = reader.read()) != null) {
+            features.put(feature.getName(), feature.getStatus());
+        }
+        return features;
+    }
+}
@@ -0,0 +1,136 @@
+/**
+ *  Licensed to the Apache Software Foundation (ASF) under one
+ *	or more contributor license agreements.  See the NOTICE file
+ *  distributed with this work for additional information
+ *	regarding copyright ownership.  The ASF licenses this file
+ *  to you under the Apache License, Version 2.0 (the
+ *  "License"); you may not use this file except in compliance
+ *  with the License.  You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing,
+ *  software distributed under the License is distributed on an
+ *  "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ *  KIND, either express or implied.  See the License for the
+ *  specific language governing permissions and limitations
+ *  under the License.
+ */
+package com.googlecode.fitchy.internal;
+
+import static org.hamcrest.CoreMatchers.*;
+import static org.junit.Assert.*;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import com.googlecode.fitchy.Configuration;
+import com.googlecode.fitchy.Feature;
+import com.googlecode.fitchy.FeatureContext;
+import com.googlecode.fitchy.exception.UnsupportedFormatException;
+
+public class BinaryFeatureTableTest {
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    private Configuration config;
+
+    private FeatureContext context;
+
+    @Before
+    public void setUp() {
+        config = Configuration.getDefault();
+        context = new FeatureContext(config);
+        context.addFeatures(Arrays.asList(new Feature("first.feature", config.enabledStatus),
+                new Feature("second.feature", config.disabledStatus), new Feature("plain.feature", null),
+                new Feature("gr\u00fc\u00dfe.feature", config.enabledStatus)));
+    }
+
+    @Test
+    public void indexOf_WrittenFeatures_ReturnsNameAndStatus() throws IOException {
+        BinaryFeatureTable table = BinaryFeatureTable.of(write(), config);
+        assertThat(table.size(), is(4));
+        assertThat(table.getStatus(table.indexOf("first.feature")), is(config.enabledStatus));
+        assertThat(table.getStatus(table.indexOf("second.feature")), is(config.disabledStatus));
+        assertThat(table.getStatus(table.indexOf("plain.feature")), is(nullValue()));
+        assertThat(table.getName(table.indexOf("gr\u00fc\u00dfe.feature")), is("gr\u00fc\u00dfe.feature"));
+    }
+
+    @Test
+    public void indexOf_UnknownFeature_ReturnsMinusOne() throws IOException {
+        BinaryFeatureTable table = BinaryFeatureTable.of(write(), config);
+        assertThat(table.indexOf("unknown.feature"), is(-1));
+        assertThat(table.hasFeature("first"), is(false));
+    }
+
+    @Test
+    public void indexOf_ManyFeatures_FindsAll() throws IOException {
+        context.clear();
+        for(int i = 0; i < 5000; i++) {
+            context.addFeature("feature." + i);
+        }
+        BinaryFeatureTable table = BinaryFeatureTable.of(write(), config);
+        for(int i = 0; i < 5000; i++) {
+            assertThat(table.getName(table.indexOf("feature." + i)), is("feature." + i));
+        }
+    }
+
+    @Test
+    public void map_WrittenFile_ReadsFromFile() throws IOException {
+        File file = folder.newFile("features.bin");
+        FileOutputStream out = new FileOutputStream(file);
+        try {
+            BinaryFeatureWriter.write(context.getSnapshot(), out);
+        } finally {
+            out.close();
+        }
+        BinaryFeatureTable table = BinaryFeatureTable.map(file, config);
+        table.verify();
+        assertThat(table.hasFeature("second.feature"), is(true));
+    }
+
+    @Test
+    public void write_SameFeatures_WritesSameBytes() throws IOException {
+        FeatureContext other = new FeatureContext(config);
+        other.addFeatures(Arrays.asList(new Feature("gr\u00fc\u00dfe.feature", config.enabledStatus), new Feature("plain.feature", null),
+                new Feature("second.feature", config.disabledStatus), new Feature("first.feature", config.enabledStatus)));
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        BinaryFeatureWriter.write(other.getSnapshot(), out);
+        assertThat(ByteBuffer.wrap(out.toByteArray()), is(write()));
+    }
+
+    @Test(expected = UnsupportedFormatException.class)
+    public void verify_ChangedContent_ThrowsUnsupportedFormatException() throws IOException {
+        ByteBuffer buffer = write();
+        buffer.put(buffer.capacity() - 1, (byte) 'x');
+        BinaryFeatureTable.of(buffer, config).verify();
+    }
+
+    @Test(expected = UnsupportedFormatException.class)
+    public void of_OtherContent_ThrowsUnsupportedFormatException() {
+        BinaryFeatureTable.of(ByteBuffer.wrap("test.feature=on".getBytes()), config);
+    }
+
+    @Test(expected = UnsupportedFormatException.class)
+    public void of_TruncatedContent_ThrowsUnsupportedFormatException() throws IOException {
+        ByteBuffer buffer = write();
+        buffer.limit(buffer.capacity() - 1);
+        BinaryFeatureTable.of(buffer.slice(), config);
+    }
+
+    private ByteBuffer write() throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        BinaryFeatureWriter.write(context.getSnapshot(), out);
+        return ByteBuffer.wrap(out.toByteArray());
+    }
+}
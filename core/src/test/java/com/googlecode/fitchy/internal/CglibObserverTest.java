@@ -18,6 +18,8 @@
  */
 package com.googlecode.fitchy.internal;
 
+import net.sf.cglib.proxy.Callback;
+import net.sf.cglib.proxy.Dispatcher;
 import net.sf.cglib.proxy.Enhancer;
 import net.sf.cglib.proxy.MethodInterceptor;
 import net.sf.cglib.proxy.Proxy;
@@ -27,7 +29,10 @@ import org.junit.runner.RunWith;
 import org.mockito.Mock;
 import org.mockito.runners.MockitoJUnitRunner;
 
+import com.googlecode.fitchy.Configuration;
 import com.googlecode.fitchy.FeatureContext;
+import com.googlecode.fitchy.annotation.FeatureSwitch;
+import com.googlecode.fitchy.exception.CannotCreateProxyException;
 import com.googlecode.fitchy.internal.CglibObserver;
 
 import static org.junit.Assert.*;
@@ -78,6 +83,130 @@ public class CglibObserverTest {
         CglibProxiedNativeConstructorClass test = observer.observe(new CglibProxiedNativeConstructorClass(1), context);
         assertThat(Enhancer.isEnhanced(test.getClass()), is(equalTo(true)));
     }
+
+    @Test
+    public void newInstance_WithoutConstructorFreeInstantiation_UsesFirstConstructor() {
+        CglibProxiedNativeConstructorClass origin = new CglibProxiedNativeConstructorClass(1);
+        CglibObserver.EnhancedClass enhanced = new CglibObserver.EnhancedClass(origin.getClass(), Dispatcher.class, false);
+        Object test = enhanced.newInstance(new Callback[] {new CglibObserver.CglibMethodInterceptor(origin, context), new CglibObserver.OriginDispatcher(origin)});
+        assertThat(test, is(instanceOf(CglibProxiedNativeConstructorClass.class)));
+    }
+
+    @Test
+    public void observe_WithCountingConstructor_DoesNotCallConstructor() {
+        CglibProxiedCountingClass origin = new CglibProxiedCountingClass();
+        int constructorCalls = CglibProxiedCountingClass.constructorCalls;
+        CglibProxiedCountingClass test = observer.observe(origin, context);
+        assertThat(Enhancer.isEnhanced(test.getClass()), is(equalTo(true)));
+        assertThat(CglibProxiedCountingClass.constructorCalls, is(equalTo(constructorCalls)));
+    }
+
+    @Test
+    public void observe_WithFailingConstructor_ReturnsProxy() {
+        CglibProxiedFailingClass test = observer.observe(CglibProxiedFailingClass.newInstance("origin"), context);
+        assertThat(test.withoutFeature(), is(equalTo("origin")));
+    }
+
+    @Test
+    public void observe_WithoutAnnotation_DispatchesToOrigin() {
+        CglibProxiedAnnotatedClass test = observer.observe(new CglibProxiedAnnotatedClass("origin"), context);
+        assertThat(test.withoutFeature(), is(equalTo("origin")));
+    }
+
+    @Test
+    public void observe_WithDisabledFeature_ReturnsNull() {
+        FeatureContext realContext = new FeatureContext(Configuration.getDefault());
+        CglibProxiedAnnotatedClass test = observer.observe(new CglibProxiedAnnotatedClass("origin"), realContext);
+        assertThat(test.withFeature(), is(nullValue()));
+    }
+
+    @Test
+    public void observe_WithEnabledFeature_ReturnsOriginValue() {
+        FeatureContext realContext = new FeatureContext(Configuration.getDefault());
+        realContext.addFeature("test.feature");
+        CglibProxiedAnnotatedClass test = observer.observe(new CglibProxiedAnnotatedClass("origin"), realContext);
+        assertThat(test.withFeature(), is(equalTo("origin")));
+    }
+
+    @Test
+    public void observe_SameClassOnTwoContexts_ChecksOwnContext() {
+        FeatureContext enabledContext = new FeatureContext(Configuration.getDefault());
+        FeatureContext disabledContext = new FeatureContext(Configuration.getDefault());
+        enabledContext.addFeature("test.feature");
+        CglibProxiedAnnotatedClass enabled = observer.observe(new CglibProxiedAnnotatedClass("enabled"), enabledContext);
+        CglibProxiedAnnotatedClass disabled = observer.observe(new CglibProxiedAnnotatedClass("disabled"), disabledContext);
+
+        for(int i = 0; i < 3; i++) {
+            assertThat(enabled.withFeature(), is(equalTo("enabled")));
+            assertThat(disabled.withFeature(), is(nullValue()));
+        }
+    }
+
+    @Test
+    public void observe_SameClassTwice_ReusesEnhancedClassWithOwnCallbacks() {
+        CglibProxiedAnnotatedClass first = observer.observe(new CglibProxiedAnnotatedClass("first"), context);
+        CglibProxiedAnnotatedClass second = observer.observe(new CglibProxiedAnnotatedClass("second"), context);
+        assertThat(second.getClass() == first.getClass(), is(true));
+        assertThat(first.withoutFeature(), is(equalTo("first")));
+        assertThat(second.withoutFeature(), is(equalTo("second")));
+    }
+
+    @Test(expected = CannotCreateProxyException.class)
+    public void create_WithUnknownConstructorArguments_ThrowsException() {
+        observer.create(CglibProxiedAnnotatedClass.class, new Class<?>[] {Integer.class}, new Object[] {1}, context);
+    }
+
+    @Test
+    public void create_WithStandardConstructor_ReturnsEnhancedInstance() {
+        CglibProxiedStandardClass test = observer.create(CglibProxiedStandardClass.class, context);
+        assertThat(Enhancer.isEnhanced(test.getClass()), is(equalTo(true)));
+        assertThat(test.withoutFeature(), is(equalTo("self")));
+    }
+
+    @Test
+    public void create_WithConstructorArguments_CallsSuperMethods() {
+        FeatureContext realContext = new FeatureContext(Configuration.getDefault());
+        realContext.addFeature("test.feature");
+        CglibProxiedAnnotatedClass test = observer.create(CglibProxiedAnnotatedClass.class, new Class<?>[] {String.class}, new Object[] {"self"}, realContext);
+        assertThat(test.withFeature(), is(equalTo("self")));
+    }
+
+    @Test
+    public void create_WithDisabledFeature_ReturnsNull() {
+        FeatureContext realContext = new FeatureContext(Configuration.getDefault());
+        CglibProxiedStandardClass test = observer.create(CglibProxiedStandardClass.class, realContext);
+        assertThat(test.withFeature(), is(nullValue()));
+    }
+}
+
+class CglibProxiedStandardClass {
+
+    @FeatureSwitch("test.feature")
+    public String withFeature() {
+        return "self";
+    }
+
+    public String withoutFeature() {
+        return "self";
+    }
+}
+
+class CglibProxiedAnnotatedClass {
+
+    private String value;
+
+    public CglibProxiedAnnotatedClass(String value) {
+        this.value = value;
+    }
+
+    @FeatureSwitch("test.feature")
+    public String withFeature() {
+        return value;
+    }
+
+    public String withoutFeature() {
+        return value;
+    }
 }
 
 class CglibProxiedObjectConstructorClass {
@@ -92,3 +221,36 @@ class CglibProxiedNativeConstructorClass {
 
     }
 }
+
+class CglibProxiedCountingClass {
+
+    static int constructorCalls;
+
+    public CglibProxiedCountingClass() {
+        constructorCalls++;
+    }
+}
+
+class CglibProxiedFailingClass {
+
+    private static boolean failing;
+
+    private final String value;
+
+    public CglibProxiedFailingClass(String value) {
+        if(failing) {
+            throw new IllegalStateException("constructor must not be called twice");
+        }
+        this.value = value;
+    }
+
+    static CglibProxiedFailingClass newInstance(String value) {
+        CglibProxiedFailingClass instance = new CglibProxiedFailingClass(value);
+        failing = true;
+        return instance;
+    }
+
+    public String withoutFeature() {
+        return value;
+    }
+}
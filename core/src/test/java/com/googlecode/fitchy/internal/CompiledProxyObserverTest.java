@@ -0,0 +1,134 @@
+/**
+ *  Licensed to the Apache Software Foundation (ASF) under one
+ *	or more contributor license agreements.  See the NOTICE file
+ *  distributed with this work for additional information
+ *	regarding copyright ownership.  The ASF licenses this file
+ *  to you under the Apache License, Version 2.0 (the
+ *  "License"); you may not use this file except in compliance
+ *  with the License.  You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing,
+ *  software distributed under the License is distributed on an
+ *  "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ *  KIND, either express or implied.  See the License for the
+ *  specific language governing permissions and limitations
+ *  under the License.
+ */
+package com.googlecode.fitchy.internal;
+
+import static org.hamcrest.CoreMatchers.*;
+import static org.junit.Assert.*;
+
+import java.io.IOException;
+import java.lang.reflect.Proxy;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import com.googlecode.fitchy.Configuration;
+import com.googlecode.fitchy.FeatureContext;
+import com.googlecode.fitchy.annotation.FeatureSwitch;
+
+public class CompiledProxyObserverTest {
+
+    private FeatureContext context;
+
+    private CompiledProxyObserver observer;
+
+    @Before
+    public void setUp() {
+        context = new FeatureContext(Configuration.getDefault());
+        observer = new CompiledProxyObserver();
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void observe_WithoutContext_throwsException() {
+        observer.observe(new CompiledService(), null);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void observe_WithoutImplementingObject_throwsException() {
+        observer.observe(new CompiledProxyObserverTest(), context);
+    }
+
+    @Test
+    public void observe_WithObject_ReturnsGeneratedProxy() {
+        Service service = observer.observe(new CompiledService(), context);
+        assertThat(Proxy.isProxyClass(service.getClass()), is(false));
+        assertThat(service, is(not(instanceOf(CompiledService.class))));
+        assertSame(service.getClass(), observer.observe(new CompiledService(), context).getClass());
+    }
+
+    @Test
+    public void observe_WithEnabledFeature_CallsDelegate() {
+        context.addFeature("test.feature");
+        Service service = observer.observe(new CompiledService(), context);
+        assertThat(service.greet("world"), is("hello world"));
+        assertThat(service.count(), is(42));
+    }
+
+    @Test
+    public void observe_WithDisabledFeature_ReturnsDefaultValues() {
+        Service service = observer.observe(new CompiledService(), context);
+        assertThat(service.greet("world"), is(nullValue()));
+        assertThat(service.count(), is(0));
+    }
+
+    @Test
+    public void observe_WithFeatureAddedLater_CallsDelegate() {
+        Service service = observer.observe(new CompiledService(), context);
+        context.addFeature("test.feature");
+        assertThat(service.count(), is(42));
+    }
+
+    @Test
+    public void observe_WithoutAnnotation_CallsDelegate() {
+        Service service = observer.observe(new CompiledService(), context);
+        assertThat(service.plain(), is("plain"));
+        assertThat(service.toString(), is("compiled"));
+    }
+
+    @Test(expected = IOException.class)
+    public void observe_WithThrowingMethod_RethrowsException() throws IOException {
+        Service service = observer.observe(new CompiledService(), context);
+        service.fail();
+    }
+}
+
+interface Service {
+    String greet(String name);
+
+    int count();
+
+    String plain();
+
+    void fail() throws IOException;
+}
+
+class CompiledService implements Service {
+
+    @FeatureSwitch("test.feature")
+    public String greet(String name) {
+        return "hello " + name;
+    }
+
+    @FeatureSwitch("test.feature")
+    public int count() {
+        return 42;
+    }
+
+    public String plain() {
+        return "plain";
+    }
+
+    public void fail() throws IOException {
+        throw new IOException("expected");
+    }
+
+    @Override
+    public String toString() {
+        return "compiled";
+    }
+}
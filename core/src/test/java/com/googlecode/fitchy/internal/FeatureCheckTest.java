@@ -0,0 +1,79 @@
+/**
+ *  Licensed to the Apache Software Foundation (ASF) under one
+ *	or more contributor license agreements.  See the NOTICE file
+ *  distributed with this work for additional information
+ *	regarding copyright ownership.  The ASF licenses this file
+ *  to you under the Apache License, Version 2.0 (the
+ *  "License"); you may not use this file except in compliance
+ *  with the License.  You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing,
+ *  software distributed under the License is distributed on an
+ *  "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ *  KIND, either express or implied.  See the License for the
+ *  specific language governing permissions and limitations
+ *  under the License.
+ */
+package com.googlecode.fitchy.internal;
+
+import static org.hamcrest.CoreMatchers.*;
+import static org.junit.Assert.*;
+
+import org.junit.Test;
+
+import com.googlecode.fitchy.Configuration;
+import com.googlecode.fitchy.FeatureCallSite;
+import com.googlecode.fitchy.FeatureContext;
+import com.googlecode.fitchy.annotation.FeatureSwitch;
+import com.googlecode.fitchy.resolver.FeatureResolver;
+
+public class FeatureCheckTest {
+
+    @Test
+    public void of_WithAnnotation_TakesNameAndStatuses() throws Exception {
+        FeatureCheck check = FeatureCheck.of(getFeatureSwitch("either"));
+        assertThat(check.getFeatureName(), is("test.feature"));
+        assertArrayEquals(new String[] { "", "on", "off" }, check.getStatusNames());
+    }
+
+    @Test
+    public void getCallSite_WithOtherContext_ReturnsCallSiteOfOtherContext() throws Exception {
+        FeatureCheck check = FeatureCheck.of(getFeatureSwitch("enabled"));
+        FeatureContext first = new FeatureContext(Configuration.getDefault());
+        FeatureContext second = new FeatureContext(Configuration.getDefault());
+        first.addFeature("test.feature");
+
+        assertThat(check.getCallSite(new FeatureResolver(first, first.getConfig())).isAvailable(), is(true));
+        assertThat(check.getCallSite(new FeatureResolver(second, second.getConfig())).isAvailable(), is(false));
+        assertThat(check.getCallSite(new FeatureResolver(first, first.getConfig())).isAvailable(), is(true));
+    }
+
+    @Test
+    public void getCallSite_WithSeveralStatuses_AcceptsEveryStatus() throws Exception {
+        FeatureCheck check = FeatureCheck.of(getFeatureSwitch("either"));
+        FeatureContext context = new FeatureContext(Configuration.getDefault());
+        FeatureResolver resolver = new FeatureResolver(context, context.getConfig());
+        FeatureCallSite callSite = check.getCallSite(resolver);
+        assertThat(callSite.isAvailable(), is(false));
+
+        context.addFeature("test.feature").setStatus(DefaultFeatureStatus.OFF);
+        assertThat(callSite.isAvailable(), is(true));
+    }
+
+    private FeatureSwitch getFeatureSwitch(String methodName) throws NoSuchMethodException {
+        return CheckTarget.class.getMethod(methodName).getAnnotation(FeatureSwitch.class);
+    }
+}
+
+class CheckTarget {
+
+    @FeatureSwitch("test.feature")
+    public void enabled() {
+    }
+
+    @FeatureSwitch(value = "test.feature", statuses = { "on", "off" })
+    public void either() {
+    }
+}
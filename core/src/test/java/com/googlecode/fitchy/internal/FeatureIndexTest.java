@@ -0,0 +1,94 @@
+/**
+ *  Licensed to the Apache Software Foundation (ASF) under one
+ *	or more contributor license agreements.  See the NOTICE file
+ *  distributed with this work for additional information
+ *	regarding copyright ownership.  The ASF licenses this file
+ *  to you under the Apache License, Version 2.0 (the
+ *  "License"); you may not use this file except in compliance
+ *  with the License.  You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing,
+ *  software distributed under the License is distributed on an
+ *  "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ *  KIND, either express or implied.  See the License for the
+ *  specific language governing permissions and limitations
+ *  under the License.
+ */
+package com.googlecode.fitchy.internal;
+
+import static org.hamcrest.CoreMatchers.*;
+import static org.junit.Assert.*;
+
+import java.util.Arrays;
+
+import org.junit.Test;
+
+public class FeatureIndexTest {
+
+    private final FeatureIndex index = new FeatureIndex();
+
+    @Test
+    public void idOf_WithNames_ReturnsDenseIds() {
+        assertThat(index.idOf("first"), is(0));
+        assertThat(index.idOf("second"), is(1));
+        assertThat(index.idOf("first"), is(0));
+    }
+
+    @Test
+    public void get_WithoutValue_ReturnsEmpty() {
+        assertThat(index.get(index.idOf("first")), is(FeatureIndex.EMPTY));
+        assertThat(index.get(1000), is(FeatureIndex.EMPTY));
+    }
+
+    @Test
+    public void set_BeyondCapacity_KeepsValues() {
+        for(int i = 0; i < 100; i++) {
+            index.set(index.idOf("feature" + i), i + 1);
+        }
+        for(int i = 0; i < 100; i++) {
+            assertThat(index.get(index.idOf("feature" + i)), is(i + 1));
+        }
+    }
+
+    @Test
+    public void clear_WithValues_KeepsIds() {
+        int id = index.idOf("first");
+        index.set(id, 3);
+        index.clear();
+        assertThat(index.get(id), is(FeatureIndex.EMPTY));
+        assertThat(index.idOf("first"), is(id));
+    }
+
+    @Test
+    public void update_WithSeveralIds_StoresAllCodes() {
+        int first = index.idOf("first");
+        index.set(first, 3);
+        int second = index.idOf("second");
+        index.update(new int[] {first, second, 40}, new int[] {FeatureIndex.EMPTY, 5, 6});
+        assertThat(index.get(first), is(FeatureIndex.EMPTY));
+        assertThat(index.get(second), is(5));
+        assertThat(index.get(40), is(6));
+    }
+
+    @Test
+    public void release_WithUnusedName_ReusesIdAndResetsCode() {
+        int first = index.idOf("first");
+        index.set(first, 3);
+        index.release(Arrays.asList("first", "unknown"));
+        assertThat(index.get(first), is(FeatureIndex.EMPTY));
+        assertThat(index.idOf("second"), is(first));
+        assertThat(index.idOf("first"), is(first + 1));
+    }
+
+    @Test
+    public void release_WithRetainedName_KeepsId() {
+        int first = index.retain("first");
+        index.set(first, 3);
+        index.release(Arrays.asList("first"));
+        assertThat(index.get(first), is(3));
+        assertThat(index.idOf("first"), is(first));
+        assertThat(index.idOf("second"), is(not(first)));
+    }
+}
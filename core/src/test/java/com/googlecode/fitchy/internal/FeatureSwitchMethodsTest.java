@@ -0,0 +1,86 @@
+/**
+ *  Licensed to the Apache Software Foundation (ASF) under one
+ *	or more contributor license agreements.  See the NOTICE file
+ *  distributed with this work for additional information
+ *	regarding copyright ownership.  The ASF licenses this file
+ *  to you under the Apache License, Version 2.0 (the
+ *  "License"); you may not use this file except in compliance
+ *  with the License.  You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing,
+ *  software distributed under the License is distributed on an
+ *  "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ *  KIND, either express or implied.  See the License for the
+ *  specific language governing permissions and limitations
+ *  under the License.
+ */
+package com.googlecode.fitchy.internal;
+
+import static org.hamcrest.CoreMatchers.*;
+import static org.junit.Assert.*;
+
+import org.junit.Test;
+
+import com.googlecode.fitchy.annotation.FeatureSwitch;
+
+public class FeatureSwitchMethodsTest {
+
+    @Test
+    public void of_WithoutAnnotatedMethods_IsEmpty() {
+        assertThat(FeatureSwitchMethods.of(ScanPlain.class).isEmpty(), is(true));
+    }
+
+    @Test
+    public void of_WithAnnotatedMethod_ContainsOnlyThisMethod() throws Exception {
+        FeatureSwitchMethods methods = FeatureSwitchMethods.of(ScanAnnotated.class);
+        assertThat(methods.isEmpty(), is(false));
+        assertThat(methods.isGated(ScanAnnotated.class.getMethod("annotated")), is(true));
+        assertThat(methods.isGated(ScanAnnotated.class.getMethod("plain")), is(false));
+    }
+
+    @Test
+    public void of_WithAnnotationOnInterface_ContainsInterfaceMethod() throws Exception {
+        FeatureSwitchMethods methods = FeatureSwitchMethods.of(ScanImplementation.class);
+        assertThat(methods.isGated(ScanInterface.class.getMethod("gated")), is(true));
+    }
+
+    @Test
+    public void of_WithAnnotatedSuperClass_ContainsInheritedMethod() throws Exception {
+        FeatureSwitchMethods methods = FeatureSwitchMethods.of(ScanSubclass.class);
+        assertThat(methods.isGated(ScanAnnotated.class.getMethod("annotated")), is(true));
+    }
+
+    @Test
+    public void of_CalledTwice_ReturnsSameScan() {
+        assertSame(FeatureSwitchMethods.of(ScanAnnotated.class), FeatureSwitchMethods.of(ScanAnnotated.class));
+    }
+}
+
+class ScanPlain implements Runnable {
+    public void run() {
+    }
+}
+
+class ScanAnnotated {
+    @FeatureSwitch("test.feature")
+    public void annotated() {
+    }
+
+    public void plain() {
+    }
+}
+
+class ScanSubclass extends ScanAnnotated {
+}
+
+interface ScanInterface {
+    @FeatureSwitch("test.feature")
+    void gated();
+}
+
+class ScanImplementation implements ScanInterface {
+    public void gated() {
+    }
+}
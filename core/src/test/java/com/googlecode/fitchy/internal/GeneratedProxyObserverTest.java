@@ -0,0 +1,146 @@
+/**
+ *  Licensed to the Apache Software Foundation (ASF) under one
+ *	or more contributor license agreements.  See the NOTICE file
+ *  distributed with this work for additional information
+ *	regarding copyright ownership.  The ASF licenses this file
+ *  to you under the Apache License, Version 2.0 (the
+ *  "License"); you may not use this file except in compliance
+ *  with the License.  You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing,
+ *  software distributed under the License is distributed on an
+ *  "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ *  KIND, either express or implied.  See the License for the
+ *  specific language governing permissions and limitations
+ *  under the License.
+ */
+package com.googlecode.fitchy.internal;
+
+import static org.hamcrest.CoreMatchers.*;
+import static org.junit.Assert.*;
+
+import java.lang.reflect.Proxy;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import com.googlecode.fitchy.Configuration;
+import com.googlecode.fitchy.FeatureCallSite;
+import com.googlecode.fitchy.FeatureContext;
+import com.googlecode.fitchy.GeneratedProxyFactory;
+import com.googlecode.fitchy.ProxyBuilder;
+import com.googlecode.fitchy.annotation.FeatureSwitch;
+import com.googlecode.fitchy.resolver.FeatureResolver;
+
+public class GeneratedProxyObserverTest {
+
+    private FeatureContext context;
+
+    private GeneratedProxyObserver observer;
+
+    @Before
+    public void setUp() {
+        context = new FeatureContext(Configuration.getDefault());
+        observer = new GeneratedProxyObserver();
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void observe_WithoutContext_throwsException() {
+        observer.observe(new GeneratedGreeter(), null);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void observe_WithoutObject_throwsException() {
+        observer.observe(null, context);
+    }
+
+    @Test
+    public void observe_WithRegisteredClass_ReturnsGeneratedProxy() {
+        Greeter greeter = observer.observe(new GeneratedGreeter(), context);
+        assertThat(greeter, is(instanceOf(GeneratedGreeter_FitchyProxy.class)));
+    }
+
+    @Test
+    public void observe_WithRegisteredClass_ChecksFeature() {
+        Greeter greeter = observer.observe(new GeneratedGreeter(), context);
+        assertThat(greeter.greet(), is(nullValue()));
+        context.addFeature("test.feature");
+        assertThat(greeter.greet(), is("hello"));
+    }
+
+    @Test
+    public void observe_WithUnregisteredClass_FallsBackToJavaProxy() {
+        Greeter greeter = observer.observe(new PlainGreeter(), context);
+        assertThat(Proxy.isProxyClass(greeter.getClass()), is(true));
+        assertThat(greeter.greet(), is(nullValue()));
+    }
+
+    @Test
+    public void hasProxy_WithRegisteredAndUnregisteredClass_FindsOnlyGeneratedProxy() {
+        assertThat(observer.hasProxy(GeneratedGreeter.class), is(true));
+        assertThat(observer.hasProxy(PlainGreeter.class), is(false));
+    }
+
+    @Test
+    public void build_WithGeneratedProxy_UsesGeneratedProxy() {
+        Greeter greeter = ProxyBuilder.fromContext(context).build((Greeter) new GeneratedGreeter());
+        assertThat(greeter, is(instanceOf(GeneratedGreeter_FitchyProxy.class)));
+    }
+
+    @Test
+    public void build_WithCustomObserver_IgnoresGeneratedProxy() {
+        Greeter greeter = ProxyBuilder.fromContext(context).withObserver(new JavaProxyObserver()).build((Greeter) new GeneratedGreeter());
+        assertThat(Proxy.isProxyClass(greeter.getClass()), is(true));
+    }
+}
+
+interface Greeter {
+    String greet();
+}
+
+class GeneratedGreeter implements Greeter {
+    @FeatureSwitch("test.feature")
+    public String greet() {
+        return "hello";
+    }
+}
+
+class PlainGreeter implements Greeter {
+    @FeatureSwitch("test.feature")
+    public String greet() {
+        return "hello";
+    }
+}
+
+/**
+ * Written like the delegates of the fitchy annotation processor and found by its name.
+ */
+class GeneratedGreeter_FitchyProxy implements Greeter {
+
+    static final GeneratedProxyFactory FACTORY = new GeneratedProxyFactory() {
+        public Class<?> getTargetClass() {
+            return GeneratedGreeter.class;
+        }
+
+        public Object create(Object origin, FeatureResolver resolver) {
+            return new GeneratedGreeter_FitchyProxy((GeneratedGreeter) origin, resolver);
+        }
+    };
+
+    private final GeneratedGreeter delegate;
+    private final FeatureCallSite callSite0;
+
+    GeneratedGreeter_FitchyProxy(GeneratedGreeter delegate, FeatureResolver resolver) {
+        this.delegate = delegate;
+        this.callSite0 = resolver.getCallSite("test.feature", "");
+    }
+
+    public String greet() {
+        if(callSite0.isAvailable()) {
+            return delegate.greet();
+        }
+        return null;
+    }
+}
@@ -0,0 +1,125 @@
+/**
+ *  Licensed to the Apache Software Foundation (ASF) under one
+ *	or more contributor license agreements.  See the NOTICE file
+ *  distributed with this work for additional information
+ *	regarding copyright ownership.  The ASF licenses this file
+ *  to you under the Apache License, Version 2.0 (the
+ *  "License"); you may not use this file except in compliance
+ *  with the License.  You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing,
+ *  software distributed under the License is distributed on an
+ *  "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ *  KIND, either express or implied.  See the License for the
+ *  specific language governing permissions and limitations
+ *  under the License.
+ */
+package com.googlecode.fitchy.internal;
+
+import static org.hamcrest.CoreMatchers.*;
+import static org.junit.Assert.*;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Random;
+
+import org.junit.Test;
+
+public class HashTrieMapTest {
+
+    private final HashTrieMap<String, Integer> empty = HashTrieMap.empty();
+
+    @Test
+    public void plus_WithNewKey_KeepsPreviousMap() {
+        HashTrieMap<String, Integer> first = empty.plus("first", 1);
+        HashTrieMap<String, Integer> second = first.plus("second", 2);
+        assertThat(first.size(), is(1));
+        assertThat(first.get("second"), is(nullValue()));
+        assertThat(second.size(), is(2));
+        assertThat(second.get("first"), is(1));
+        assertThat(second.get("second"), is(2));
+    }
+
+    @Test
+    public void plus_WithExistingKey_ReplacesValue() {
+        HashTrieMap<String, Integer> map = empty.plus("first", 1);
+        HashTrieMap<String, Integer> replaced = map.plus("first", 2);
+        assertThat(replaced.size(), is(1));
+        assertThat(replaced.get("first"), is(2));
+        assertThat(map.get("first"), is(1));
+    }
+
+    @Test
+    public void plus_WithSameValue_ReturnsSameMap() {
+        Integer value = 1000;
+        HashTrieMap<String, Integer> map = empty.plus("first", value);
+        assertThat(map.plus("first", value), is(sameInstance(map)));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void plus_WithNullValue_throwsException() {
+        empty.plus("first", null);
+    }
+
+    @Test
+    public void minus_WithKey_RemovesOnlyKey() {
+        HashTrieMap<String, Integer> map = empty.plus("first", 1).plus("second", 2);
+        HashTrieMap<String, Integer> removed = map.minus("first");
+        assertThat(removed.size(), is(1));
+        assertThat(removed.containsKey("first"), is(false));
+        assertThat(removed.get("second"), is(2));
+        assertThat(map.get("first"), is(1));
+    }
+
+    @Test
+    public void minus_WithUnknownKey_ReturnsSameMap() {
+        HashTrieMap<String, Integer> map = empty.plus("first", 1);
+        assertThat(map.minus("unknown"), is(sameInstance(map)));
+        assertThat(map.minus(null), is(sameInstance(map)));
+    }
+
+    @Test
+    public void plus_WithCollidingKeys_KeepsAllKeys() {
+        // "Aa" and "BB" have the same hash code
+        HashTrieMap<String, Integer> map = empty.plus("Aa", 1).plus("BB", 2).plus("first", 3);
+        assertThat(map.size(), is(3));
+        assertThat(map.get("Aa"), is(1));
+        assertThat(map.get("BB"), is(2));
+        HashTrieMap<String, Integer> removed = map.minus("Aa");
+        assertThat(removed.get("Aa"), is(nullValue()));
+        assertThat(removed.get("BB"), is(2));
+        assertThat(removed.minus("BB").size(), is(1));
+    }
+
+    @Test
+    public void keySet_WithEntries_ContainsAllKeys() {
+        HashTrieMap<String, Integer> map = empty.plus("first", 1).plus("second", 2).plus("third", 3).minus("second");
+        assertThat(map.keySet(), is(equalTo((Object) new HashSet<String>(Arrays.asList("first", "third")))));
+    }
+
+    @Test
+    public void plusAndMinus_WithRandomKeys_BehavesLikeHashMap() {
+        Random random = new Random(42);
+        Map<String, Integer> expected = new HashMap<String, Integer>();
+        HashTrieMap<String, Integer> map = empty;
+        for(int i = 0; i < 20000; i++) {
+            String key = "feature" + random.nextInt(5000);
+            if(random.nextInt(3) == 0) {
+                expected.remove(key);
+                map = map.minus(key);
+            } else {
+                expected.put(key, i);
+                map = map.plus(key, i);
+            }
+        }
+        assertThat(map.size(), is(expected.size()));
+        assertThat(map.keySet(), is(equalTo((Object) expected.keySet())));
+        for(Map.Entry<String, Integer> entry : expected.entrySet()) {
+            assertThat(map.get(entry.getKey()), is(entry.getValue()));
+        }
+    }
+}
@@ -72,6 +72,14 @@ public class JavaProxyObserverTest {
         assertThat(Proxy.isProxyClass(object.getClass()),equalTo(true));
         assertThat(Proxy.getInvocationHandler(object).getClass().toString(), equalTo(JavaProxyObserver.ProxyInvocationHandler.class.toString()));
     }
+
+    @Test
+    public void observe_SameClassTwice_ReusesProxyClass() {
+        Serializable first = observer.observe(new JavaProxiedClass(), context);
+        Serializable second = observer.observe(new JavaProxiedClass(), context);
+        assertThat(second.getClass() == first.getClass(), is(true));
+        assertThat(Proxy.getInvocationHandler(second), is(not(sameInstance(Proxy.getInvocationHandler(first)))));
+    }
 }
 
 class JavaProxiedClass implements Serializable {
@@ -0,0 +1,79 @@
+/**
+ *  Licensed to the Apache Software Foundation (ASF) under one
+ *	or more contributor license agreements.  See the NOTICE file
+ *  distributed with this work for additional information
+ *	regarding copyright ownership.  The ASF licenses this file
+ *  to you under the Apache License, Version 2.0 (the
+ *  "License"); you may not use this file except in compliance
+ *  with the License.  You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing,
+ *  software distributed under the License is distributed on an
+ *  "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ *  KIND, either express or implied.  See the License for the
+ *  specific language governing permissions and limitations
+ *  under the License.
+ */
+package com.googlecode.fitchy.internal;
+
+import static org.hamcrest.CoreMatchers.*;
+import static org.junit.Assert.*;
+
+import java.lang.reflect.Method;
+
+import org.junit.Test;
+
+import com.googlecode.fitchy.annotation.FeatureSwitch;
+
+public class MethodDecisionTest {
+
+    @Test
+    public void of_WithAnnotatedMethod_ReturnsGatedDecision() throws Exception {
+        MethodDecision decision = MethodDecision.of(DecisionTarget.class, DecisionTarget.class.getMethod("annotated"));
+        assertThat(decision.isGated(), is(true));
+        assertThat(decision.getFeatureName(), is("test.feature"));
+        assertArrayEquals(new String[] { "off" }, decision.getStatusNames());
+    }
+
+    @Test
+    public void of_WithAnnotationOnImplementingClass_ReturnsGatedDecision() throws Exception {
+        MethodDecision decision = MethodDecision.of(DecisionTarget.class, DecisionInterface.class.getMethod("implemented"));
+        assertThat(decision.isGated(), is(true));
+        assertThat(decision.getFeatureName(), is("test.implemented"));
+    }
+
+    @Test
+    public void of_WithoutAnnotation_ReturnsNotGatedDecision() throws Exception {
+        MethodDecision decision = MethodDecision.of(DecisionTarget.class, DecisionTarget.class.getMethod("toString"));
+        assertThat(decision.isGated(), is(false));
+    }
+
+    @Test
+    public void of_CalledTwice_ReturnsSameDecision() throws Exception {
+        Method method = DecisionTarget.class.getMethod("annotated");
+        assertSame(MethodDecision.of(DecisionTarget.class, method), MethodDecision.of(DecisionTarget.class, method));
+    }
+
+    @Test
+    public void getInvoker_CalledTwice_BindsOnce() throws Exception {
+        MethodDecision decision = MethodDecision.of(DecisionTarget.class, DecisionTarget.class.getMethod("implemented"));
+        assertSame(decision.getInvoker(), decision.getInvoker());
+    }
+}
+
+interface DecisionInterface {
+    void implemented();
+}
+
+class DecisionTarget implements DecisionInterface {
+
+    @FeatureSwitch(value = "test.feature", status = "off")
+    public void annotated() {
+    }
+
+    @FeatureSwitch("test.implemented")
+    public void implemented() {
+    }
+}
@@ -57,6 +57,14 @@ public class PropertyFeatureReaderTest {
         assertThat(feature.getName(), Is.is("test.feature"));
     }
 
+    @Test
+    public void read_readRepeatedKey_ReturnBothOccurrences() {
+        PropertyFeatureReader reader = createReaderFromInput("test.feature=on\ntest.feature=off");
+        assertThat(reader.read().getStatus(), Is.is(options.enabledStatus));
+        assertThat(reader.read().getStatus(), Is.is(options.disabledStatus));
+        assertThat(reader.read(), IsNull.nullValue());
+    }
+
     @Test
     public void read_readEmptyStream_ReturnNull() {
         PropertyFeatureReader reader = createReaderFromInput("");
@@ -0,0 +1,92 @@
+/**
+ *  Licensed to the Apache Software Foundation (ASF) under one
+ *	or more contributor license agreements.  See the NOTICE file
+ *  distributed with this work for additional information
+ *	regarding copyright ownership.  The ASF licenses this file
+ *  to you under the Apache License, Version 2.0 (the
+ *  "License"); you may not use this file except in compliance
+ *  with the License.  You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing,
+ *  software distributed under the License is distributed on an
+ *  "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ *  KIND, either express or implied.  See the License for the
+ *  specific language governing permissions and limitations
+ *  under the License.
+ */
+package com.googlecode.fitchy.internal;
+
+import static org.hamcrest.CoreMatchers.*;
+import static org.junit.Assert.*;
+
+import java.io.IOException;
+import java.lang.reflect.Method;
+
+import org.junit.Test;
+
+public class TargetMethodInvokerTest {
+
+    @Test
+    public void invoke_WithArguments_ReturnsOriginalReturnValue() throws Throwable {
+        TargetMethodInvoker invoker = TargetMethodInvoker.bind(InvokerTarget.class.getDeclaredMethod("add", Integer.TYPE, Integer.TYPE));
+        assertThat(invoker.invoke(new InvokerTarget(), new Object[] {1, 2}), is((Object) 3));
+    }
+
+    @Test
+    public void invoke_WithVoidMethod_ReturnsNull() throws Throwable {
+        TargetMethodInvoker invoker = TargetMethodInvoker.bind(InvokerTarget.class.getDeclaredMethod("doNothing"));
+        assertThat(invoker.invoke(new InvokerTarget(), null), is(nullValue()));
+    }
+
+    @Test(expected = IOException.class)
+    public void invoke_WithThrowingMethod_RethrowsOriginalException() throws Throwable {
+        TargetMethodInvoker invoker = TargetMethodInvoker.bind(InvokerTarget.class.getDeclaredMethod("fail"));
+        invoker.invoke(new InvokerTarget(), new Object[] {});
+    }
+
+    @Test
+    public void invoke_WithPublicMethod_ReturnsOriginalReturnValue() throws Throwable {
+        TargetMethodInvoker invoker = TargetMethodInvoker.bind(PublicInvokerTarget.class.getMethod("concat", String.class, Integer.TYPE));
+        assertThat(invoker.invoke(new PublicInvokerTarget(), new Object[] {"a", 1}), is((Object) "a1"));
+    }
+
+    @Test(expected = IOException.class)
+    public void invoke_WithThrowingPublicMethod_RethrowsOriginalException() throws Throwable {
+        TargetMethodInvoker invoker = TargetMethodInvoker.bind(PublicInvokerTarget.class.getMethod("fail"));
+        invoker.invoke(new PublicInvokerTarget(), null);
+    }
+
+    @Test
+    public void invoke_WithObjectMethod_ReturnsOriginalReturnValue() throws Throwable {
+        TargetMethodInvoker invoker = TargetMethodInvoker.bind(Object.class.getMethod("toString"));
+        assertThat(invoker.invoke(new PublicInvokerTarget(), null), is((Object) "target"));
+    }
+
+    @Test
+    public void bind_WithInaccessibleMethod_DoesNotChangeAccessibleFlag() throws Throwable {
+        Method method = InvokerTarget.class.getDeclaredMethod("secret");
+        TargetMethodInvoker invoker = TargetMethodInvoker.bind(method);
+        assertThat(invoker.invoke(new InvokerTarget(), null), is((Object) "secret"));
+        assertThat(method.isAccessible(), is(false));
+    }
+}
+
+class InvokerTarget {
+
+    int add(int a, int b) {
+        return a + b;
+    }
+
+    public void doNothing() {
+    }
+
+    public void fail() throws IOException {
+        throw new IOException("expected");
+    }
+
+    private String secret() {
+        return "secret";
+    }
+}
@@ -31,6 +31,8 @@ import com.googlecode.fitchy.internal.PropertyFeatureReader;
 import java.io.ByteArrayInputStream;
 import java.io.IOException;
 import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.List;
 
 import static org.junit.Assert.*;
 
@@ -75,6 +77,79 @@ public class PropertyFeatureReaderTest {
         assertThat(is.available(), Is.is(0));
     }
 
+    @Test
+    public void read_severalEntries_ReturnFeaturesInStreamOrder() {
+        PropertyFeatureReader reader = createReaderFromInput("b.feature=on\na.feature=off\nc.feature=on");
+        assertThat(readNames(reader), Is.is("b.feature,a.feature,c.feature"));
+    }
+
+    @Test
+    public void read_commentsAndBlankLines_SkipsThem() {
+        PropertyFeatureReader reader = createReaderFromInput("# comment\n\n   ! other comment\r\n  test.feature = off\r\n");
+        Feature feature = reader.read();
+        assertThat(feature.getName(), Is.is("test.feature"));
+        assertThat(feature.getStatus(), Is.is(options.disabledStatus));
+        assertThat(reader.read(), IsNull.nullValue());
+    }
+
+    @Test
+    public void read_separators_ReturnSameStatus() {
+        PropertyFeatureReader reader = createReaderFromInput("first:off\nsecond off\nthird  =  off\nfourth\t:off");
+        Feature feature;
+        while((feature = reader.read()) != null) {
+            assertThat(feature.getStatus(), Is.is(options.disabledStatus));
+        }
+    }
+
+    @Test
+    public void read_continuedLine_JoinsLines() {
+        PropertyFeatureReader reader = createReaderFromInput("test.feature=o\\\n    ff");
+        assertThat(reader.read().getStatus(), Is.is(options.disabledStatus));
+    }
+
+    @Test
+    public void read_escapedKey_UnescapesKey() {
+        PropertyFeatureReader reader = createReaderFromInput("test\\=feature\\u002e1\\ a=on\ntest\\\\=off");
+        assertThat(reader.read().getName(), Is.is("test=feature.1 a"));
+        Feature feature = reader.read();
+        assertThat(feature.getName(), Is.is("test\\"));
+        assertThat(feature.getStatus(), Is.is(options.disabledStatus));
+    }
+
+    @Test(expected=UnsupportedFormatException.class)
+    public void read_malformedUnicodeEscape_ThrowException() {
+        createReaderFromInput("test\\u00zz=on").read();
+    }
+
+    @Test
+    public void read_manyEntries_ReturnsAllFeatures() {
+        StringBuilder input = new StringBuilder();
+        for(int i = 0; i < 10000; i++) {
+            input.append("feature.").append(i).append('=').append(i % 2 == 0 ? "on" : "off").append('\n');
+        }
+        PropertyFeatureReader reader = createReaderFromInput(input.toString());
+        int count = 0;
+        Feature feature;
+        while((feature = reader.read()) != null) {
+            assertThat(feature.getName(), Is.is("feature." + count));
+            count++;
+        }
+        assertThat(count, Is.is(10000));
+    }
+
+    private String readNames(PropertyFeatureReader reader) {
+        List<String> names = new ArrayList<String>();
+        Feature feature;
+        while((feature = reader.read()) != null) {
+            names.add(feature.getName());
+        }
+        StringBuilder joined = new StringBuilder();
+        for(String name : names) {
+            joined.append(joined.length() > 0 ? "," : "").append(name);
+        }
+        return joined.toString();
+    }
+
     private PropertyFeatureReader createReaderFromInput(String input) {
         if(input != null) {
             is = new ByteArrayInputStream(input.getBytes());
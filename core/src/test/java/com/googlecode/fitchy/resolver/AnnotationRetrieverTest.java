@@ -25,6 +25,7 @@ import com.googlecode.fitchy.exception.AnnotationNotFoundException;
 import com.googlecode.fitchy.resolver.AnnotationRetriever;
 
 import static org.hamcrest.core.Is.is;
+import static org.hamcrest.core.IsNull.nullValue;
 import static org.junit.Assert.assertThat;
 
 /**
@@ -46,6 +47,12 @@ public class AnnotationRetrieverTest {
         retriever.getAnnotation(this.getClass().getMethod("setUp", new Class<?>[] {}));
     }
 
+    @Test
+    public void findAnnotation_WithoutAnnotation_ReturnsNull() throws Exception {
+        Test testAnnotation = retriever.findAnnotation(this.getClass().getMethod("setUp", new Class<?>[] {}));
+        assertThat(testAnnotation, is(nullValue()));
+    }
+
     @Test(timeout = 500)
     public void getAnnotation_WithAnnotation_ReturnAnnotation() throws Exception {
         Test testAnnotation = retriever.getAnnotation(this.getClass().getMethod("getAnnotation_WithAnnotation_ReturnAnnotation", new Class<?>[] {}));
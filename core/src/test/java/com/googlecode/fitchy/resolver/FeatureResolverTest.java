@@ -28,11 +28,13 @@ import com.googlecode.fitchy.Configuration;
 import com.googlecode.fitchy.FeatureContext;
 import com.googlecode.fitchy.Configuration.Builder;
 import com.googlecode.fitchy.annotation.FeatureSwitch;
+import com.googlecode.fitchy.exception.StatusNotFoundException;
 import com.googlecode.fitchy.internal.DefaultFeatureStatus;
 import com.googlecode.fitchy.resolver.FeatureResolver;
 
 import static org.junit.Assert.*;
 
+import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 
 /**
@@ -61,7 +63,41 @@ public class FeatureResolverTest {
         when(context.featureHasStatus("test.feature", DefaultFeatureStatus.ON)).thenReturn(true);
         when(annotation.value()).thenReturn("test.feature");
         when(annotation.status()).thenReturn("");
+        when(annotation.statuses()).thenReturn(new String[0]);
         assertTrue(resolver.isFeatureAvailable(annotation));
     }
 
+    @Test
+    public void IsFeatureAvailable_WithSeveralStatuses_TestsBitmask() throws Exception {
+        when(context.featureHasAnyStatus("test.feature", 3L)).thenReturn(true);
+        when(annotation.value()).thenReturn("test.feature");
+        when(annotation.status()).thenReturn("");
+        when(annotation.statuses()).thenReturn(new String[] { "on", "off" });
+        assertTrue(resolver.isFeatureAvailable(annotation));
+    }
+
+    @Test
+    public void getStatusMask_WithoutStatus_ReturnsMaskOfEnabledStatus() {
+        assertEquals(1L, resolver.getStatusMask());
+        assertEquals(1L, resolver.getStatusMask(""));
+        assertEquals(2L, resolver.getStatusMask("", "off"));
+    }
+
+    @Test
+    public void getCallSite_WithSingleStatus_ComparesStatus() {
+        resolver.getCallSite("test.feature", "", "on");
+        verify(context).getCallSite("test.feature", DefaultFeatureStatus.ON);
+    }
+
+    @Test
+    public void getCallSite_WithSeveralStatuses_TestsBitmask() {
+        resolver.getCallSite("test.feature", "", "on", "off");
+        verify(context).getCallSite("test.feature", 3L);
+    }
+
+    @Test(expected = StatusNotFoundException.class)
+    public void getStatusMask_WithUnknownStatus_throwsException() {
+        resolver.getStatusMask("unknown");
+    }
+
 }
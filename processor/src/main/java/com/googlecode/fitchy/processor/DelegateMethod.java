@@ -0,0 +1,54 @@
+/**
+ *  Licensed to the Apache Software Foundation (ASF) under one
+ *	or more contributor license agreements.  See the NOTICE file
+ *  distributed with this work for additional information
+ *	regarding copyright ownership.  The ASF licenses this file
+ *  to you under the Apache License, Version 2.0 (the
+ *  "License"); you may not use this file except in compliance
+ *  with the License.  You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing,
+ *  software distributed under the License is distributed on an
+ *  "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ *  KIND, either express or implied.  See the License for the
+ *  specific language governing permissions and limitations
+ *  under the License.
+ */
+package com.googlecode.fitchy.processor;
+
+import javax.lang.model.element.ExecutableElement;
+import javax.lang.model.type.ExecutableType;
+
+import com.googlecode.fitchy.annotation.FeatureSwitch;
+
+/**
+ * A method that a generated delegate needs to implement. It holds the method element, its
+ * type as a member of the implemented interface and the {@link FeatureSwitch} annotation
+ * that gates the method or null.
+ */
+class DelegateMethod {
+
+    private final ExecutableElement element;
+    private final ExecutableType type;
+    private final FeatureSwitch featureSwitch;
+
+    DelegateMethod(ExecutableElement element, ExecutableType type, FeatureSwitch featureSwitch) {
+        this.element = element;
+        this.type = type;
+        this.featureSwitch = featureSwitch;
+    }
+
+    ExecutableElement getElement() {
+        return element;
+    }
+
+    ExecutableType getType() {
+        return type;
+    }
+
+    FeatureSwitch getFeatureSwitch() {
+        return featureSwitch;
+    }
+}
@@ -0,0 +1,191 @@
+/**
+ *  Licensed to the Apache Software Foundation (ASF) under one
+ *	or more contributor license agreements.  See the NOTICE file
+ *  distributed with this work for additional information
+ *	regarding copyright ownership.  The ASF licenses this file
+ *  to you under the Apache License, Version 2.0 (the
+ *  "License"); you may not use this file except in compliance
+ *  with the License.  You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing,
+ *  software distributed under the License is distributed on an
+ *  "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ *  KIND, either express or implied.  See the License for the
+ *  specific language governing permissions and limitations
+ *  under the License.
+ */
+package com.googlecode.fitchy.processor;
+
+import java.io.PrintWriter;
+import java.util.Iterator;
+import java.util.List;
+
+import javax.lang.model.element.ExecutableElement;
+import javax.lang.model.element.TypeElement;
+import javax.lang.model.element.TypeParameterElement;
+import javax.lang.model.type.TypeKind;
+import javax.lang.model.type.TypeMirror;
+import javax.lang.model.util.Elements;
+
+import com.googlecode.fitchy.FeatureCallSite;
+import com.googlecode.fitchy.GeneratedProxyFactory;
+import com.googlecode.fitchy.annotation.FeatureSwitch;
+import com.googlecode.fitchy.resolver.FeatureResolver;
+
+/**
+ * Writes the source of a delegate class for a type with {@link FeatureSwitch} annotated
+ * methods. The delegate takes a {@link FeatureCallSite} for the literal feature name and status
+ * of every annotation from the {@link FeatureResolver} when it is created, so a gated method
+ * only reads its call site. All other methods call the delegate directly. Like the runtime
+ * proxies a disabled method returns null or the default value of its primitive return type.
+ */
+class DelegateSourceWriter {
+
+    private final PrintWriter out;
+    private final Elements elements;
+
+    DelegateSourceWriter(PrintWriter out, Elements elements) {
+        this.out = out;
+        this.elements = elements;
+    }
+
+    void write(String packageName, String simpleName, TypeElement type, List<DelegateMethod> methods) {
+        String targetName = type.getQualifiedName().toString();
+        String factoryName = GeneratedProxyFactory.class.getName();
+        String resolverName = FeatureResolver.class.getName();
+        String callSiteName = FeatureCallSite.class.getName();
+
+        if(packageName.length() > 0) {
+            out.println("package " + packageName + ";");
+            out.println();
+        }
+        out.println("/**");
+        out.println(" * Generated by " + FeatureSwitchProcessor.class.getName() + " for {@link " + targetName + "}. Do not edit.");
+        out.println(" */");
+        out.print("public final class " + simpleName + " implements ");
+        Iterator<? extends TypeMirror> interfaces = type.getInterfaces().iterator();
+        while(interfaces.hasNext()) {
+            out.print(interfaces.next());
+            out.print(interfaces.hasNext() ? ", " : " {");
+        }
+        out.println();
+        out.println();
+        out.println("    public static final " + factoryName + " FACTORY = new " + factoryName + "() {");
+        out.println("        public Class<?> getTargetClass() {");
+        out.println("            return " + targetName + ".class;");
+        out.println("        }");
+        out.println();
+        out.println("        public Object create(Object origin, " + resolverName + " resolver) {");
+        out.println("            return new " + simpleName + "((" + targetName + ") origin, resolver);");
+        out.println("        }");
+        out.println("    };");
+        out.println();
+        out.println("    private final " + targetName + " delegate;");
+        for(int i = 0; i < methods.size(); i++) {
+            if(methods.get(i).getFeatureSwitch() != null) {
+                out.println("    private final " + callSiteName + " callSite" + i + ";");
+            }
+        }
+        out.println();
+        out.println("    public " + simpleName + "(" + targetName + " delegate, " + resolverName + " resolver) {");
+        out.println("        this.delegate = delegate;");
+        for(int i = 0; i < methods.size(); i++) {
+            FeatureSwitch featureSwitch = methods.get(i).getFeatureSwitch();
+            if(featureSwitch != null) {
+                StringBuilder arguments = new StringBuilder(elements.getConstantExpression(featureSwitch.value()));
+                arguments.append(", ").append(elements.getConstantExpression(featureSwitch.status()));
+                for(String status : featureSwitch.statuses()) {
+                    arguments.append(", ").append(elements.getConstantExpression(status));
+                }
+                out.println("        this.callSite" + i + " = resolver.getCallSite(" + arguments + ");");
+            }
+        }
+        out.println("    }");
+
+        for(int i = 0; i < methods.size(); i++) {
+            out.println();
+            writeMethod(methods.get(i), "callSite" + i);
+        }
+        out.println("}");
+        out.flush();
+    }
+
+    private void writeMethod(DelegateMethod method, String callSiteField) {
+        ExecutableElement element = method.getElement();
+        List<? extends TypeMirror> parameterTypes = method.getType().getParameterTypes();
+        TypeMirror returnType = method.getType().getReturnType();
+        boolean returnsValue = returnType.getKind() != TypeKind.VOID;
+
+        out.print("    public ");
+        writeTypeParameters(element.getTypeParameters());
+        out.print(returnType + " " + element.getSimpleName() + "(");
+        for(int i = 0; i < parameterTypes.size(); i++) {
+            out.print((i > 0 ? ", " : "") + parameterTypes.get(i) + " arg" + i);
+        }
+        out.print(")");
+        List<? extends TypeMirror> thrownTypes = method.getType().getThrownTypes();
+        for(int i = 0; i < thrownTypes.size(); i++) {
+            out.print((i == 0 ? " throws " : ", ") + thrownTypes.get(i));
+        }
+        out.println(" {");
+
+        StringBuilder call = new StringBuilder("delegate.").append(element.getSimpleName()).append('(');
+        for(int i = 0; i < parameterTypes.size(); i++) {
+            call.append(i > 0 ? ", " : "").append("arg").append(i);
+        }
+        call.append(");");
+
+        FeatureSwitch featureSwitch = method.getFeatureSwitch();
+        if(featureSwitch == null) {
+            out.println("        " + (returnsValue ? "return " : "") + call);
+        } else {
+            out.println("        if(" + callSiteField + ".isAvailable()) {");
+            out.println("            " + (returnsValue ? "return " : "") + call);
+            out.println("        }");
+            if(returnsValue) {
+                out.println("        return " + defaultValue(returnType) + ";");
+            }
+        }
+        out.println("    }");
+    }
+
+    private void writeTypeParameters(List<? extends TypeParameterElement> typeParameters) {
+        if(typeParameters.isEmpty()) {
+            return;
+        }
+        out.print("<");
+        for(int i = 0; i < typeParameters.size(); i++) {
+            TypeParameterElement typeParameter = typeParameters.get(i);
+            out.print((i > 0 ? ", " : "") + typeParameter.getSimpleName());
+            List<? extends TypeMirror> bounds = typeParameter.getBounds();
+            String separator = " extends ";
+            for(TypeMirror bound : bounds) {
+                if(!"java.lang.Object".equals(bound.toString())) {
+                    out.print(separator + bound);
+                    separator = " & ";
+                }
+            }
+        }
+        out.print("> ");
+    }
+
+    private String defaultValue(TypeMirror type) {
+        switch (type.getKind()) {
+            case BOOLEAN:
+                return "false";
+            case CHAR:
+                return "'\\0'";
+            case BYTE:
+            case SHORT:
+            case INT:
+            case LONG:
+            case FLOAT:
+            case DOUBLE:
+                return "(" + type + ") 0";
+            default:
+                return "null";
+        }
+    }
+}
@@ -0,0 +1,212 @@
+/**
+ *  Licensed to the Apache Software Foundation (ASF) under one
+ *	or more contributor license agreements.  See the NOTICE file
+ *  distributed with this work for additional information
+ *	regarding copyright ownership.  The ASF licenses this file
+ *  to you under the Apache License, Version 2.0 (the
+ *  "License"); you may not use this file except in compliance
+ *  with the License.  You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing,
+ *  software distributed under the License is distributed on an
+ *  "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ *  KIND, either express or implied.  See the License for the
+ *  specific language governing permissions and limitations
+ *  under the License.
+ */
+package com.googlecode.fitchy.processor;
+
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.io.Writer;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import javax.annotation.processing.AbstractProcessor;
+import javax.annotation.processing.RoundEnvironment;
+import javax.annotation.processing.SupportedAnnotationTypes;
+import javax.lang.model.SourceVersion;
+import javax.lang.model.element.Element;
+import javax.lang.model.element.ElementKind;
+import javax.lang.model.element.ExecutableElement;
+import javax.lang.model.element.Modifier;
+import javax.lang.model.element.NestingKind;
+import javax.lang.model.element.PackageElement;
+import javax.lang.model.element.TypeElement;
+import javax.lang.model.type.DeclaredType;
+import javax.lang.model.type.ExecutableType;
+import javax.lang.model.type.TypeMirror;
+import javax.lang.model.util.ElementFilter;
+import javax.tools.Diagnostic;
+
+import com.googlecode.fitchy.annotation.FeatureSwitch;
+import com.googlecode.fitchy.internal.GeneratedProxyObserver;
+
+/**
+ * Annotation processor that scans classes with {@link FeatureSwitch} annotated methods at compile
+ * time. For every such class that implements at least one interface it generates a plain Java
+ * delegate class <code>&lt;ClassName&gt;_FitchyProxy</code> in the same package. The delegate implements
+ * all interfaces of the class and checks the feature of an annotated method before it calls the
+ * original object. Like {@link com.googlecode.fitchy.internal.JavaProxyObserver} the annotation may be
+ * placed on the method of the class or of the interface, but only classes that contain an annotated
+ * method themselves are found.
+ *
+ * There is no registry of all delegates. {@link GeneratedProxyObserver} finds the delegate of a class
+ * by its name, so every delegate only depends on its own class and incremental or separate
+ * compilations of the same package don't overwrite each other.
+ */
+@SupportedAnnotationTypes("com.googlecode.fitchy.annotation.FeatureSwitch")
+public class FeatureSwitchProcessor extends AbstractProcessor {
+
+    static final String PROXY_SUFFIX = GeneratedProxyObserver.PROXY_SUFFIX;
+
+    private final Set<String> processedTypes = new HashSet<String>();
+
+    @Override
+    public SourceVersion getSupportedSourceVersion() {
+        return SourceVersion.latestSupported();
+    }
+
+    @Override
+    public boolean process(Set<? extends TypeElement> annotations, RoundEnvironment roundEnv) {
+        if(roundEnv.processingOver()) {
+            return false;
+        }
+
+        for(Element element : roundEnv.getElementsAnnotatedWith(FeatureSwitch.class)) {
+            Element enclosing = element.getEnclosingElement();
+            if(enclosing.getKind() == ElementKind.CLASS) {
+                TypeElement type = (TypeElement) enclosing;
+                if(processedTypes.add(type.getQualifiedName().toString()) && isProxyable(type)) {
+                    writeProxy(type);
+                }
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Checks whether a delegate can be generated for type. The class needs to implement an
+     * interface and must be accessible from its package.
+     */
+    private boolean isProxyable(TypeElement type) {
+        String reason = null;
+        if(type.getInterfaces().isEmpty()) {
+            reason = "it doesn't implement an interface";
+        } else if(type.getModifiers().contains(Modifier.PRIVATE)) {
+            reason = "it is private";
+        } else if(type.getNestingKind() == NestingKind.LOCAL || type.getNestingKind() == NestingKind.ANONYMOUS) {
+            reason = "it is a local or anonymous class";
+        } else if(!type.getTypeParameters().isEmpty()) {
+            reason = "it has type parameters";
+        }
+
+        if(reason != null) {
+            processingEnv.getMessager().printMessage(Diagnostic.Kind.NOTE,
+                    "fitchy doesn't generate a proxy for " + type.getQualifiedName() + " because " + reason, type);
+        }
+        return reason == null;
+    }
+
+    private void writeProxy(TypeElement type) {
+        String packageName = getPackageName(type);
+        String simpleName = getProxySimpleName(type);
+        String qualifiedName = packageName.length() == 0 ? simpleName : packageName + "." + simpleName;
+
+        try {
+            Writer writer = processingEnv.getFiler().createSourceFile(qualifiedName, type).openWriter();
+            try {
+                new DelegateSourceWriter(new PrintWriter(writer), processingEnv.getElementUtils())
+                        .write(packageName, simpleName, type, collectMethods(type));
+            } finally {
+                writer.close();
+            }
+        } catch (IOException e) {
+            processingEnv.getMessager().printMessage(Diagnostic.Kind.ERROR, "unable to write proxy " + qualifiedName + ": " + e.getMessage(), type);
+        }
+    }
+
+    /**
+     * Collects all methods of the interfaces of type and equals, hashCode and toString. Every method
+     * is returned with the {@link FeatureSwitch} annotation of the interface method or of the
+     * implementing method of type, which may be null.
+     */
+    private List<DelegateMethod> collectMethods(TypeElement type) {
+        Map<String, DelegateMethod> methods = new LinkedHashMap<String, DelegateMethod>();
+        for(TypeMirror interfaceType : type.getInterfaces()) {
+            DeclaredType declaredType = (DeclaredType) interfaceType;
+            TypeElement interfaceElement = (TypeElement) declaredType.asElement();
+            for(ExecutableElement method : ElementFilter.methodsIn(processingEnv.getElementUtils().getAllMembers(interfaceElement))) {
+                if(isObjectMethod(method) || method.getModifiers().contains(Modifier.STATIC)) {
+                    continue;
+                }
+                ExecutableType methodType = (ExecutableType) processingEnv.getTypeUtils().asMemberOf(declaredType, method);
+                addMethod(methods, type, method, methodType);
+            }
+        }
+
+        TypeElement object = processingEnv.getElementUtils().getTypeElement(Object.class.getName());
+        for(ExecutableElement method : ElementFilter.methodsIn(object.getEnclosedElements())) {
+            String name = method.getSimpleName().toString();
+            if("equals".equals(name) || "hashCode".equals(name) || "toString".equals(name)) {
+                addMethod(methods, type, method, (ExecutableType) method.asType());
+            }
+        }
+        return new ArrayList<DelegateMethod>(methods.values());
+    }
+
+    private void addMethod(Map<String, DelegateMethod> methods, TypeElement type, ExecutableElement method, ExecutableType methodType) {
+        StringBuilder key = new StringBuilder(method.getSimpleName());
+        for(TypeMirror parameterType : methodType.getParameterTypes()) {
+            key.append(';').append(processingEnv.getTypeUtils().erasure(parameterType));
+        }
+        if(!methods.containsKey(key.toString())) {
+            FeatureSwitch featureSwitch = method.getAnnotation(FeatureSwitch.class);
+            if(featureSwitch == null) {
+                ExecutableElement implementation = findImplementation(type, method);
+                featureSwitch = implementation != null ? implementation.getAnnotation(FeatureSwitch.class) : null;
+            }
+            methods.put(key.toString(), new DelegateMethod(method, methodType, featureSwitch));
+        }
+    }
+
+    private ExecutableElement findImplementation(TypeElement type, ExecutableElement method) {
+        for(ExecutableElement candidate : ElementFilter.methodsIn(processingEnv.getElementUtils().getAllMembers(type))) {
+            if(candidate.getSimpleName().equals(method.getSimpleName())
+                    && (candidate.equals(method) || processingEnv.getElementUtils().overrides(candidate, method, type))) {
+                return candidate;
+            }
+        }
+        return null;
+    }
+
+    private boolean isObjectMethod(ExecutableElement method) {
+        return ((TypeElement) method.getEnclosingElement()).getQualifiedName().contentEquals(Object.class.getName());
+    }
+
+    private String getPackageName(TypeElement type) {
+        PackageElement packageElement = processingEnv.getElementUtils().getPackageOf(type);
+        return packageElement.isUnnamed() ? "" : packageElement.getQualifiedName().toString();
+    }
+
+    /**
+     * Returns the name of the delegate class. For nested classes the names of all
+     * enclosing classes are joined with an underscore, the same way
+     * {@link GeneratedProxyObserver} looks them up.
+     */
+    private String getProxySimpleName(TypeElement type) {
+        StringBuilder name = new StringBuilder(type.getSimpleName());
+        Element enclosing = type.getEnclosingElement();
+        while(enclosing instanceof TypeElement) {
+            name.insert(0, enclosing.getSimpleName() + "_");
+            enclosing = enclosing.getEnclosingElement();
+        }
+        return name.append(PROXY_SUFFIX).toString();
+    }
+}
@@ -0,0 +1,215 @@
+/**
+ *  Licensed to the Apache Software Foundation (ASF) under one
+ *	or more contributor license agreements.  See the NOTICE file
+ *  distributed with this work for additional information
+ *	regarding copyright ownership.  The ASF licenses this file
+ *  to you under the Apache License, Version 2.0 (the
+ *  "License"); you may not use this file except in compliance
+ *  with the License.  You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing,
+ *  software distributed under the License is distributed on an
+ *  "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ *  KIND, either express or implied.  See the License for the
+ *  specific language governing permissions and limitations
+ *  under the License.
+ */
+package com.googlecode.fitchy.processor;
+
+import static org.hamcrest.CoreMatchers.*;
+import static org.junit.Assert.*;
+
+import java.io.File;
+import java.io.IOException;
+import java.net.URL;
+import java.net.URLClassLoader;
+import java.util.Arrays;
+
+import javax.tools.JavaCompiler;
+import javax.tools.JavaFileObject;
+import javax.tools.StandardJavaFileManager;
+import javax.tools.ToolProvider;
+
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import com.googlecode.fitchy.Configuration;
+import com.googlecode.fitchy.FeatureContext;
+import com.googlecode.fitchy.GeneratedProxyFactory;
+import com.googlecode.fitchy.annotation.FeatureSwitch;
+import com.googlecode.fitchy.internal.DefaultFeatureStatus;
+import com.googlecode.fitchy.internal.GeneratedProxyObserver;
+import com.googlecode.fitchy.resolver.FeatureResolver;
+
+public class FeatureSwitchProcessorTest {
+
+    private static final String SERVICE_SOURCE =
+            "package sample;\n"
+            + "public interface Service {\n"
+            + "    String greet(String name);\n"
+            + "    int count();\n"
+            + "    String plain();\n"
+            + "    String either();\n"
+            + "    void fail() throws java.io.IOException;\n"
+            + "}\n";
+
+    private static final String IMPLEMENTATION_SOURCE =
+            "package sample;\n"
+            + "import com.googlecode.fitchy.annotation.FeatureSwitch;\n"
+            + "public class ServiceImpl implements Service {\n"
+            + "    @FeatureSwitch(\"test.feature\")\n"
+            + "    public String greet(String name) { return \"hello \" + name; }\n"
+            + "    @FeatureSwitch(value = \"test.feature\", status = \"on\")\n"
+            + "    public int count() { return 42; }\n"
+            + "    public String plain() { return \"plain\"; }\n"
+            + "    @FeatureSwitch(value = \"test.feature\", statuses = { \"on\", \"off\" })\n"
+            + "    public String either() { return \"either\"; }\n"
+            + "    public void fail() throws java.io.IOException { throw new java.io.IOException(); }\n"
+            + "    public String toString() { return \"impl\"; }\n"
+            + "}\n";
+
+    private static final String WITHOUT_INTERFACE_SOURCE =
+            "package sample;\n"
+            + "import com.googlecode.fitchy.annotation.FeatureSwitch;\n"
+            + "public class WithoutInterface {\n"
+            + "    @FeatureSwitch(\"test.feature\")\n"
+            + "    public void run() { }\n"
+            + "}\n";
+
+    private static final String OTHER_IMPLEMENTATION_SOURCE =
+            "package sample;\n"
+            + "import com.googlecode.fitchy.annotation.FeatureSwitch;\n"
+            + "public class OtherServiceImpl extends ServiceImpl implements Service {\n"
+            + "    @FeatureSwitch(\"other.feature\")\n"
+            + "    public String plain() { return \"other\"; }\n"
+            + "}\n";
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    private FeatureContext context;
+
+    private FeatureResolver resolver;
+
+    private File classDir;
+
+    private ClassLoader loader;
+
+    @Before
+    public void setUp() throws Exception {
+        context = new FeatureContext(Configuration.getDefault());
+        resolver = new FeatureResolver(context, context.getConfig());
+        classDir = folder.newFolder("classes");
+        loader = compile("src", SERVICE_SOURCE, IMPLEMENTATION_SOURCE, WITHOUT_INTERFACE_SOURCE);
+    }
+
+    @Test
+    public void process_WithAnnotatedClass_GeneratesProxyFactory() throws Exception {
+        assertSame(loader.loadClass("sample.ServiceImpl"), getFactory("sample.ServiceImpl").getTargetClass());
+    }
+
+    @Test
+    public void observe_WithGeneratedProxy_FindsProxyByName() throws Exception {
+        Object proxy = new GeneratedProxyObserver().observe(loader.loadClass("sample.ServiceImpl").newInstance(), context);
+        assertThat(proxy.getClass().getName(), is("sample.ServiceImpl" + FeatureSwitchProcessor.PROXY_SUFFIX));
+    }
+
+    @Test
+    public void observe_WithSeparateCompilation_FindsProxiesOfBothCompilations() throws Exception {
+        loader = compile("other", OTHER_IMPLEMENTATION_SOURCE);
+        GeneratedProxyObserver observer = new GeneratedProxyObserver();
+        assertThat(observer.hasProxy(loader.loadClass("sample.ServiceImpl")), is(true));
+        assertThat(observer.hasProxy(loader.loadClass("sample.OtherServiceImpl")), is(true));
+    }
+
+    @Test(expected = ClassNotFoundException.class)
+    public void process_WithoutInterface_GeneratesNoProxy() throws Exception {
+        loader.loadClass("sample.WithoutInterface" + FeatureSwitchProcessor.PROXY_SUFFIX);
+    }
+
+    @Test
+    public void create_WithDisabledFeature_ReturnsDefaultValues() throws Exception {
+        Object proxy = createProxy();
+        assertThat(invoke(proxy, "greet", "world"), is(nullValue()));
+        assertThat(invoke(proxy, "count"), is((Object) 0));
+    }
+
+    @Test
+    public void create_WithEnabledFeature_CallsDelegate() throws Exception {
+        Object proxy = createProxy();
+        context.addFeature("test.feature");
+        assertThat(invoke(proxy, "greet", "world"), is((Object) "hello world"));
+        assertThat(invoke(proxy, "count"), is((Object) 42));
+    }
+
+    @Test
+    public void create_WithSeveralStatuses_AcceptsEveryStatus() throws Exception {
+        Object proxy = createProxy();
+        assertThat(invoke(proxy, "either"), is(nullValue()));
+        context.addFeature("test.feature").setStatus(DefaultFeatureStatus.OFF);
+        assertThat(invoke(proxy, "either"), is((Object) "either"));
+    }
+
+    @Test
+    public void create_WithoutAnnotation_CallsDelegate() throws Exception {
+        Object proxy = createProxy();
+        assertThat(invoke(proxy, "plain"), is((Object) "plain"));
+        assertThat(proxy.toString(), is("impl"));
+    }
+
+    private Object createProxy() throws Exception {
+        GeneratedProxyFactory factory = getFactory("sample.ServiceImpl");
+        return factory.create(factory.getTargetClass().newInstance(), resolver);
+    }
+
+    private Object invoke(Object proxy, String name, Object... arguments) throws Exception {
+        Class<?>[] parameterTypes = new Class<?>[arguments.length];
+        Arrays.fill(parameterTypes, String.class);
+        return loader.loadClass("sample.Service").getMethod(name, parameterTypes).invoke(proxy, arguments);
+    }
+
+    private GeneratedProxyFactory getFactory(String targetName) throws Exception {
+        return (GeneratedProxyFactory) loader.loadClass(targetName + FeatureSwitchProcessor.PROXY_SUFFIX).getField("FACTORY").get(null);
+    }
+
+    /**
+     * Compiles sources into the class directory of this test. The classes of previous
+     * compilations are on the class path, like in an incremental build.
+     */
+    private ClassLoader compile(String sourceName, String... sources) throws IOException {
+        File sourceDir = folder.newFolder(sourceName);
+        File packageDir = new File(sourceDir, "sample");
+        packageDir.mkdirs();
+
+        File[] files = new File[sources.length];
+        for(int i = 0; i < sources.length; i++) {
+            String name = sources[i].replaceAll("(?s).*public (?:interface|class) (\\w+).*", "$1");
+            files[i] = new File(packageDir, name + ".java");
+            java.io.Writer writer = new java.io.FileWriter(files[i]);
+            try {
+                writer.write(sources[i]);
+            } finally {
+                writer.close();
+            }
+        }
+
+        JavaCompiler compiler = ToolProvider.getSystemJavaCompiler();
+        StandardJavaFileManager fileManager = compiler.getStandardFileManager(null, null, null);
+        try {
+            String classPath = new File(FeatureSwitch.class.getProtectionDomain().getCodeSource().getLocation().getPath()).getPath()
+                    + File.pathSeparator + classDir.getPath();
+            Iterable<? extends JavaFileObject> units = fileManager.getJavaFileObjects(files);
+            JavaCompiler.CompilationTask task = compiler.getTask(null, fileManager, null,
+                    Arrays.asList("-classpath", classPath, "-d", classDir.getPath(), "-s", sourceDir.getPath()), null, units);
+            task.setProcessors(Arrays.asList(new FeatureSwitchProcessor()));
+            assertTrue("compilation failed", task.call());
+        } finally {
+            fileManager.close();
+        }
+        return new URLClassLoader(new URL[] { classDir.toURI().toURL() }, getClass().getClassLoader());
+    }
+}